@@ -0,0 +1,160 @@
+package org.toonjava;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide el decodificado de documentos sintéticos. Cada invocación procesa exactamente {@link #ROWS}
+ * filas, de modo que la puntuación principal ({@code avgt}) queda en ns/fila y el perfilador
+ * {@code gc} reporta {@code gc.alloc.rate.norm} en bytes/fila. El contador auxiliar {@code lines}
+ * expresa el mismo tiempo en ns/línea.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToonDecoderBenchmark {
+  static final int ROWS = 10_000;
+  private static final ToonDecoderOptions COLUMNAR =
+      ToonDecoderOptions.defaults().withColumnar(true);
+  private static final ToonDecoderOptions PARALLEL =
+      ToonDecoderOptions.defaults().withParallel(true);
+
+  /** Selecciona la columna {@code id} de cada forma generada (y la primera serie inline). */
+  private static final ToonProjection IDS =
+      ToonProjection.of("rows.id", "items.id", "messages.id", "series0");
+
+  @Param({"TABULAR", "NESTED", "INLINE", "QUOTED"})
+  public String shape;
+
+  @Param({"comma", "tab", "pipe"})
+  public String delimiter;
+
+  private ToonDocumentGenerator.Document document;
+  private byte[] bytes;
+  private ToonObject decoded;
+  private ToonEncoderOptions encoding;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    document =
+        ToonDocumentGenerator.generate(
+            ToonDocumentGenerator.Shape.valueOf(shape),
+            ToonDocumentGenerator.delimiter(delimiter),
+            ROWS,
+            42L);
+    bytes = document.text().getBytes(StandardCharsets.UTF_8);
+    decoded = ToonDecoder.decodeObject(document.text());
+    encoding =
+        ToonEncoderOptions.defaults().withDelimiter(ToonDocumentGenerator.delimiter(delimiter));
+  }
+
+  /** Contadores auxiliares: con {@code avgt} se reportan como ns por línea decodificada. */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long lines;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object decode(Counters counters) {
+    counters.lines += document.lines();
+    return ToonDecoder.decode(document.text());
+  }
+
+  /** Decodifica el documento en UTF-8 sin construir antes un {@link String}. */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object decodeBytes(Counters counters) {
+    counters.lines += document.lines();
+    return ToonDecoder.decode(bytes, 0, bytes.length);
+  }
+
+  /** Igual que {@link #decode} pero con los arrays tabulares almacenados por columnas. */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object decodeColumnar(Counters counters) {
+    counters.lines += document.lines();
+    return ToonDecoder.decode(document.text(), COLUMNAR);
+  }
+
+  /** Igual que {@link #decode} pero interpretando las filas tabulares en paralelo. */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object decodeParallel(Counters counters) {
+    counters.lines += document.lines();
+    return ToonDecoder.decode(document.text(), PARALLEL);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object decodeProjected(Counters counters) {
+    counters.lines += document.lines();
+    return ToonDecoder.decode(document.text(), IDS);
+  }
+
+  /** Comprueba el documento en modo estricto sin construir valores. */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object validate(Counters counters) {
+    counters.lines += document.lines();
+    return ToonValidator.validate(document.text());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object tokenerNextValue(Counters counters) {
+    counters.lines += document.lines();
+    return new ToonTokener(document.text()).nextValue();
+  }
+
+  /** Recorre todos los tokens con {@link ToonReader} leyendo los números sin cajas. */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public long pullTokens(Counters counters) {
+    counters.lines += document.lines();
+    ToonReader reader = new ToonReader(document.text());
+    long checksum = 0;
+    ToonReader.Token token;
+    while ((token = reader.nextToken()) != null) {
+      if (token == ToonReader.Token.VALUE_NUMBER_INT) {
+        checksum += reader.getLongValue();
+      } else {
+        checksum += token.ordinal();
+      }
+    }
+    return checksum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object toMap() {
+    return decoded.toMap();
+  }
+
+  /** Vuelve a codificar el árbol decodificado sobre un {@link Writer} que descarta la salida. */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void encode(Counters counters) {
+    counters.lines += document.lines();
+    ToonEncoder.encode(decoded, encoding, Writer.nullWriter());
+  }
+}
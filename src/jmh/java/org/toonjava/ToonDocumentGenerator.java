@@ -0,0 +1,173 @@
+package org.toonjava;
+
+import java.util.Random;
+
+/**
+ * Generador determinista de documentos TOON sintéticos para los benchmarks. Cada forma ejercita un
+ * camino distinto del tokener: filas tabulares anchas, objetos profundamente anidados, arrays
+ * primitivos inline largos y cadenas con muchas comillas y escapes. Todas admiten los tres
+ * delimitadores de la spec (§11).
+ */
+final class ToonDocumentGenerator {
+  /** Formas de documento soportadas por el generador. */
+  enum Shape {
+    /** Array tabular raíz con columnas de todos los tipos primitivos. */
+    TABULAR,
+    /** Lista expandida de objetos con varios niveles de anidamiento. */
+    NESTED,
+    /** Objeto con una clave por fila, cada una con un array primitivo inline largo. */
+    INLINE,
+    /** Array tabular con cadenas entrecomilladas, escapes y delimitadores embebidos. */
+    QUOTED
+  }
+
+  /** Documento generado junto con las métricas necesarias para normalizar resultados. */
+  record Document(String text, int lines, int rows) {}
+
+  private static final String[] WORDS = {
+    "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliet"
+  };
+  private static final String[] STATUS = {"active", "pending", "suspended", "closed"};
+  private static final int NESTING_DEPTH = 6;
+  private static final int INLINE_WIDTH = 256;
+
+  private ToonDocumentGenerator() {}
+
+  static Document generate(Shape shape, char delimiter, int rows, long seed) {
+    Random random = new Random(seed);
+    StringBuilder sb = new StringBuilder(rows * 96);
+    int lines;
+    switch (shape) {
+      case TABULAR:
+        lines = tabular(sb, delimiter, rows, random);
+        break;
+      case NESTED:
+        lines = nested(sb, delimiter, rows, random);
+        break;
+      case INLINE:
+        lines = inline(sb, delimiter, rows, random);
+        break;
+      case QUOTED:
+        lines = quoted(sb, delimiter, rows, random);
+        break;
+      default:
+        throw new IllegalArgumentException("Forma desconocida: " + shape);
+    }
+    return new Document(sb.toString(), lines, rows);
+  }
+
+  /** Interpreta el nombre de un delimitador tal y como se declara en los {@code @Param}. */
+  static char delimiter(String name) {
+    switch (name) {
+      case "comma":
+        return ',';
+      case "tab":
+        return '\t';
+      case "pipe":
+        return '|';
+      default:
+        throw new IllegalArgumentException("Delimitador desconocido: " + name);
+    }
+  }
+
+  private static int tabular(StringBuilder sb, char d, int rows, Random random) {
+    header(sb, "rows", rows, d);
+    fields(sb, d, "id", "account", "amount", "ratio", "active", "status", "owner", "note");
+    sb.append(":");
+    for (int i = 0; i < rows; i++) {
+      sb.append("\n  ");
+      sb.append(i).append(d);
+      sb.append(3_000_000_000L + random.nextInt(1_000_000)).append(d);
+      sb.append(random.nextInt(100_000) / 100.0).append(d);
+      sb.append(random.nextDouble()).append(d);
+      sb.append(random.nextBoolean()).append(d);
+      sb.append(STATUS[random.nextInt(STATUS.length)]).append(d);
+      sb.append(word(random)).append(' ').append(word(random)).append(d);
+      sb.append(random.nextInt(8) == 0 ? "null" : word(random));
+    }
+    return rows + 1;
+  }
+
+  private static int nested(StringBuilder sb, char d, int rows, Random random) {
+    int lines = 1;
+    sb.append("items[").append(rows).append("]:");
+    for (int i = 0; i < rows; i++) {
+      sb.append("\n  - id: ").append(i);
+      sb.append("\n    name: ").append(word(random));
+      lines += 2;
+      String indent = "    ";
+      for (int depth = 0; depth < NESTING_DEPTH; depth++) {
+        sb.append('\n').append(indent).append("level").append(depth).append(':');
+        indent += "  ";
+        sb.append('\n').append(indent).append("weight: ").append(random.nextInt(1_000));
+        sb.append('\n').append(indent).append("label: ").append(word(random));
+        lines += 3;
+      }
+      sb.append('\n').append(indent);
+      header(sb, "tags", 3, d);
+      sb.append(": ").append(word(random)).append(d).append(word(random)).append(d);
+      sb.append(word(random));
+      lines++;
+    }
+    return lines;
+  }
+
+  private static int inline(StringBuilder sb, char d, int rows, Random random) {
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        sb.append('\n');
+      }
+      header(sb, "series" + i, INLINE_WIDTH, d);
+      sb.append(':');
+      for (int j = 0; j < INLINE_WIDTH; j++) {
+        sb.append(j == 0 ? ' ' : d);
+        if ((j & 1) == 0) {
+          sb.append(random.nextInt(1_000_000));
+        } else {
+          sb.append(random.nextInt(1_000_000) / 1000.0);
+        }
+      }
+    }
+    return rows;
+  }
+
+  private static int quoted(StringBuilder sb, char d, int rows, Random random) {
+    header(sb, "messages", rows, d);
+    fields(sb, d, "id", "\"from address\"", "subject", "body");
+    sb.append(":");
+    for (int i = 0; i < rows; i++) {
+      sb.append("\n  ");
+      sb.append(i).append(d);
+      sb.append('"').append(word(random)).append("@example.com").append('"').append(d);
+      sb.append('"').append(word(random)).append(": ").append(word(random));
+      sb.append(d).append(" re").append('"').append(d);
+      sb.append('"').append("Dijo \\\"").append(word(random)).append("\\\"\\n");
+      sb.append("ruta C:\\\\").append(word(random)).append("\\t[").append(random.nextInt(100));
+      sb.append("]").append('"');
+    }
+    return rows + 1;
+  }
+
+  private static void header(StringBuilder sb, String key, int length, char d) {
+    sb.append(key).append('[').append(length);
+    if (d != ',') {
+      sb.append(d);
+    }
+    sb.append(']');
+  }
+
+  private static void fields(StringBuilder sb, char d, String... names) {
+    sb.append('{');
+    for (int i = 0; i < names.length; i++) {
+      if (i > 0) {
+        sb.append(d);
+      }
+      sb.append(names[i]);
+    }
+    sb.append('}');
+  }
+
+  private static String word(Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+}
@@ -0,0 +1,93 @@
+package org.toonjava;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodifica en cada invocación todos los casos válidos del corpus {@code fixtures/decode}. Sirve
+ * de línea base con documentos pequeños y reales, complementaria a {@link ToonDecoderBenchmark}. La
+ * ruta del corpus se toma de la propiedad {@code toon.fixtures} (configurada por Gradle).
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToonFixtureCorpusBenchmark {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final List<String> inputs = new ArrayList<>();
+  private final List<ToonDecoderOptions> options = new ArrayList<>();
+  private int lines;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() throws IOException {
+    Path base = Path.of(System.getProperty("toon.fixtures", "src/test/resources/fixtures/decode"));
+    try (Stream<Path> files = Files.list(base)) {
+      files.filter(Files::isRegularFile).sorted().forEach(this::load);
+    }
+    if (inputs.isEmpty()) {
+      throw new IllegalStateException("El corpus de fixtures está vacío: " + base);
+    }
+  }
+
+  /** Contadores auxiliares: con {@code avgt} se reportan como ns por documento y por línea. */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long documents;
+    public long lines;
+  }
+
+  @Benchmark
+  public void decodeCorpus(Counters counters, Blackhole blackhole) {
+    for (int i = 0; i < inputs.size(); i++) {
+      blackhole.consume(ToonDecoder.decode(inputs.get(i), options.get(i)));
+    }
+    counters.documents += inputs.size();
+    counters.lines += lines;
+  }
+
+  private void load(Path path) {
+    try {
+      for (JsonNode test : MAPPER.readTree(Files.readString(path)).path("tests")) {
+        if (test.path("shouldError").asBoolean(false)) {
+          continue;
+        }
+        String input = test.path("input").asText();
+        JsonNode node = test.path("options");
+        ToonDecoderOptions base = ToonDecoderOptions.defaults();
+        inputs.add(input);
+        options.add(
+            new ToonDecoderOptions(
+                node.path("indent").asInt(base.indent()),
+                node.path("strict").asBoolean(base.strict())));
+        lines += input.split("\n", -1).length;
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.toonjava;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodifica documentos del orden de decenas a cientos de MB en modo de disparo único, para medir
+ * el comportamiento con cargas reales (tiempo total, presión de GC y memoria pico con {@code -prof
+ * gc}). Los contadores auxiliares permiten derivar ns/línea y ns/fila.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class ToonLargeDocumentBenchmark {
+  private static final int SAMPLE_ROWS = 1_000;
+
+  @Param({"TABULAR", "NESTED"})
+  public String shape;
+
+  @Param({"64"})
+  public int megabytes;
+
+  private ToonDocumentGenerator.Document document;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    ToonDocumentGenerator.Shape kind = ToonDocumentGenerator.Shape.valueOf(shape);
+    ToonDocumentGenerator.Document sample =
+        ToonDocumentGenerator.generate(kind, ',', SAMPLE_ROWS, 7L);
+    long bytesPerRow = Math.max(1, sample.text().length() / SAMPLE_ROWS);
+    int rows = (int) Math.min(Integer.MAX_VALUE, megabytes * 1024L * 1024L / bytesPerRow);
+    document = ToonDocumentGenerator.generate(kind, ',', rows, 7L);
+  }
+
+  /** Contadores auxiliares acumulados por invocación. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long lines;
+    public long rows;
+  }
+
+  @Benchmark
+  public Object decode(Counters counters) {
+    counters.lines += document.lines();
+    counters.rows += document.rows();
+    return ToonDecoder.decode(document.text());
+  }
+}
@@ -1,32 +1,63 @@
 package org.toonjava;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.function.Consumer;
 
 /**
  * Representa una lista ordenada de valores TOON. Inspirada en {@code JSONArray} de org.json pero
- * con validaciones estrictas de tipos compatibles.
+ * con validaciones estrictas de tipos compatibles. Los arrays tabulares decodificados en modo
+ * columnar son instancias de {@link ToonTable}.
+ *
+ * <p>Mientras todos los elementos son enteros, números en coma flotante o booleanos, se guardan en
+ * un array primitivo en lugar de en cajas; {@link #getInt(int)}, {@link #getLong(int)}, {@link
+ * #getDouble(int)}, {@link #getBoolean(int)} y {@link #toIntArray()} y compañía los leen entonces
+ * sin crear ninguna. Al añadir un elemento de otro tipo el array pasa a guardar objetos.
+ *
+ * <p>Como {@link ToonObject}, ofrece la vista sin copia {@link #asList()} y puede congelarse con
+ * {@link #freeze()}.
  */
-public final class ToonArray implements Iterable<Object> {
+public sealed class ToonArray implements Iterable<Object> permits ToonTable {
   private final List<Object> values;
 
+  /**
+   * Resultado de la última comprobación de forma tabular, o {@code null} si está por hacer. Una
+   * vez calculado, {@link #add}, {@link #set} y {@link #remove} lo mantienen al día.
+   */
+  private Tabular tabular;
+
+  private boolean frozen;
+
+  /** Vista devuelta por {@link #asList()}, creada en el primer uso. */
+  private List<Object> view;
+
   public ToonArray() {
-    this.values = new ArrayList<>();
+    this.values = new ToonValues();
+  }
+
+  ToonArray(int initialCapacity) {
+    this.values = new ToonValues(initialCapacity);
   }
 
   public ToonArray(List<?> source) {
     Objects.requireNonNull(source, "source");
-    this.values = new ArrayList<>(source.size());
+    this.values = new ToonValues(source.size());
     for (Object value : source) {
       this.values.add(canonicalize(value));
     }
   }
 
+  /** Usa directamente las filas de un {@link ToonTable}, que ya están en forma canónica. */
+  ToonArray(ToonTable.Rows rows) {
+    this.values = rows;
+  }
+
   /**
    * Devuelve el número de elementos almacenados.
    *
@@ -36,6 +67,26 @@ public final class ToonArray implements Iterable<Object> {
     return values.size();
   }
 
+  /** Contenido sin copiar, con los nulos como {@link ToonNull}; sólo para lectura interna. */
+  List<Object> canonicalValues() {
+    return values;
+  }
+
+  /**
+   * Campos de la forma tabular (SPEC §9.3): las claves del primer elemento si todos son objetos
+   * con esas mismas claves y sólo valores primitivos, o {@code null} si no. El resultado se guarda
+   * y sólo se recalcula si cambió la forma de algún elemento, lo que se comprueba con una lectura
+   * por elemento en lugar de buscar sus claves.
+   */
+  List<String> tabularFields() {
+    Tabular current = tabular;
+    if (current == null || current.stamp() != shapeVersions()) {
+      current = scanTabular();
+      tabular = current;
+    }
+    return current.fields();
+  }
+
   /** Devuelve {@code true} cuando no hay elementos. */
   public boolean isEmpty() {
     return values.isEmpty();
@@ -75,6 +126,10 @@ public final class ToonArray implements Iterable<Object> {
   }
 
   public boolean getBoolean(int index) {
+    ToonValues primitives = containsIndex(index) ? primitives(ToonValues.Kind.BOOLEAN) : null;
+    if (primitives != null) {
+      return primitives.booleanAt(index);
+    }
     Object value = getRequired(index, "Boolean");
     if (value instanceof Boolean b) {
       return b;
@@ -88,6 +143,10 @@ public final class ToonArray implements Iterable<Object> {
   }
 
   public double getDouble(int index) {
+    ToonValues primitives = containsIndex(index) ? numbers() : null;
+    if (primitives != null) {
+      return primitives.doubleAt(index);
+    }
     Object value = getRequired(index, "Number");
     if (value instanceof Number number) {
       return number.doubleValue();
@@ -101,6 +160,10 @@ public final class ToonArray implements Iterable<Object> {
   }
 
   public long getLong(int index) {
+    ToonValues primitives = containsIndex(index) ? numbers() : null;
+    if (primitives != null && primitives.kind() != ToonValues.Kind.DOUBLE) {
+      return primitives.longAt(index);
+    }
     Object value = getRequired(index, "Number");
     if (value instanceof Number number) {
       return number.longValue();
@@ -114,6 +177,10 @@ public final class ToonArray implements Iterable<Object> {
   }
 
   public int getInt(int index) {
+    ToonValues primitives = containsIndex(index) ? primitives(ToonValues.Kind.INT) : null;
+    if (primitives != null) {
+      return primitives.intAt(index);
+    }
     long value = getLong(index);
     if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
       throw new ToonException("Valor fuera de rango int en índice " + index + ": " + value);
@@ -158,38 +225,185 @@ public final class ToonArray implements Iterable<Object> {
     return value instanceof ToonArray array ? array : null;
   }
 
+  /**
+   * Copia los elementos como {@code int[]}, sin cajas si el array sólo guarda enteros de {@code
+   * int}.
+   *
+   * @throws ToonException si algún elemento es nulo, no es un número o no cabe en un {@code int},
+   *     como {@link #getInt(int)}.
+   */
+  public int[] toIntArray() {
+    ToonValues primitives = primitives(ToonValues.Kind.INT);
+    if (primitives != null) {
+      return primitives.ints();
+    }
+    int[] result = new int[size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = getInt(i);
+    }
+    return result;
+  }
+
+  /** Copia los elementos como {@code long[]}; mismas condiciones que {@link #toIntArray()}. */
+  public long[] toLongArray() {
+    ToonValues primitives = numbers();
+    if (primitives != null && primitives.kind() != ToonValues.Kind.DOUBLE) {
+      return primitives.longs();
+    }
+    long[] result = new long[size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = getLong(i);
+    }
+    return result;
+  }
+
+  /** Copia los elementos como {@code double[]}; mismas condiciones que {@link #toIntArray()}. */
+  public double[] toDoubleArray() {
+    ToonValues primitives = numbers();
+    if (primitives != null) {
+      return primitives.doubles();
+    }
+    double[] result = new double[size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = getDouble(i);
+    }
+    return result;
+  }
+
+  /** Copia los elementos como {@code boolean[]}; mismas condiciones que {@link #toIntArray()}. */
+  public boolean[] toBooleanArray() {
+    ToonValues primitives = primitives(ToonValues.Kind.BOOLEAN);
+    if (primitives != null) {
+      return primitives.booleans();
+    }
+    boolean[] result = new boolean[size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = getBoolean(i);
+    }
+    return result;
+  }
+
   /**
    * Añade un valor al final del array. Devuelve la propia instancia para permitir encadenamiento.
    */
   public ToonArray add(Object value) {
-    values.add(canonicalize(value));
+    checkMutable();
+    Object canonical = canonicalize(value);
+    values.add(canonical);
+    trackAdded(values.size() - 1, canonical);
     return this;
   }
 
+  /**
+   * Añade un valor producido por el tokener, que ya está en forma canónica salvo por los nulos.
+   */
+  void addDecoded(Object value) {
+    Object canonical = value == null ? ToonNull.INSTANCE : value;
+    values.add(canonical);
+    trackAdded(values.size() - 1, canonical);
+  }
+
   /**
    * Inserta un valor en la posición indicada, desplazando el resto de elementos hacia la derecha.
    */
   public ToonArray add(int index, Object value) {
+    checkMutable();
     checkInsertIndex(index);
-    values.add(index, canonicalize(value));
+    Object canonical = canonicalize(value);
+    values.add(index, canonical);
+    trackAdded(index, canonical);
     return this;
   }
 
   /** Reemplaza el valor existente en la posición indicada. */
   public ToonArray set(int index, Object value) {
+    checkMutable();
     ensureIndex(index);
-    values.set(index, canonicalize(value));
+    Object canonical = canonicalize(value);
+    Object previous = values.set(index, canonical);
+    trackReplaced(index, previous, canonical);
     return this;
   }
 
   /** Elimina el elemento en la posición indicada y lo devuelve (sin envolver). */
   public Object remove(int index) {
+    checkMutable();
     ensureIndex(index);
-    return unwrap(values.remove(index));
+    Object previous = values.remove(index);
+    trackRemoved(index, previous);
+    return unwrap(previous);
+  }
+
+  /**
+   * Interpreta los bloques que siguen diferidos en los objetos del array, como {@link
+   * ToonObject#validate()}.
+   *
+   * @return este mismo array.
+   */
+  public ToonArray validate() {
+    for (Object value : values) {
+      if (value instanceof ToonObject object) {
+        object.validate();
+      } else if (value instanceof ToonArray array) {
+        array.validate();
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Vuelve inmutables el array y todo su contenido, como {@link ToonObject#freeze()}; a partir de
+   * aquí {@link #add}, {@link #set}, {@link #remove} y el {@code remove} del iterador lanzan {@link
+   * ToonException}.
+   *
+   * @return este mismo array.
+   */
+  public ToonArray freeze() {
+    if (!frozen) {
+      validate();
+      freezeTree();
+    }
+    return this;
+  }
+
+  /** Congela el subárbol, cuyos bloques diferidos ya están interpretados. */
+  void freezeTree() {
+    frozen = true;
+    for (Object value : values) {
+      if (value instanceof ToonObject object) {
+        object.freezeTree();
+      } else if (value instanceof ToonArray array) {
+        array.freezeTree();
+      }
+    }
+  }
+
+  public boolean isFrozen() {
+    return frozen;
   }
 
-  /** Expone una copia inmodificable del contenido, deshaciendo los centinelas internos. */
+  /**
+   * Vista de sólo lectura del contenido, sin copiarlo, que refleja los cambios posteriores del
+   * array: los nulos se leen como {@code null} y los objetos y arrays anidados como sus vistas
+   * {@link ToonObject#asMap()} y {@link #asList()}.
+   */
+  public List<Object> asList() {
+    List<Object> current = view;
+    if (current == null) {
+      current = new ListView();
+      view = current;
+    }
+    return current;
+  }
+
+  /**
+   * Expone una copia inmodificable del contenido, deshaciendo los centinelas internos. Si el array
+   * está congelado, devuelve {@link #asList()}, que ya no puede cambiar.
+   */
   public List<Object> toList() {
+    if (isFrozen()) {
+      return asList();
+    }
     List<Object> copy = new ArrayList<>(values.size());
     for (Object value : values) {
       copy.add(cloneValue(value));
@@ -214,7 +428,9 @@ public final class ToonArray implements Iterable<Object> {
 
       @Override
       public void remove() {
+        checkMutable();
         delegate.remove();
+        tabular = null;
       }
     };
   }
@@ -229,7 +445,173 @@ public final class ToonArray implements Iterable<Object> {
 
   @Override
   public String toString() {
-    return toList().toString();
+    return asList().toString();
+  }
+
+  /** Vista de {@link #asList()}: lee la lista del array en cada acceso. */
+  private final class ListView extends AbstractList<Object> implements RandomAccess {
+    @Override
+    public Object get(int index) {
+      return ToonObject.viewValue(values.get(index));
+    }
+
+    @Override
+    public int size() {
+      return values.size();
+    }
+  }
+
+  /**
+   * Campos comunes ({@code null} si los elementos no son uniformes), forma compartida del primer
+   * elemento si la tiene y suma de las {@link ToonObject#shapeVersion()} de los elementos al
+   * comprobarlos.
+   */
+  private record Tabular(List<String> fields, ToonShape shape, long stamp) {
+    Tabular withStamp(long stamp) {
+      return stamp == this.stamp ? this : new Tabular(fields, shape, stamp);
+    }
+
+    /** Indica si {@code value} es un objeto plano con exactamente los campos de la forma. */
+    boolean matches(Object value) {
+      if (!(value instanceof ToonObject object)
+          || !object.isFlat()
+          || object.size() != fields.size()) {
+        return false;
+      }
+      if (shape != null && object.sharedShape() == shape) {
+        return true;
+      }
+      Map<String, Object> map = object.canonicalValues();
+      for (String field : fields) {
+        if (!map.containsKey(field)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private Tabular scanTabular() {
+    long stamp = shapeVersions();
+    if (values.isEmpty()
+        || !(values.get(0) instanceof ToonObject first)
+        || first.isEmpty()
+        || !first.isFlat()) {
+      return new Tabular(null, null, stamp);
+    }
+    Tabular shape = startingWith(first, stamp);
+    for (Object value : values) {
+      if (!shape.matches(value)) {
+        return new Tabular(null, null, stamp);
+      }
+    }
+    return shape;
+  }
+
+  private long shapeVersions() {
+    long stamp = 0;
+    for (Object value : values) {
+      stamp += shapeVersion(value);
+    }
+    return stamp;
+  }
+
+  private static int shapeVersion(Object value) {
+    return value instanceof ToonObject object ? object.shapeVersion() : 0;
+  }
+
+  /** Forma uniforme cuyos campos siguen el orden de {@code first}, el nuevo primer elemento. */
+  private static Tabular startingWith(ToonObject first, long stamp) {
+    ToonShape shape = first.sharedShape();
+    List<String> fields = shape != null ? shape.keys() : List.copyOf(first.keySet());
+    return new Tabular(fields, shape, stamp);
+  }
+
+  /**
+   * Actualiza la forma tabular tras insertar {@code value} en {@code index}: si era uniforme basta
+   * con comparar el nuevo elemento y, si no lo era, sigue sin serlo.
+   */
+  private void trackAdded(int index, Object value) {
+    Tabular current = tabular;
+    if (current == null) {
+      return;
+    }
+    if (values.size() == 1) {
+      tabular = scanTabular();
+      return;
+    }
+    long stamp = current.stamp() + shapeVersion(value);
+    if (current.fields() == null || !current.matches(value)) {
+      tabular = new Tabular(null, null, stamp);
+    } else if (index == 0) {
+      tabular = startingWith((ToonObject) value, stamp);
+    } else {
+      tabular = current.withStamp(stamp);
+    }
+  }
+
+  /**
+   * Actualiza la forma tabular tras quitar {@code value} de {@code index}. Quitar un elemento de un
+   * array no uniforme puede volverlo uniforme, así que en ese caso la forma se recalculará.
+   */
+  private void trackRemoved(int index, Object value) {
+    Tabular current = tabular;
+    if (current == null) {
+      return;
+    }
+    if (values.isEmpty()) {
+      tabular = new Tabular(null, null, 0);
+    } else if (current.fields() == null) {
+      tabular = null;
+    } else {
+      long stamp = current.stamp() - shapeVersion(value);
+      tabular =
+          index == 0 ? startingWith((ToonObject) values.get(0), stamp) : current.withStamp(stamp);
+    }
+  }
+
+  /** Actualiza la forma tabular tras sustituir {@code previous} por {@code value}. */
+  private void trackReplaced(int index, Object previous, Object value) {
+    Tabular current = tabular;
+    if (current == null) {
+      return;
+    }
+    if (values.size() == 1 || current.fields() == null) {
+      tabular = values.size() == 1 ? scanTabular() : null;
+      return;
+    }
+    long stamp = current.stamp() - shapeVersion(previous) + shapeVersion(value);
+    if (!current.matches(value)) {
+      tabular = new Tabular(null, null, stamp);
+    } else if (index == 0) {
+      tabular = startingWith((ToonObject) value, stamp);
+    } else {
+      tabular = current.withStamp(stamp);
+    }
+  }
+
+  private void checkMutable() {
+    if (frozen) {
+      throw new ToonException("El ToonArray está congelado");
+    }
+  }
+
+  /** Almacén primitivo si los elementos se guardan como {@code kind}, o {@code null}. */
+  private ToonValues primitives(ToonValues.Kind kind) {
+    return values instanceof ToonValues primitives && primitives.kind() == kind ? primitives : null;
+  }
+
+  /** Almacén primitivo si los elementos se guardan como números sin caja, o {@code null}. */
+  private ToonValues numbers() {
+    if (values instanceof ToonValues primitives) {
+      ToonValues.Kind kind = primitives.kind();
+      if (kind == ToonValues.Kind.INT
+          || kind == ToonValues.Kind.LONG
+          || kind == ToonValues.Kind.DOUBLE) {
+        return primitives;
+      }
+    }
+    return null;
   }
 
   private boolean containsIndex(int index) {
@@ -262,6 +644,9 @@ public final class ToonArray implements Iterable<Object> {
       validateNumber(number);
       return number;
     }
+    if (value instanceof ToonTable.Rows rows) {
+      return rows.toTable();
+    }
     if (value instanceof List<?> list) {
       return new ToonArray(list);
     }
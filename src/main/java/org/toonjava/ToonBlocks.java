@@ -0,0 +1,159 @@
+package org.toonjava;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Divide un documento completo en trozos que pueden interpretarse de forma independiente: las
+ * entradas del objeto raíz, cada una de las cuales termina donde la indentación vuelve a la columna
+ * 0, o los elementos {@code - } de la lista raíz. La división sólo mira la indentación de cada
+ * línea, sin interpretarla, y agrupa los bloques consecutivos en unos pocos trozos por hilo.
+ */
+final class ToonBlocks {
+  /** Trozos por hilo del pool, para repartir mejor bloques de tamaños desiguales. */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /**
+   * Líneas {@code [start, end)} del búfer que forman un trozo; {@code firstLine} es el número de la
+   * primera y {@code last} indica si es el último trozo de la región.
+   */
+  record Chunk(int start, int end, int firstLine, boolean last) {}
+
+  private final Chunk[] chunks;
+  private final int stopPosition;
+  private final int lastLine;
+
+  private ToonBlocks(Chunk[] chunks, int stopPosition, int lastLine) {
+    this.chunks = chunks;
+    this.stopPosition = stopPosition;
+    this.lastLine = lastLine;
+  }
+
+  /**
+   * Busca los bloques que empiezan a partir de la línea {@code firstLine}, situada en {@code from}.
+   * Con {@code blockIndent} 0 la región llega hasta el final del documento; si no, termina antes de
+   * la primera línea no vacía sin indentar.
+   *
+   * @return los trozos de la región, o {@code null} si tiene menos de {@code threshold} líneas o no
+   *     admite más de un trozo.
+   */
+  static ToonBlocks split(
+      char[] chars,
+      int limit,
+      int from,
+      int firstLine,
+      int blockIndent,
+      int threshold,
+      int parallelism) {
+    ToonSource source = ToonSource.of(chars, limit);
+    source.seek(from);
+    int[] starts = new int[64];
+    int[] startLines = new int[64];
+    int[] previousEnds = new int[64];
+    int blocks = 0;
+    int lineNumber = firstLine - 1;
+    int previousEnd = from;
+    int stopPosition = -1;
+    while (source.nextLine()) {
+      int lineStart = source.lineStart();
+      int lineEnd = source.lineEnd();
+      if (blockIndent > 0 && lineEnd > lineStart && chars[lineStart] > ' ') {
+        stopPosition = lineStart;
+        break;
+      }
+      lineNumber++;
+      if (lineNumber > firstLine && startsBlock(chars, lineStart, lineEnd, blockIndent)) {
+        if (blocks == starts.length) {
+          starts = Arrays.copyOf(starts, blocks * 2);
+          startLines = Arrays.copyOf(startLines, blocks * 2);
+          previousEnds = Arrays.copyOf(previousEnds, blocks * 2);
+        }
+        starts[blocks] = lineStart;
+        startLines[blocks] = lineNumber;
+        previousEnds[blocks] = previousEnd;
+        blocks++;
+      }
+      previousEnd = lineEnd;
+    }
+    int lines = lineNumber - firstLine + 1;
+    if (lines < threshold || blocks == 0) {
+      return null;
+    }
+
+    int target = Math.max(1, lines / (parallelism * CHUNKS_PER_THREAD));
+    Chunk[] chunks = new Chunk[Math.min(blocks + 1, parallelism * CHUNKS_PER_THREAD + 1)];
+    int count = 0;
+    int chunkStart = from;
+    int chunkLine = firstLine;
+    for (int i = 0; i < blocks; i++) {
+      if (startLines[i] - chunkLine >= target && count < chunks.length - 1) {
+        chunks[count++] = new Chunk(chunkStart, previousEnds[i], chunkLine, false);
+        chunkStart = starts[i];
+        chunkLine = startLines[i];
+      }
+    }
+    if (count == 0) {
+      return null;
+    }
+    chunks[count++] = new Chunk(chunkStart, previousEnd, chunkLine, true);
+    return new ToonBlocks(Arrays.copyOf(chunks, count), stopPosition, lineNumber);
+  }
+
+  private static boolean startsBlock(char[] chars, int lineStart, int lineEnd, int blockIndent) {
+    if (lineEnd - lineStart <= blockIndent) {
+      return false;
+    }
+    for (int i = lineStart; i < lineStart + blockIndent; i++) {
+      if (chars[i] != ' ') {
+        return false;
+      }
+    }
+    char first = chars[lineStart + blockIndent];
+    return blockIndent == 0 ? first > ' ' : first == '-';
+  }
+
+  /** Inicio de la línea que cierra la región, o {@code -1} si la región llega al final. */
+  int stopPosition() {
+    return stopPosition;
+  }
+
+  /** Número de la última línea de la región. */
+  int lastLine() {
+    return lastLine;
+  }
+
+  /** Interpreta cada trozo con {@code parser} en {@code pool}; los resultados siguen su orden. */
+  ToonEventTape[] parse(ForkJoinPool pool, Function<Chunk, ToonEventTape> parser) {
+    ToonEventTape[] tapes = new ToonEventTape[chunks.length];
+    pool.invoke(new Parse(parser, tapes, 0, chunks.length));
+    return tapes;
+  }
+
+  private final class Parse extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Function<Chunk, ToonEventTape> parser;
+    private final ToonEventTape[] tapes;
+    private final int from;
+    private final int to;
+
+    Parse(Function<Chunk, ToonEventTape> parser, ToonEventTape[] tapes, int from, int to) {
+      this.parser = parser;
+      this.tapes = tapes;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        tapes[from] = parser.apply(chunks[from]);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new Parse(parser, tapes, from, middle), new Parse(parser, tapes, middle, to));
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package org.toonjava;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Implementaciones internas de {@link ToonValueBuilder} usadas por el tokener y el decoder. */
+final class ToonBuilders {
+  /** Tope de la reserva inicial: no se confía en la longitud declarada para reservar memoria. */
+  private static final int MAX_INITIAL_CAPACITY = 1 << 10;
+
+  /** Construye {@link Map}/{@link List} mutables con los nulos como {@code null}. */
+  static final ToonValueBuilder<Map<String, Object>, List<Object>> MAPS = new MapBuilder();
+
+  /** Construye directamente el árbol de {@link ToonObject}/{@link ToonArray}. */
+  static final ToonValueBuilder<ToonObject, ToonArray> TOON = new ToonTreeBuilder();
+
+  private ToonBuilders() {}
+
+  /**
+   * Constructores que conservan la {@link ToonShape} compartida de las filas tabulares en lugar de
+   * crear un mapa por fila.
+   */
+  interface ShapedRows<O> {
+    O createRow(ToonShape shape, Object[] values);
+  }
+
+  /**
+   * Manejadores que pueden quedarse con el array de una fila tabular en lugar de copiarlo, cuando
+   * quien la entrega no va a reutilizarlo, como {@link ToonRowBatch}.
+   */
+  interface OwnedRows {
+    /** Como {@link ToonHandler#tabularRow(Object[])}, tomando posesión de {@code values}. */
+    void ownedRow(Object[] values);
+  }
+
+  /**
+   * Adapta los eventos de {@link ToonTokener} a un {@link ToonValueBuilder}. Mantiene una pila con
+   * el contenedor abierto en cada nivel, cuyas entradas se reutilizan entre contenedores, y decide
+   * cómo guardar las filas tabulares: como {@link ToonTable} en modo columnar, con la {@link
+   * ToonShape} compartida si el constructor implementa {@link ShapedRows} o, si no, mediante {@link
+   * ToonValueBuilder#createRow(List, Object[])}.
+   */
+  static final class Assembler implements ToonHandler, OwnedRows {
+    private final ToonValueBuilder<Object, Object> builder;
+    private final ShapedRows<Object> shaped;
+    private final boolean columnar;
+    private final boolean tree;
+    private Frame[] frames = new Frame[8];
+    private int depth = 0;
+    private Object result;
+
+    @SuppressWarnings("unchecked")
+    Assembler(ToonValueBuilder<?, ?> builder, boolean columnar) {
+      this.builder = (ToonValueBuilder<Object, Object>) builder;
+      this.shaped = builder instanceof ShapedRows<?> rows ? (ShapedRows<Object>) rows : null;
+      this.columnar = columnar;
+      this.tree = builder == TOON;
+    }
+
+    /** Valor raíz del último recorrido completo. */
+    Object result() {
+      return result;
+    }
+
+    /** Indica si se construye el árbol de {@link ToonObject}, que admite {@link ToonDeferred}. */
+    boolean defers() {
+      return tree;
+    }
+
+    /** Entrega un bloque anidado sin interpretar como valor de la clave actual. */
+    void deferred(ToonDeferred block) {
+      deliver(block);
+    }
+
+    @Override
+    public void startObject() {
+      Frame frame = push();
+      frame.container = builder.createObject();
+      frame.array = false;
+    }
+
+    @Override
+    public void key(String key) {
+      frames[depth - 1].key = key;
+    }
+
+    @Override
+    public void endObject() {
+      deliver(pop());
+    }
+
+    @Override
+    public void startArray(int length, char delimiter, List<String> fields) {
+      Frame frame = push();
+      frame.array = true;
+      frame.fields = fields;
+      ToonShape shape =
+          fields.isEmpty() || (!columnar && shaped == null) ? null : ToonShape.of(fields);
+      // El modo columnar requiere nombres de campo distintos para poder indexar las columnas.
+      if (columnar && shape != null) {
+        frame.columns = new ToonColumn[fields.size()];
+        for (int i = 0; i < frame.columns.length; i++) {
+          frame.columns[i] = new ToonColumn(length);
+        }
+      } else {
+        frame.container = builder.createArray(length);
+        frame.shape = shape;
+      }
+    }
+
+    @Override
+    public void primitive(Object value) {
+      deliver(value);
+    }
+
+    @Override
+    public void tabularRow(Object[] values) {
+      row(values, false);
+    }
+
+    @Override
+    public void ownedRow(Object[] values) {
+      row(values, true);
+    }
+
+    /** Añade una fila; si no es {@code owned}, el array se copia antes de guardarlo. */
+    private void row(Object[] values, boolean owned) {
+      Frame frame = frames[depth - 1];
+      if (frame.columns != null) {
+        for (int i = 0; i < frame.columns.length; i++) {
+          frame.columns[i].add(values[i]);
+        }
+        return;
+      }
+      Object[] row = owned ? values : values.clone();
+      if (frame.shape != null && shaped != null) {
+        builder.add(frame.container, shaped.createRow(frame.shape, row));
+      } else {
+        builder.add(frame.container, builder.createRow(frame.fields, row));
+      }
+    }
+
+    @Override
+    public void endArray() {
+      Frame frame = frames[depth - 1];
+      if (frame.columns != null) {
+        for (ToonColumn column : frame.columns) {
+          column.trim();
+        }
+        frame.container = builder.createTable(new ToonTable(frame.fields, frame.columns));
+      }
+      deliver(pop());
+    }
+
+    private void deliver(Object value) {
+      if (depth == 0) {
+        result = value;
+        return;
+      }
+      Frame parent = frames[depth - 1];
+      if (parent.array) {
+        builder.add(parent.container, value);
+      } else {
+        builder.put(parent.container, parent.key, value);
+      }
+    }
+
+    private Frame push() {
+      if (depth == frames.length) {
+        frames = Arrays.copyOf(frames, depth * 2);
+      }
+      Frame frame = frames[depth];
+      if (frame == null) {
+        frame = new Frame();
+        frames[depth] = frame;
+      }
+      depth++;
+      return frame;
+    }
+
+    /** Cierra el nivel actual y devuelve su contenedor, soltando las referencias del marco. */
+    private Object pop() {
+      Frame frame = frames[--depth];
+      Object container = frame.container;
+      frame.container = null;
+      frame.key = null;
+      frame.fields = null;
+      frame.shape = null;
+      frame.columns = null;
+      return container;
+    }
+
+    private static final class Frame {
+      Object container;
+      boolean array;
+      String key;
+      List<String> fields;
+      ToonShape shape;
+      ToonColumn[] columns;
+    }
+  }
+
+  private static int initialCapacity(int expectedSize) {
+    return Math.max(0, Math.min(expectedSize, MAX_INITIAL_CAPACITY));
+  }
+
+  private static final class MapBuilder
+      implements ToonValueBuilder<Map<String, Object>, List<Object>>,
+          ShapedRows<Map<String, Object>> {
+
+    @Override
+    public Map<String, Object> createObject() {
+      return new LinkedHashMap<>();
+    }
+
+    @Override
+    public void put(Map<String, Object> object, String key, Object value) {
+      object.put(key, value);
+    }
+
+    @Override
+    public List<Object> createArray(int expectedSize) {
+      return new ArrayList<>(initialCapacity(expectedSize));
+    }
+
+    @Override
+    public void add(List<Object> array, Object value) {
+      array.add(value);
+    }
+
+    @Override
+    public Map<String, Object> createRow(ToonShape shape, Object[] values) {
+      return shape.newRow(values);
+    }
+
+    @Override
+    public List<Object> createTable(ToonTable table) {
+      return table.rowMaps();
+    }
+  }
+
+  private static final class ToonTreeBuilder
+      implements ToonValueBuilder<ToonObject, ToonArray>, ShapedRows<ToonObject> {
+
+    @Override
+    public ToonObject createObject() {
+      return new ToonObject();
+    }
+
+    @Override
+    public void put(ToonObject object, String key, Object value) {
+      object.putDecoded(key, value);
+    }
+
+    @Override
+    public ToonArray createArray(int expectedSize) {
+      return new ToonArray(initialCapacity(expectedSize));
+    }
+
+    @Override
+    public void add(ToonArray array, Object value) {
+      array.addDecoded(value);
+    }
+
+    @Override
+    public ToonObject createRow(ToonShape shape, Object[] values) {
+      return ToonObject.ofRow(shape, values);
+    }
+
+    @Override
+    public ToonArray createTable(ToonTable table) {
+      return table;
+    }
+  }
+}
@@ -0,0 +1,348 @@
+package org.toonjava;
+
+import java.util.Arrays;
+
+/**
+ * Columna de un {@link ToonTable} almacenada en un array especializado según el tipo de sus
+ * valores. El tipo se fija con el primer valor no nulo y se amplía ante un conflicto: {@code INT →
+ * LONG → DOUBLE} entre números y {@code MIXED} (valores en caja) para cualquier otra combinación.
+ * Los nulos se registran en un mapa de bits, así que las columnas primitivas no necesitan cajas.
+ *
+ * <p>Los enteros almacenados como {@code double} se marcan en un segundo mapa de bits para
+ * devolverlos como {@link Integer} o {@link Long}, igual que los produce el tokener; sólo se
+ * admiten mientras la conversión sea exacta (magnitud hasta 2<sup>53</sup>).
+ */
+final class ToonColumn {
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+  private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+  private ToonTable.ColumnType type = ToonTable.ColumnType.NULL;
+  private int size = 0;
+  private int capacity;
+  private long[] nulls;
+  private long[] integral;
+  private int[] ints;
+  private long[] longs;
+  private double[] doubles;
+  private boolean[] booleans;
+  private String[] strings;
+  private Object[] objects;
+
+  /**
+   * @param expectedSize filas declaradas en el encabezado; sólo orienta la reserva inicial, que se
+   *     acota para no confiar en longitudes arbitrarias.
+   */
+  ToonColumn(int expectedSize) {
+    this.capacity =
+        expectedSize > 0 ? Math.min(expectedSize, MAX_INITIAL_CAPACITY) : DEFAULT_CAPACITY;
+  }
+
+  ToonTable.ColumnType type() {
+    return type;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Añade un valor primitivo tal como lo devuelve el tokener ({@code null} incluido). */
+  void add(Object value) {
+    if (size == capacity) {
+      grow();
+    }
+    int row = size++;
+    if (value == null) {
+      setBit(nullBits(), row);
+      return;
+    }
+    ToonTable.ColumnType target = merge(type, value);
+    if (target != type) {
+      convert(target);
+    }
+    store(row, value);
+  }
+
+  boolean isNull(int row) {
+    return nulls != null && getBit(nulls, row);
+  }
+
+  /** Devuelve el valor de la fila con su tipo original, o {@code null}. */
+  Object get(int row) {
+    if (isNull(row)) {
+      return null;
+    }
+    switch (type) {
+      case INT:
+        return ints[row];
+      case LONG:
+        return integerOf(longs[row]);
+      case DOUBLE:
+        return getBit(integral, row) ? integerOf((long) doubles[row]) : (Object) doubles[row];
+      case BOOLEAN:
+        return booleans[row];
+      case STRING:
+        return strings[row];
+      case MIXED:
+        return objects[row];
+      default:
+        return null;
+    }
+  }
+
+  int[] ints() {
+    return ints == null ? new int[size] : Arrays.copyOf(ints, size);
+  }
+
+  long[] longs() {
+    long[] result = new long[size];
+    if (type == ToonTable.ColumnType.INT) {
+      for (int i = 0; i < size; i++) {
+        result[i] = ints[i];
+      }
+    } else if (longs != null) {
+      System.arraycopy(longs, 0, result, 0, size);
+    }
+    return result;
+  }
+
+  double[] doubles() {
+    double[] result = new double[size];
+    if (type == ToonTable.ColumnType.INT) {
+      for (int i = 0; i < size; i++) {
+        result[i] = ints[i];
+      }
+    } else if (type == ToonTable.ColumnType.LONG) {
+      for (int i = 0; i < size; i++) {
+        result[i] = longs[i];
+      }
+    } else if (doubles != null) {
+      System.arraycopy(doubles, 0, result, 0, size);
+    }
+    return result;
+  }
+
+  boolean[] booleans() {
+    return booleans == null ? new boolean[size] : Arrays.copyOf(booleans, size);
+  }
+
+  String[] strings() {
+    return strings == null ? new String[size] : Arrays.copyOf(strings, size);
+  }
+
+  /** Ajusta los arrays al número de filas leídas una vez completada la tabla. */
+  void trim() {
+    if (capacity == size) {
+      return;
+    }
+    capacity = size;
+    resize(size);
+  }
+
+  private static ToonTable.ColumnType merge(ToonTable.ColumnType current, Object value) {
+    ToonTable.ColumnType incoming = typeOf(value);
+    if (current == incoming || current == ToonTable.ColumnType.MIXED) {
+      return current;
+    }
+    if (current == ToonTable.ColumnType.NULL) {
+      return incoming;
+    }
+    switch (current) {
+      case INT:
+        if (incoming == ToonTable.ColumnType.LONG) {
+          return ToonTable.ColumnType.LONG;
+        }
+        if (incoming == ToonTable.ColumnType.DOUBLE) {
+          return ToonTable.ColumnType.DOUBLE;
+        }
+        return ToonTable.ColumnType.MIXED;
+      case LONG:
+        if (incoming == ToonTable.ColumnType.INT) {
+          return ToonTable.ColumnType.LONG;
+        }
+        if (incoming == ToonTable.ColumnType.DOUBLE) {
+          return ToonTable.ColumnType.DOUBLE;
+        }
+        return ToonTable.ColumnType.MIXED;
+      case DOUBLE:
+        if (incoming == ToonTable.ColumnType.INT
+            || (incoming == ToonTable.ColumnType.LONG && isExact((Long) value))) {
+          return ToonTable.ColumnType.DOUBLE;
+        }
+        return ToonTable.ColumnType.MIXED;
+      default:
+        return ToonTable.ColumnType.MIXED;
+    }
+  }
+
+  private static ToonTable.ColumnType typeOf(Object value) {
+    if (value instanceof Integer) {
+      return ToonTable.ColumnType.INT;
+    }
+    if (value instanceof Long) {
+      return ToonTable.ColumnType.LONG;
+    }
+    if (value instanceof Double) {
+      return ToonTable.ColumnType.DOUBLE;
+    }
+    if (value instanceof Boolean) {
+      return ToonTable.ColumnType.BOOLEAN;
+    }
+    if (value instanceof String) {
+      return ToonTable.ColumnType.STRING;
+    }
+    return ToonTable.ColumnType.MIXED;
+  }
+
+  private void convert(ToonTable.ColumnType target) {
+    if (target == ToonTable.ColumnType.DOUBLE && type == ToonTable.ColumnType.LONG) {
+      for (int i = 0; i < size - 1; i++) {
+        if (!isExact(longs[i])) {
+          target = ToonTable.ColumnType.MIXED;
+          break;
+        }
+      }
+    }
+    int rows = size - 1;
+    switch (target) {
+      case INT:
+        ints = new int[capacity];
+        break;
+      case LONG:
+        longs = new long[capacity];
+        if (ints != null) {
+          for (int i = 0; i < rows; i++) {
+            longs[i] = ints[i];
+          }
+        }
+        ints = null;
+        break;
+      case DOUBLE:
+        doubles = new double[capacity];
+        if (type != ToonTable.ColumnType.NULL) {
+          integral = new long[bitWords(capacity)];
+          for (int i = 0; i < rows; i++) {
+            if (!isNull(i)) {
+              doubles[i] = ints != null ? ints[i] : longs[i];
+              setBit(integral, i);
+            }
+          }
+        }
+        ints = null;
+        longs = null;
+        break;
+      case BOOLEAN:
+        booleans = new boolean[capacity];
+        break;
+      case STRING:
+        strings = new String[capacity];
+        break;
+      default:
+        objects = new Object[capacity];
+        for (int i = 0; i < rows; i++) {
+          objects[i] = get(i);
+        }
+        ints = null;
+        longs = null;
+        doubles = null;
+        integral = null;
+        booleans = null;
+        strings = null;
+        break;
+    }
+    type = target;
+  }
+
+  private void store(int row, Object value) {
+    switch (type) {
+      case INT:
+        ints[row] = (Integer) value;
+        break;
+      case LONG:
+        longs[row] = ((Number) value).longValue();
+        break;
+      case DOUBLE:
+        if (value instanceof Double d) {
+          doubles[row] = d;
+        } else {
+          doubles[row] = ((Number) value).longValue();
+          if (integral == null) {
+            integral = new long[bitWords(capacity)];
+          }
+          setBit(integral, row);
+        }
+        break;
+      case BOOLEAN:
+        booleans[row] = (Boolean) value;
+        break;
+      case STRING:
+        strings[row] = (String) value;
+        break;
+      default:
+        objects[row] = value;
+        break;
+    }
+  }
+
+  private void grow() {
+    capacity = capacity + (capacity >> 1) + 1;
+    resize(capacity);
+  }
+
+  private void resize(int length) {
+    if (ints != null) {
+      ints = Arrays.copyOf(ints, length);
+    }
+    if (longs != null) {
+      longs = Arrays.copyOf(longs, length);
+    }
+    if (doubles != null) {
+      doubles = Arrays.copyOf(doubles, length);
+    }
+    if (booleans != null) {
+      booleans = Arrays.copyOf(booleans, length);
+    }
+    if (strings != null) {
+      strings = Arrays.copyOf(strings, length);
+    }
+    if (objects != null) {
+      objects = Arrays.copyOf(objects, length);
+    }
+    if (nulls != null) {
+      nulls = Arrays.copyOf(nulls, bitWords(length));
+    }
+    if (integral != null) {
+      integral = Arrays.copyOf(integral, bitWords(length));
+    }
+  }
+
+  private long[] nullBits() {
+    if (nulls == null) {
+      nulls = new long[bitWords(capacity)];
+    }
+    return nulls;
+  }
+
+  private static Object integerOf(long value) {
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      return (int) value;
+    }
+    return value;
+  }
+
+  private static boolean isExact(long value) {
+    return value >= -MAX_EXACT_DOUBLE && value <= MAX_EXACT_DOUBLE;
+  }
+
+  private static int bitWords(int bits) {
+    return (bits + 63) >>> 6;
+  }
+
+  private static void setBit(long[] bits, int index) {
+    bits[index >>> 6] |= 1L << index;
+  }
+
+  private static boolean getBit(long[] bits, int index) {
+    return bits != null && (bits[index >>> 6] & (1L << index)) != 0;
+  }
+}
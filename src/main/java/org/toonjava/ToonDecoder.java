@@ -1,10 +1,21 @@
 package org.toonjava;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Decodifica texto TOON a estructuras dinámicas {@link ToonObject} y {@link ToonArray}. Proporciona
@@ -22,24 +33,60 @@ public final class ToonDecoder {
     this(new ToonTokener(source, options));
   }
 
+  /** Decodifica leyendo el {@link Reader} de forma incremental, sin materializar el documento. */
+  public ToonDecoder(Reader reader) {
+    this(reader, ToonDecoderOptions.defaults());
+  }
+
+  public ToonDecoder(Reader reader, ToonDecoderOptions options) {
+    this(new ToonTokener(reader, options));
+  }
+
+  /** Decodifica un flujo de bytes UTF-8 de forma incremental. El flujo no se cierra. */
+  public ToonDecoder(InputStream input) {
+    this(input, ToonDecoderOptions.defaults());
+  }
+
+  public ToonDecoder(InputStream input, ToonDecoderOptions options) {
+    this(
+        new InputStreamReader(Objects.requireNonNull(input, "input"), StandardCharsets.UTF_8),
+        options);
+  }
+
   public ToonDecoder(ToonTokener tokener) {
     this.tokener = Objects.requireNonNull(tokener, "tokener");
   }
 
+  /**
+   * Decodifica un fichero UTF-8 proyectándolo en memoria con {@link
+   * java.nio.channels.FileChannel#map}, en segmentos de hasta 1 GB para admitir ficheros de
+   * cualquier tamaño. Los bytes se decodifican por trozos directamente sobre el búfer de líneas,
+   * sin construir un {@link String} con el documento, y el canal se cierra antes de volver.
+   *
+   * @throws ToonException si el fichero no se puede abrir o proyectar.
+   */
+  public static ToonDecoder open(Path path) {
+    return open(path, ToonDecoderOptions.defaults());
+  }
+
+  public static ToonDecoder open(Path path, ToonDecoderOptions options) {
+    return new ToonDecoder(new ToonTokener(ToonSource.of(path), options));
+  }
+
   public boolean hasMoreValues() {
     return tokener.hasMoreValues();
   }
 
   public Object nextValue() {
-    return wrap(tokener.nextValue());
+    return tokener.nextValue(ToonBuilders.TOON);
   }
 
   public ToonObject nextObject() {
-    return (ToonObject) wrap(tokener.nextObject());
+    return tokener.nextObject(ToonBuilders.TOON);
   }
 
   public ToonArray nextArray() {
-    return (ToonArray) wrap(tokener.nextArray());
+    return tokener.nextArray(ToonBuilders.TOON);
   }
 
   public static Object decode(String source) {
@@ -47,7 +94,102 @@ public final class ToonDecoder {
   }
 
   public static Object decode(String source, ToonDecoderOptions options) {
-    ToonDecoder decoder = new ToonDecoder(source, options);
+    return decodeSingle(new ToonDecoder(source, options));
+  }
+
+  public static Object decode(Reader reader) {
+    return decode(reader, ToonDecoderOptions.defaults());
+  }
+
+  public static Object decode(Reader reader, ToonDecoderOptions options) {
+    return decodeSingle(new ToonDecoder(reader, options));
+  }
+
+  public static Object decode(InputStream input) {
+    return decode(input, ToonDecoderOptions.defaults());
+  }
+
+  public static Object decode(InputStream input, ToonDecoderOptions options) {
+    return decodeSingle(new ToonDecoder(input, options));
+  }
+
+  /**
+   * Decodifica sólo las rutas de {@code projection}; las demás entradas se saltan sin interpretar
+   * sus valores y de los arrays tabulares sólo se leen las columnas seleccionadas. En modo estricto
+   * lo saltado se recorre igualmente para comprobar su indentación, sus filas y las longitudes
+   * declaradas, sin crear valores; en modo no estricto se salta por indentación.
+   */
+  public static Object decode(String source, ToonProjection projection) {
+    return decode(source, ToonDecoderOptions.defaults(), projection);
+  }
+
+  public static Object decode(
+      String source, ToonDecoderOptions options, ToonProjection projection) {
+    return decodeSingle(new ToonDecoder(new ToonTokener(source, options).project(projection)));
+  }
+
+  public static Object decode(Reader reader, ToonProjection projection) {
+    return decode(reader, ToonDecoderOptions.defaults(), projection);
+  }
+
+  public static Object decode(
+      Reader reader, ToonDecoderOptions options, ToonProjection projection) {
+    return decodeSingle(new ToonDecoder(new ToonTokener(reader, options).project(projection)));
+  }
+
+  public static Object decode(InputStream input, ToonProjection projection) {
+    return decode(input, ToonDecoderOptions.defaults(), projection);
+  }
+
+  public static Object decode(
+      InputStream input, ToonDecoderOptions options, ToonProjection projection) {
+    return decode(
+        new InputStreamReader(Objects.requireNonNull(input, "input"), StandardCharsets.UTF_8),
+        options,
+        projection);
+  }
+
+  /**
+   * Decodifica {@code length} bytes UTF-8 de {@code bytes} a partir de {@code offset}. Se
+   * decodifican de una vez sobre el búfer del tokener, sin construir un {@link String} con el
+   * documento; como con un texto completo, admite la decodificación paralela y diferida.
+   */
+  public static Object decode(byte[] bytes, int offset, int length) {
+    return decode(bytes, offset, length, ToonDecoderOptions.defaults());
+  }
+
+  public static Object decode(byte[] bytes, int offset, int length, ToonDecoderOptions options) {
+    return decode(ByteBuffer.wrap(bytes, offset, length), options);
+  }
+
+  /** Decodifica los bytes UTF-8 restantes de {@code bytes} sin cambiar su posición. */
+  public static Object decode(ByteBuffer bytes) {
+    return decode(bytes, ToonDecoderOptions.defaults());
+  }
+
+  public static Object decode(ByteBuffer bytes, ToonDecoderOptions options) {
+    return decodeSingle(new ToonDecoder(new ToonTokener(ToonSource.of(bytes), options)));
+  }
+
+  /** Decodifica un fichero UTF-8 proyectado en memoria, como {@link #open(Path)}. */
+  public static Object decode(Path path) {
+    return decode(path, ToonDecoderOptions.defaults());
+  }
+
+  public static Object decode(Path path, ToonDecoderOptions options) {
+    return decodeSingle(open(path, options));
+  }
+
+  public static Object decode(Path path, ToonProjection projection) {
+    return decode(path, ToonDecoderOptions.defaults(), projection);
+  }
+
+  public static Object decode(Path path, ToonDecoderOptions options, ToonProjection projection) {
+    return decodeSingle(
+        new ToonDecoder(new ToonTokener(ToonSource.of(path), options).project(projection)));
+  }
+
+  private static Object decodeSingle(ToonDecoder decoder) {
     Object value = decoder.nextValue();
     if (decoder.hasMoreValues()) {
       throw new ToonException("Se encontraron valores adicionales después del valor principal");
@@ -55,6 +197,90 @@ public final class ToonDecoder {
     return value;
   }
 
+  /**
+   * Recorre el documento entregando sus eventos a {@code handler} sin construir el árbol. Igual que
+   * {@link #decode(String)}, exige un único valor en la raíz.
+   */
+  public static void parse(String source, ToonHandler handler) {
+    parse(source, ToonDecoderOptions.defaults(), handler);
+  }
+
+  public static void parse(String source, ToonDecoderOptions options, ToonHandler handler) {
+    parseSingle(new ToonDecoder(source, options), handler);
+  }
+
+  /** Recorre el documento leyendo el {@link Reader} de forma incremental, con memoria constante. */
+  public static void parse(Reader reader, ToonHandler handler) {
+    parse(reader, ToonDecoderOptions.defaults(), handler);
+  }
+
+  public static void parse(Reader reader, ToonDecoderOptions options, ToonHandler handler) {
+    parseSingle(new ToonDecoder(reader, options), handler);
+  }
+
+  public static void parse(InputStream input, ToonHandler handler) {
+    parse(input, ToonDecoderOptions.defaults(), handler);
+  }
+
+  public static void parse(InputStream input, ToonDecoderOptions options, ToonHandler handler) {
+    parseSingle(new ToonDecoder(input, options), handler);
+  }
+
+  private static void parseSingle(ToonDecoder decoder, ToonHandler handler) {
+    decoder.tokener.parseValue(handler);
+    if (decoder.hasMoreValues()) {
+      throw new ToonException("Se encontraron valores adicionales después del valor principal");
+    }
+  }
+
+  /**
+   * Recorre fila a fila el array {@code key} del objeto raíz, o el array raíz si {@code key} es
+   * {@code null}. Cada elemento se analiza al pedirlo al stream, así que la memoria no depende del
+   * número de filas; las filas de un array tabular comparten su forma. La longitud declarada se
+   * comprueba al terminar y un elemento de más falla en cuanto aparece. Lo que sigue al array no se
+   * lee.
+   *
+   * <p>Los errores, incluida una clave inexistente o un elemento que no es un objeto, se lanzan
+   * como {@link ToonException} al consumir el stream.
+   */
+  public static Stream<ToonObject> streamRows(String source, String key) {
+    return streamRows(source, ToonDecoderOptions.defaults(), key);
+  }
+
+  public static Stream<ToonObject> streamRows(
+      String source, ToonDecoderOptions options, String key) {
+    return streamRows(new ToonReader(source, options), key);
+  }
+
+  /** Igual que {@link #streamRows(String, String)} leyendo de forma incremental; no lo cierra. */
+  public static Stream<ToonObject> streamRows(Reader reader, String key) {
+    return streamRows(reader, ToonDecoderOptions.defaults(), key);
+  }
+
+  public static Stream<ToonObject> streamRows(
+      Reader reader, ToonDecoderOptions options, String key) {
+    return streamRows(new ToonReader(reader, options), key);
+  }
+
+  public static Stream<ToonObject> streamRows(InputStream input, String key) {
+    return streamRows(input, ToonDecoderOptions.defaults(), key);
+  }
+
+  public static Stream<ToonObject> streamRows(
+      InputStream input, ToonDecoderOptions options, String key) {
+    return streamRows(
+        new InputStreamReader(Objects.requireNonNull(input, "input"), StandardCharsets.UTF_8),
+        options,
+        key);
+  }
+
+  private static Stream<ToonObject> streamRows(ToonReader reader, String key) {
+    Iterator<ToonObject> rows = new RowIterator(reader, key);
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+        false);
+  }
+
   public static ToonObject decodeObject(String source) {
     return decodeObject(source, ToonDecoderOptions.defaults());
   }
@@ -83,8 +309,22 @@ public final class ToonDecoder {
     return decodeToMap(source, ToonDecoderOptions.defaults());
   }
 
+  /**
+   * Decodifica directamente a {@link Map}/{@link List} (con los nulos como {@code null}), sin
+   * construir antes el árbol de {@link ToonObject}.
+   */
   public static Map<String, Object> decodeToMap(String source, ToonDecoderOptions options) {
-    return decodeObject(source, options).toMap();
+    ToonTokener tokener = new ToonTokener(source, options);
+    Object value = tokener.nextValue(ToonBuilders.MAPS);
+    if (tokener.hasMoreValues()) {
+      throw new ToonException("Se encontraron valores adicionales después del valor principal");
+    }
+    if (!(value instanceof Map<?, ?>)) {
+      throw new ToonException("El texto TOON no representa un objeto en la raíz");
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, Object> map = (Map<String, Object>) value;
+    return Collections.unmodifiableMap(map);
   }
 
   public static Object toJavaValue(Object value) {
@@ -100,71 +340,127 @@ public final class ToonDecoder {
     return value;
   }
 
+  /**
+   * Convierte {@code value} en un {@code JsonNode} de Jackson en un solo recorrido, sin copiar
+   * antes el árbol. Requiere {@code jackson-databind} en el classpath.
+   */
   public static Object toJsonNode(Object value) {
-    Object plain = toJavaValue(value);
-    return JacksonBridge.toJsonNode(plain);
+    return ToonJsonNodes.toJsonNode(value);
   }
 
-  private static Object wrap(Object value) {
-    if (value instanceof Map<?, ?> map) {
-      return new ToonObject(castMap(map));
-    }
-    if (value instanceof List<?> list) {
-      return new ToonArray(list);
+  /**
+   * Iterador de {@link #streamRows(String, String)}: localiza el array en la primera llamada y
+   * después lee un elemento por paso con {@link ToonReader}.
+   */
+  private static final class RowIterator implements Iterator<ToonObject> {
+    private final ToonReader reader;
+    private final String key;
+    private boolean started = false;
+    private boolean finished = false;
+    private ToonShape shape;
+    private int fieldCount;
+    private ToonObject next;
+
+    RowIterator(ToonReader reader, String key) {
+      this.reader = reader;
+      this.key = key;
     }
-    return value;
-  }
 
-  @SuppressWarnings("unchecked")
-  private static Map<String, ?> castMap(Map<?, ?> map) {
-    for (Map.Entry<?, ?> entry : map.entrySet()) {
-      if (!(entry.getKey() instanceof String)) {
-        throw new ToonException("Las claves deben ser String en objetos TOON: " + entry.getKey());
+    @Override
+    public boolean hasNext() {
+      if (next == null && !finished) {
+        if (!started) {
+          started = true;
+          open();
+        }
+        ToonReader.Token token = reader.nextToken();
+        if (token == ToonReader.Token.END_ARRAY) {
+          finished = true;
+        } else {
+          next = readRow(token);
+        }
       }
+      return next != null;
     }
-    return (Map<String, ?>) map;
-  }
-
-  private static final class JacksonBridge {
-    private static final Object MAPPER;
-    private static final Method VALUE_TO_TREE;
-
-    static {
-      Object mapper = null;
-      Method method = null;
-      try {
-        Class<?> mapperClass = Class.forName("com.fasterxml.jackson.databind.ObjectMapper");
-        mapper = mapperClass.getConstructor().newInstance();
-        method = mapperClass.getMethod("valueToTree", Object.class);
-      } catch (ClassNotFoundException | NoSuchMethodException ignored) {
-        mapper = null;
-        method = null;
-      } catch (InstantiationException
-          | IllegalAccessException
-          | InvocationTargetException
-          | RuntimeException ex) {
-        throw new ExceptionInInitializerError(ex);
+
+    @Override
+    public ToonObject next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
       }
-      MAPPER = mapper;
-      VALUE_TO_TREE = method;
+      ToonObject row = next;
+      next = null;
+      return row;
     }
 
-    private JacksonBridge() {}
-
-    static Object toJsonNode(Object value) {
-      if (MAPPER == null || VALUE_TO_TREE == null) {
-        throw new IllegalStateException(
-            "Jackson databind no está disponible en el classpath para convertir a JsonNode");
+    private void open() {
+      ToonReader.Token token = reader.nextToken();
+      if (key != null) {
+        if (token != ToonReader.Token.START_OBJECT) {
+          throw new ToonException("El texto TOON no representa un objeto en la raíz");
+        }
+        while ((token = reader.nextToken()) == ToonReader.Token.FIELD_NAME
+            && !key.equals(reader.getText())) {
+          reader.nextToken();
+          reader.skipChildren();
+        }
+        if (token != ToonReader.Token.FIELD_NAME) {
+          throw new ToonException("Clave no encontrada: " + key);
+        }
+        token = reader.nextToken();
       }
-      try {
-        return VALUE_TO_TREE.invoke(MAPPER, value);
-      } catch (IllegalAccessException ex) {
+      if (token != ToonReader.Token.START_ARRAY) {
         throw new ToonException(
-            "No se pudo acceder a ObjectMapper#valueToTree para generar JsonNode", ex);
-      } catch (InvocationTargetException ex) {
-        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
-        throw new ToonException(
-            "Falló la conversión del valor TOON a JsonNode mediante Jackson", cause);
+            key == null
+                ? "El texto TOON no representa un array en la raíz"
+                : "El valor de '" + key + "' no es un array");
+      }
+      List<String> fields = reader.declaredFields();
+      shape = fields.isEmpty() ? null : ToonShape.of(fields);
+      fieldCount = fields.size();
+    }
+
+    private ToonObject readRow(ToonReader.Token token) {
+      if (token != ToonReader.Token.START_OBJECT) {
+        throw new ToonException("Se esperaba un objeto como elemento pero se encontró " + token);
+      }
+      if (shape == null) {
+        return (ToonObject) readValue(token);
+      }
+      Object[] values = new Object[fieldCount];
+      for (int i = 0; i < fieldCount; i++) {
+        reader.nextToken();
+        values[i] = readValue(reader.nextToken());
+      }
+      reader.nextToken();
+      return ToonObject.ofRow(shape, values);
+    }
+
+    private Object readValue(ToonReader.Token token) {
+      switch (token) {
+        case START_OBJECT:
+          ToonObject object = new ToonObject();
+          while (reader.nextToken() == ToonReader.Token.FIELD_NAME) {
+            String name = reader.getText();
+            object.put(name, readValue(reader.nextToken()));
+          }
+          return object;
+        case START_ARRAY:
+          ToonArray array = ToonBuilders.TOON.createArray(reader.declaredLength());
+          while ((token = reader.nextToken()) != ToonReader.Token.END_ARRAY) {
+            array.add(readValue(token));
+          }
+          return array;
+        case VALUE_STRING:
+          return reader.getText();
+        case VALUE_NUMBER_INT:
+        case VALUE_NUMBER_FLOAT:
+          return reader.getNumberValue();
+        case VALUE_TRUE:
+        case VALUE_FALSE:
+          return reader.getBooleanValue();
+        default:
+          return null;
       }
     }
   }
@@ -1,15 +1,72 @@
 package org.toonjava;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Opciones de decodificación para controlar tolerancias de indentación y validaciones estrictas.
+ *
+ * <p>Con {@code columnar} los arrays tabulares se decodifican como {@link ToonTable}, que guarda
+ * cada columna en un array primitivo en lugar de un mapa por fila.
+ *
+ * <p>Con {@code parallel} las filas de los arrays tabulares que declaran al menos {@code
+ * parallelThreshold} elementos se interpretan por lotes en {@code parallelPool}, o en el {@link
+ * ForkJoinPool#commonPool() pool común} si es {@code null}. Al leer un texto completo, las entradas
+ * del objeto raíz y los elementos de la lista raíz también se reparten entre hilos cuando ocupan al
+ * menos {@code parallelThreshold} líneas y el pool tiene más de un hilo. El resultado y los errores
+ * son los mismos que en la decodificación secuencial.
+ *
+ * <p>Con {@code lazy}, al decodificar un texto completo como árbol de {@link ToonObject} sólo se
+ * indexa el rango de líneas de cada objeto o array anidado bajo una clave; su contenido se
+ * interpreta la primera vez que se accede a él, o de una vez con {@link ToonObject#validate()}.
+ * Los errores de un bloque anidado se lanzan entonces, con la misma línea y columna; los de un
+ * bloque que una clave repetida reemplaza, al decodificar. Las entradas leídas de un {@link
+ * java.io.Reader} se decodifican siempre completas, y en este modo el objeto o la lista raíz no se
+ * reparten entre hilos.
+ *
+ * <p>Con {@code symbolTableSize} mayor que cero, cada decodificador guarda en una tabla de hasta
+ * ese número de entradas las claves y las cadenas de hasta {@value ToonSymbols#MAX_LENGTH}
+ * caracteres que va leyendo, de modo que las repeticiones comparten una única instancia de {@link
+ * String}. Reduce la memoria retenida por los árboles con claves o valores repetidos; los hilos de
+ * la decodificación paralela y los bloques diferidos usan cada uno su propia tabla.
  */
-public record ToonDecoderOptions(int indent, boolean strict) {
+public record ToonDecoderOptions(
+    int indent,
+    boolean strict,
+    boolean columnar,
+    boolean parallel,
+    int parallelThreshold,
+    boolean lazy,
+    int symbolTableSize,
+    ForkJoinPool parallelPool) {
+  /** Filas o líneas a partir de las cuales se reparte el trabajo entre varios hilos. */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+
   public static final ToonDecoderOptions DEFAULT = new ToonDecoderOptions(2, true);
 
   public ToonDecoderOptions {
     if (indent <= 0) {
       throw new IllegalArgumentException("El tamaño de indentación debe ser mayor a cero");
     }
+    if (parallelThreshold <= 0) {
+      throw new IllegalArgumentException(
+          "El umbral de decodificación paralela debe ser mayor a cero");
+    }
+    if (symbolTableSize < 0) {
+      throw new IllegalArgumentException("El tamaño de la tabla de símbolos no puede ser negativo");
+    }
+  }
+
+  public ToonDecoderOptions(int indent, boolean strict) {
+    this(indent, strict, false);
+  }
+
+  public ToonDecoderOptions(int indent, boolean strict, boolean columnar) {
+    this(indent, strict, columnar, false, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  public ToonDecoderOptions(
+      int indent, boolean strict, boolean columnar, boolean parallel, int parallelThreshold) {
+    this(indent, strict, columnar, parallel, parallelThreshold, false, 0, null);
   }
 
   public static ToonDecoderOptions defaults() {
@@ -17,10 +74,48 @@ public record ToonDecoderOptions(int indent, boolean strict) {
   }
 
   public ToonDecoderOptions withIndent(int indent) {
-    return new ToonDecoderOptions(indent, strict);
+    return new ToonDecoderOptions(
+        indent, strict, columnar, parallel, parallelThreshold, lazy, symbolTableSize, parallelPool);
   }
 
   public ToonDecoderOptions withStrict(boolean strict) {
-    return new ToonDecoderOptions(indent, strict);
+    return new ToonDecoderOptions(
+        indent, strict, columnar, parallel, parallelThreshold, lazy, symbolTableSize, parallelPool);
+  }
+
+  public ToonDecoderOptions withColumnar(boolean columnar) {
+    return new ToonDecoderOptions(
+        indent, strict, columnar, parallel, parallelThreshold, lazy, symbolTableSize, parallelPool);
+  }
+
+  public ToonDecoderOptions withParallel(boolean parallel) {
+    return new ToonDecoderOptions(
+        indent, strict, columnar, parallel, parallelThreshold, lazy, symbolTableSize, parallelPool);
+  }
+
+  public ToonDecoderOptions withParallelThreshold(int parallelThreshold) {
+    return new ToonDecoderOptions(
+        indent, strict, columnar, parallel, parallelThreshold, lazy, symbolTableSize, parallelPool);
+  }
+
+  public ToonDecoderOptions withLazy(boolean lazy) {
+    return new ToonDecoderOptions(
+        indent, strict, columnar, parallel, parallelThreshold, lazy, symbolTableSize, parallelPool);
+  }
+
+  public ToonDecoderOptions withSymbolTableSize(int symbolTableSize) {
+    return new ToonDecoderOptions(
+        indent, strict, columnar, parallel, parallelThreshold, lazy, symbolTableSize, parallelPool);
+  }
+
+  /** Usa {@code parallelPool} para la decodificación paralela; {@code null} usa el pool común. */
+  public ToonDecoderOptions withParallelPool(ForkJoinPool parallelPool) {
+    return new ToonDecoderOptions(
+        indent, strict, columnar, parallel, parallelThreshold, lazy, symbolTableSize, parallelPool);
+  }
+
+  /** Pool en el que se reparte la decodificación paralela. */
+  ForkJoinPool pool() {
+    return parallelPool == null ? ForkJoinPool.commonPool() : parallelPool;
   }
 }
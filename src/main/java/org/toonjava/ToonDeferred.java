@@ -0,0 +1,31 @@
+package org.toonjava;
+
+/**
+ * Bloque anidado de un documento decodificado en modo {@code lazy} que todavía no se ha
+ * interpretado: las líneas {@code [start, end)} de {@code chars} que siguen a la línea número
+ * {@code lineNumber}. Contiene el valor de una clave cuyo objeto padre tiene indentación {@code
+ * indent}: un objeto anidado o, con {@code array}, un array cuyo encabezado es la primera línea del
+ * bloque.
+ *
+ * <p>{@link ToonObject} lo guarda en lugar del valor y lo sustituye por el resultado de {@link
+ * #parse()} la primera vez que se accede a él. Retiene el búfer del documento completo.
+ */
+record ToonDeferred(
+    char[] chars,
+    int start,
+    int end,
+    int lineNumber,
+    int indent,
+    boolean array,
+    ToonDecoderOptions options) {
+
+  /**
+   * Interpreta el bloque como {@link ToonObject} o {@link ToonArray}, cuyos bloques anidados se
+   * difieren a su vez.
+   *
+   * @throws ToonException con la misma línea y columna que la decodificación completa.
+   */
+  Object parse() {
+    return ToonTokener.parseDeferred(this);
+  }
+}
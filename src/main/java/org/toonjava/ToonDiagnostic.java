@@ -0,0 +1,15 @@
+package org.toonjava;
+
+/**
+ * Error encontrado por {@link ToonValidator}: el mismo mensaje que daría {@link ToonException} al
+ * decodificar, con la línea y la columna (desde 1) en las que se detectó, o {@code -1} si no se
+ * conocen.
+ */
+public record ToonDiagnostic(String message, int line, int column) {
+
+  /** Mensaje con la posición, en el mismo formato que {@link ToonException#getMessage()}. */
+  @Override
+  public String toString() {
+    return ToonException.formatMessage(message, line, column);
+  }
+}
@@ -0,0 +1,39 @@
+package org.toonjava;
+
+import java.io.OutputStream;
+
+/**
+ * Codifica valores Java como texto TOON con un {@link ToonWriter}. Las variantes que reciben un
+ * destino escriben directamente en él, sin construir el documento como {@link String}; el destino
+ * se vacía pero no se cierra.
+ */
+public final class ToonEncoder {
+  private ToonEncoder() {}
+
+  public static String encode(Object value) {
+    return encode(value, ToonEncoderOptions.defaults());
+  }
+
+  public static String encode(Object value, ToonEncoderOptions options) {
+    StringBuilder out = new StringBuilder();
+    new ToonWriter(out, options).write(value);
+    return out.toString();
+  }
+
+  public static void encode(Object value, Appendable out) {
+    encode(value, ToonEncoderOptions.defaults(), out);
+  }
+
+  public static void encode(Object value, ToonEncoderOptions options, Appendable out) {
+    new ToonWriter(out, options).write(value).flush();
+  }
+
+  /** Escribe el documento en UTF-8 sobre {@code out}. */
+  public static void encode(Object value, OutputStream out) {
+    encode(value, ToonEncoderOptions.defaults(), out);
+  }
+
+  public static void encode(Object value, ToonEncoderOptions options, OutputStream out) {
+    new ToonWriter(out, options).write(value).flush();
+  }
+}
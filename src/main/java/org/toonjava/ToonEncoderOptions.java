@@ -0,0 +1,36 @@
+package org.toonjava;
+
+/**
+ * Opciones de codificación: espacios por nivel de indentación, delimitador del documento ({@code
+ * ','}, {@code '\t'} o {@code '|'}) y marcador {@code #} opcional delante de las longitudes de los
+ * encabezados de array ({@code items[#3]:}).
+ */
+public record ToonEncoderOptions(int indent, char delimiter, boolean lengthMarker) {
+  public static final ToonEncoderOptions DEFAULT = new ToonEncoderOptions(2, ',', false);
+
+  public ToonEncoderOptions {
+    if (indent <= 0) {
+      throw new IllegalArgumentException("El tamaño de indentación debe ser mayor a cero");
+    }
+    if (delimiter != ',' && delimiter != '\t' && delimiter != '|') {
+      throw new IllegalArgumentException(
+          "Delimitador no soportado, se esperaba ',', '|' o tabulador: " + delimiter);
+    }
+  }
+
+  public static ToonEncoderOptions defaults() {
+    return DEFAULT;
+  }
+
+  public ToonEncoderOptions withIndent(int indent) {
+    return new ToonEncoderOptions(indent, delimiter, lengthMarker);
+  }
+
+  public ToonEncoderOptions withDelimiter(char delimiter) {
+    return new ToonEncoderOptions(indent, delimiter, lengthMarker);
+  }
+
+  public ToonEncoderOptions withLengthMarker(boolean lengthMarker) {
+    return new ToonEncoderOptions(indent, delimiter, lengthMarker);
+  }
+}
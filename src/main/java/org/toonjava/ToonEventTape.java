@@ -0,0 +1,117 @@
+package org.toonjava;
+
+import java.util.Arrays;
+import java.util.List;
+import org.toonjava.ToonLines.LineInfo;
+
+/**
+ * Registra los eventos de un {@link ToonTokener} para reproducirlos más tarde en otro {@link
+ * ToonHandler}. Permite interpretar trozos de un documento en paralelo y entregar después sus
+ * eventos en el orden del documento, junto con el resultado de cada trozo.
+ */
+final class ToonEventTape implements ToonHandler, ToonBuilders.OwnedRows {
+  private static final byte START_OBJECT = 0;
+  private static final byte KEY = 1;
+  private static final byte END_OBJECT = 2;
+  private static final byte START_ARRAY = 3;
+  private static final byte PRIMITIVE = 4;
+  private static final byte TABULAR_ROW = 5;
+  private static final byte END_ARRAY = 6;
+
+  private byte[] events = new byte[64];
+  private Object[] arguments = new Object[64];
+  private int size;
+
+  /** Elementos de la lista leídos por el trozo. */
+  int count;
+
+  /** Primera línea que el trozo no consumió, o {@code null} si llegó a su final. */
+  LineInfo rest;
+
+  /** Indica si tras {@link #rest} sólo quedan líneas en blanco hasta el final del trozo. */
+  boolean restBlank;
+
+  /** Error que interrumpió el trozo tras los eventos registrados, o {@code null}. */
+  RuntimeException failure;
+
+  @Override
+  public void startObject() {
+    record(START_OBJECT, null);
+  }
+
+  @Override
+  public void key(String key) {
+    record(KEY, key);
+  }
+
+  @Override
+  public void endObject() {
+    record(END_OBJECT, null);
+  }
+
+  @Override
+  public void startArray(int length, char delimiter, List<String> fields) {
+    record(START_ARRAY, new ArrayStart(length, delimiter, fields));
+  }
+
+  @Override
+  public void primitive(Object value) {
+    record(PRIMITIVE, value);
+  }
+
+  @Override
+  public void tabularRow(Object[] values) {
+    record(TABULAR_ROW, values.clone());
+  }
+
+  @Override
+  public void ownedRow(Object[] values) {
+    record(TABULAR_ROW, values);
+  }
+
+  @Override
+  public void endArray() {
+    record(END_ARRAY, null);
+  }
+
+  /**
+   * Entrega a {@code handler} los eventos registrados, en el mismo orden. Las filas tabulares pasan
+   * a ser suyas si implementa {@link ToonBuilders.OwnedRows}, así que sólo se reproduce una vez.
+   */
+  void replay(ToonHandler handler) {
+    ToonBuilders.OwnedRows owner = handler instanceof ToonBuilders.OwnedRows rows ? rows : null;
+    for (int i = 0; i < size; i++) {
+      Object argument = arguments[i];
+      switch (events[i]) {
+        case START_OBJECT -> handler.startObject();
+        case KEY -> handler.key((String) argument);
+        case END_OBJECT -> handler.endObject();
+        case START_ARRAY -> {
+          ArrayStart start = (ArrayStart) argument;
+          handler.startArray(start.length(), start.delimiter(), start.fields());
+        }
+        case PRIMITIVE -> handler.primitive(argument);
+        case TABULAR_ROW -> {
+          if (owner != null) {
+            owner.ownedRow((Object[]) argument);
+          } else {
+            handler.tabularRow((Object[]) argument);
+          }
+        }
+        default -> handler.endArray();
+      }
+    }
+  }
+
+  private void record(byte event, Object argument) {
+    if (size == events.length) {
+      events = Arrays.copyOf(events, size * 2);
+      arguments = Arrays.copyOf(arguments, size * 2);
+    }
+    events[size] = event;
+    arguments[size] = argument;
+    size++;
+  }
+
+  private record ArrayStart(int length, char delimiter, List<String> fields) {}
+}
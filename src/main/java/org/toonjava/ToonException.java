@@ -2,6 +2,7 @@ package org.toonjava;
 
 /** Excepción unchecked para errores de parseo y validación en TOON. */
 public class ToonException extends RuntimeException {
+  private final String reason;
   private final int line;
   private final int column;
 
@@ -19,6 +20,7 @@ public class ToonException extends RuntimeException {
 
   public ToonException(String message, int line, int column, Throwable cause) {
     super(formatMessage(message, line, column), cause);
+    this.reason = message;
     this.line = line;
     this.column = column;
   }
@@ -31,7 +33,12 @@ public class ToonException extends RuntimeException {
     return column;
   }
 
-  private static String formatMessage(String message, int line, int column) {
+  /** Mensaje sin la posición que añade {@link #getMessage()}. */
+  String reason() {
+    return reason;
+  }
+
+  static String formatMessage(String message, int line, int column) {
     if (line < 0) {
       return message;
     }
@@ -0,0 +1,53 @@
+package org.toonjava;
+
+import java.util.List;
+
+/**
+ * Recibe los eventos de {@link ToonTokener} a medida que reconoce el documento, sin construir
+ * ningún árbol. Sirve para transformar documentos arbitrariamente grandes con memoria constante:
+ * el tokener sólo retiene la línea actual y una pila proporcional a la profundidad de anidamiento.
+ *
+ * <p>Un valor es un primitivo ({@link #primitive(Object)}), un objeto ({@link #startObject()},
+ * pares {@link #key(String)} + valor y {@link #endObject()}) o un array ({@link #startArray(int,
+ * char, List)}, sus elementos y {@link #endArray()}). Los elementos de un array tabular se entregan
+ * como {@link #tabularRow(Object[])}, una llamada por fila. Los primitivos llegan ya interpretados
+ * ({@code null}, {@link Boolean}, {@link String}, {@link Integer}, {@link Long} o {@link Double}).
+ *
+ * <p>Todos los métodos tienen una implementación vacía, de modo que basta con sobrescribir los
+ * eventos de interés. Una {@link ToonException} lanzada por el documento interrumpe el recorrido
+ * tras los eventos ya entregados.
+ */
+public interface ToonHandler {
+
+  /** Comienza un objeto; le siguen sus pares clave/valor y {@link #endObject()}. */
+  default void startObject() {}
+
+  /** Clave de la siguiente entrada del objeto actual; le sigue exactamente un valor. */
+  default void key(String key) {}
+
+  /** Termina el objeto abierto más reciente. */
+  default void endObject() {}
+
+  /**
+   * Comienza un array con los datos de su encabezado, útiles para reservar memoria de antemano.
+   *
+   * @param length longitud declarada; el tokener comprueba al final que coincide con los elementos
+   *     leídos.
+   * @param delimiter delimitador activo ({@code ','}, {@code '|'} o {@code '\t'}).
+   * @param fields campos de un array tabular, o una lista vacía si no lo es.
+   */
+  default void startArray(int length, char delimiter, List<String> fields) {}
+
+  /** Valor primitivo: la raíz, el valor de una clave o un elemento de array. */
+  default void primitive(Object value) {}
+
+  /**
+   * Fila de un array tabular, alineada con los {@code fields} de {@link #startArray(int, char,
+   * List)}. El array se reutiliza entre filas: sólo es válido durante la llamada y debe copiarse si
+   * se quiere conservar.
+   */
+  default void tabularRow(Object[] values) {}
+
+  /** Termina el array abierto más reciente. */
+  default void endArray() {}
+}
@@ -0,0 +1,200 @@
+package org.toonjava;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encabezado de array (SPEC §6): clave opcional, longitud declarada, delimitador activo y campos
+ * tabulares. El análisis se hace en una sola pasada sobre el texto de la línea, sin generar tokens
+ * intermedios; la gramática {@code Toon.g4} se conserva en las pruebas como oráculo de conformidad.
+ */
+final class ToonHeader {
+  final String key;
+  final int length;
+  final char delimiter;
+  final List<String> fields;
+
+  ToonHeader(String key, int length, char delimiter, List<String> fields) {
+    this.key = key;
+    this.length = length;
+    this.delimiter = delimiter;
+    this.fields = fields;
+  }
+
+  boolean isTabular() {
+    return !fields.isEmpty();
+  }
+
+  /**
+   * Analiza {@code chars[start, end)}, que debe contener el encabezado completo terminado en {@code
+   * :}. Igual que la gramática, admite espacios entre los elementos del encabezado. {@code
+   * lineStart} es el índice en que empieza la línea y sólo se usa para situar los errores.
+   *
+   * @throws ToonException si el texto no es un encabezado válido.
+   */
+  static ToonHeader parse(char[] chars, int start, int end, int line, int lineStart) {
+    Scanner scanner = new Scanner(chars, start, end, line, lineStart);
+    return scanner.header();
+  }
+
+  private static final class Scanner {
+    private final char[] chars;
+    private final int start;
+    private final int end;
+    private final int line;
+    private final int lineStart;
+    private int pos;
+
+    Scanner(char[] chars, int start, int end, int line, int lineStart) {
+      this.chars = chars;
+      this.start = start;
+      this.end = end;
+      this.line = line;
+      this.lineStart = lineStart;
+      this.pos = start;
+    }
+
+    ToonHeader header() {
+      skipSpaces();
+      String key = null;
+      if (pos < end && chars[pos] != '[') {
+        key = key();
+        skipSpaces();
+      }
+      expect('[');
+      skipSpaces();
+      if (peek() == '#') {
+        pos++;
+        skipSpaces();
+      }
+      int length = length();
+      skipSpaces();
+      char delimiter = ',';
+      char ch = peek();
+      if (ch == '|' || ch == '\t') {
+        delimiter = ch;
+        pos++;
+        skipSpaces();
+      }
+      expect(']');
+      skipSpaces();
+      List<String> fields = List.of();
+      if (peek() == '{') {
+        pos++;
+        fields = fields();
+        skipSpaces();
+      }
+      expect(':');
+      skipSpaces();
+      if (pos != end) {
+        throw invalid(null);
+      }
+      return new ToonHeader(key, length, delimiter, fields);
+    }
+
+    private List<String> fields() {
+      List<String> fields = new ArrayList<>();
+      while (true) {
+        skipSpaces();
+        fields.add(key());
+        skipSpaces();
+        char ch = peek();
+        if (ch == '}') {
+          pos++;
+          return List.copyOf(fields);
+        }
+        // Como en Toon.g4, los nombres de campo se separan con cualquiera de los delimitadores.
+        if (ch != ',' && ch != '|' && ch != '\t') {
+          throw invalid(null);
+        }
+        pos++;
+      }
+    }
+
+    private String key() {
+      char ch = peek();
+      if (ch == '"') {
+        return quotedKey();
+      }
+      if (!isKeyStart(ch)) {
+        throw invalid(null);
+      }
+      int keyStart = pos++;
+      while (pos < end && isKeyPart(chars[pos])) {
+        pos++;
+      }
+      return new String(chars, keyStart, pos - keyStart);
+    }
+
+    private String quotedKey() {
+      int open = pos++;
+      while (pos < end) {
+        char ch = chars[pos];
+        if (ch == '\\') {
+          pos += 2;
+          continue;
+        }
+        pos++;
+        if (ch == '"') {
+          try {
+            return ToonPrimitives.unescape(chars, open, pos, line, lineStart);
+          } catch (ToonException ex) {
+            throw invalid(ex);
+          }
+        }
+      }
+      throw invalid(null);
+    }
+
+    private int length() {
+      int digitsStart = pos;
+      long value = 0;
+      while (pos < end) {
+        char ch = chars[pos];
+        if (ch < '0' || ch > '9') {
+          break;
+        }
+        value = value * 10 + (ch - '0');
+        if (value > Integer.MAX_VALUE) {
+          throw invalid(null);
+        }
+        pos++;
+      }
+      if (pos == digitsStart) {
+        throw invalid(null);
+      }
+      return (int) value;
+    }
+
+    private void expect(char expected) {
+      if (peek() != expected) {
+        throw invalid(null);
+      }
+      pos++;
+    }
+
+    private char peek() {
+      return pos < end ? chars[pos] : '\0';
+    }
+
+    private void skipSpaces() {
+      while (pos < end && chars[pos] == ' ') {
+        pos++;
+      }
+    }
+
+    private ToonException invalid(Throwable cause) {
+      String headerText = new String(chars, start, end - start).trim();
+      return new ToonException(
+          "Encabezado inválido: " + headerText, line, start - lineStart + 1, cause);
+    }
+
+    private static boolean isKeyStart(char ch) {
+      return (ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z') || ch == '_';
+    }
+
+    private static boolean isKeyPart(char ch) {
+      return isKeyStart(ch) || (ch >= '0' && ch <= '9') || ch == '.';
+    }
+  }
+}
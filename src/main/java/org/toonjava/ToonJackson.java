@@ -0,0 +1,290 @@
+package org.toonjava;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Puente en streaming con Jackson: traduce TOON a JSON entregando los eventos del tokener a un
+ * {@link JsonGenerator}, y JSON a TOON leyendo un {@link JsonParser} con un {@link ToonWriter}.
+ * Sólo necesita {@code jackson-core} en el classpath al usarse; la librería no depende de él.
+ *
+ * <p>Los objetos se copian campo a campo sin construir ningún árbol. Los arrays JSON sí se leen
+ * enteros antes de escribirlos, porque su encabezado TOON declara la longitud y la forma (inline,
+ * tabular o lista) depende de todos sus elementos. Ni el generador ni el parser se cierran.
+ */
+public final class ToonJackson {
+  private ToonJackson() {}
+
+  public static void toJson(String source, JsonGenerator generator) {
+    toJson(source, ToonDecoderOptions.defaults(), generator);
+  }
+
+  public static void toJson(String source, ToonDecoderOptions options, JsonGenerator generator) {
+    ToonDecoder.parse(source, options, new GeneratorHandler(generator));
+    flush(generator);
+  }
+
+  /** Traduce el documento leyendo el {@link Reader} de forma incremental. */
+  public static void toJson(Reader reader, JsonGenerator generator) {
+    toJson(reader, ToonDecoderOptions.defaults(), generator);
+  }
+
+  public static void toJson(Reader reader, ToonDecoderOptions options, JsonGenerator generator) {
+    ToonDecoder.parse(reader, options, new GeneratorHandler(generator));
+    flush(generator);
+  }
+
+  public static void toJson(InputStream input, JsonGenerator generator) {
+    toJson(input, ToonDecoderOptions.defaults(), generator);
+  }
+
+  public static void toJson(
+      InputStream input, ToonDecoderOptions options, JsonGenerator generator) {
+    ToonDecoder.parse(input, options, new GeneratorHandler(generator));
+    flush(generator);
+  }
+
+  /**
+   * Escribe como TOON el siguiente valor de {@code parser}, o el actual si el parser ya está
+   * situado sobre un token.
+   */
+  public static void toToon(JsonParser parser, Appendable out) {
+    toToon(parser, ToonEncoderOptions.defaults(), out);
+  }
+
+  public static void toToon(JsonParser parser, ToonEncoderOptions options, Appendable out) {
+    write(parser, new ToonWriter(out, options));
+  }
+
+  /** Escribe el documento en UTF-8 sobre {@code out}. */
+  public static void toToon(JsonParser parser, OutputStream out) {
+    toToon(parser, ToonEncoderOptions.defaults(), out);
+  }
+
+  public static void toToon(JsonParser parser, ToonEncoderOptions options, OutputStream out) {
+    write(parser, new ToonWriter(out, options));
+  }
+
+  private static void write(JsonParser parser, ToonWriter writer) {
+    Objects.requireNonNull(parser, "parser");
+    JsonToken token = parser.hasCurrentToken() ? parser.currentToken() : next(parser);
+    if (token == null) {
+      throw new ToonException("La entrada JSON no contiene ningún valor");
+    }
+    writer.startDocument();
+    if (token == JsonToken.START_OBJECT) {
+      writeFields(parser, writer, 0);
+    } else {
+      writer.writeRoot(readValue(parser, token));
+    }
+    writer.endDocument();
+    writer.flush();
+  }
+
+  /** Copia los campos del objeto en curso; los objetos anidados se recorren sin materializarlos. */
+  private static void writeFields(JsonParser parser, ToonWriter writer, int depth) {
+    while (next(parser) == JsonToken.FIELD_NAME) {
+      String key = text(parser);
+      JsonToken token = next(parser);
+      if (token == JsonToken.START_OBJECT) {
+        writer.writeObjectKey(key, depth);
+        writeFields(parser, writer, depth + 1);
+      } else {
+        writer.writeField(key, readValue(parser, token), depth);
+      }
+    }
+  }
+
+  /** Lee el valor que empieza en {@code token} como {@link Map}, {@link List} o primitivo. */
+  private static Object readValue(JsonParser parser, JsonToken token) {
+    switch (token) {
+      case START_OBJECT:
+        Map<String, Object> object = new LinkedHashMap<>();
+        while (next(parser) == JsonToken.FIELD_NAME) {
+          String key = text(parser);
+          object.put(key, readValue(parser, next(parser)));
+        }
+        return object;
+      case START_ARRAY:
+        List<Object> array = new ArrayList<>();
+        while ((token = next(parser)) != JsonToken.END_ARRAY) {
+          array.add(readValue(parser, token));
+        }
+        return array;
+      case VALUE_STRING:
+        return text(parser);
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        try {
+          return parser.getNumberValue();
+        } catch (IOException ex) {
+          throw new ToonException("No se pudo leer la entrada JSON", ex);
+        }
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        throw new ToonException("Token JSON inesperado: " + token);
+    }
+  }
+
+  private static JsonToken next(JsonParser parser) {
+    try {
+      return parser.nextToken();
+    } catch (IOException ex) {
+      throw new ToonException("No se pudo leer la entrada JSON", ex);
+    }
+  }
+
+  private static String text(JsonParser parser) {
+    try {
+      return parser.getText();
+    } catch (IOException ex) {
+      throw new ToonException("No se pudo leer la entrada JSON", ex);
+    }
+  }
+
+  private static void flush(JsonGenerator generator) {
+    try {
+      generator.flush();
+    } catch (IOException ex) {
+      throw new ToonException("No se pudo escribir la salida JSON", ex);
+    }
+  }
+
+  /**
+   * Traduce cada evento a la llamada equivalente del generador. Las filas tabulares se escriben
+   * como objetos con los campos del encabezado del array que las contiene.
+   */
+  private static final class GeneratorHandler implements ToonHandler {
+    private final JsonGenerator generator;
+    private List<String>[] fields = newFieldStack(8);
+    private int depth;
+
+    GeneratorHandler(JsonGenerator generator) {
+      this.generator = Objects.requireNonNull(generator, "generator");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String>[] newFieldStack(int size) {
+      return (List<String>[]) new List<?>[size];
+    }
+
+    @Override
+    public void startObject() {
+      try {
+        generator.writeStartObject();
+      } catch (IOException ex) {
+        throw failure(ex);
+      }
+    }
+
+    @Override
+    public void key(String key) {
+      try {
+        generator.writeFieldName(key);
+      } catch (IOException ex) {
+        throw failure(ex);
+      }
+    }
+
+    @Override
+    public void endObject() {
+      try {
+        generator.writeEndObject();
+      } catch (IOException ex) {
+        throw failure(ex);
+      }
+    }
+
+    @Override
+    public void startArray(int length, char delimiter, List<String> fields) {
+      if (depth == this.fields.length) {
+        List<String>[] grown = newFieldStack(depth * 2);
+        System.arraycopy(this.fields, 0, grown, 0, depth);
+        this.fields = grown;
+      }
+      this.fields[depth++] = fields;
+      try {
+        generator.writeStartArray();
+      } catch (IOException ex) {
+        throw failure(ex);
+      }
+    }
+
+    @Override
+    public void primitive(Object value) {
+      try {
+        writeScalar(value);
+      } catch (IOException ex) {
+        throw failure(ex);
+      }
+    }
+
+    @Override
+    public void tabularRow(Object[] values) {
+      List<String> names = fields[depth - 1];
+      try {
+        generator.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+          generator.writeFieldName(names.get(i));
+          writeScalar(values[i]);
+        }
+        generator.writeEndObject();
+      } catch (IOException ex) {
+        throw failure(ex);
+      }
+    }
+
+    @Override
+    public void endArray() {
+      fields[--depth] = null;
+      try {
+        generator.writeEndArray();
+      } catch (IOException ex) {
+        throw failure(ex);
+      }
+    }
+
+    private void writeScalar(Object value) throws IOException {
+      if (value == null) {
+        generator.writeNull();
+      } else if (value instanceof String text) {
+        generator.writeString(text);
+      } else if (value instanceof Integer number) {
+        generator.writeNumber(number);
+      } else if (value instanceof Long number) {
+        generator.writeNumber(number);
+      } else if (value instanceof Double number) {
+        generator.writeNumber(number);
+      } else if (value instanceof Boolean bool) {
+        generator.writeBoolean(bool);
+      } else if (value instanceof BigDecimal number) {
+        generator.writeNumber(number);
+      } else if (value instanceof BigInteger number) {
+        generator.writeNumber(number);
+      } else {
+        generator.writeString(value.toString());
+      }
+    }
+
+    private static ToonException failure(IOException ex) {
+      return new ToonException("No se pudo escribir la salida JSON", ex);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package org.toonjava;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Construye un {@code JsonNode} de Jackson recorriendo una sola vez un árbol de {@link ToonObject}
+ * y {@link ToonArray} (o de {@link Map} y {@link Iterable}), sin copias intermedias. Los nodos se
+ * crean con el {@code JsonNodeFactory} de un {@code ObjectMapper} por defecto mediante {@link
+ * MethodHandle}s resueltos una única vez, de modo que {@code jackson-databind} sigue siendo
+ * opcional. Los valores que no son contenedores ni {@link String}, {@link Boolean}, {@link
+ * Integer}, {@link Long} o {@link Double} se delegan en {@code ObjectMapper#valueToTree}.
+ */
+final class ToonJsonNodes {
+  private static final Handles HANDLES = Handles.load();
+
+  private ToonJsonNodes() {}
+
+  static Object toJsonNode(Object value) {
+    if (HANDLES == null) {
+      throw new IllegalStateException(
+          "Jackson databind no está disponible en el classpath para convertir a JsonNode");
+    }
+    try {
+      return convert(HANDLES, value);
+    } catch (ToonException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new ToonException("Falló la conversión del valor TOON a JsonNode mediante Jackson", ex);
+    }
+  }
+
+  private static Object convert(Handles handles, Object value) throws Throwable {
+    if (value == null || value == ToonNull.INSTANCE) {
+      return (Object) handles.nullNode().invokeExact();
+    }
+    if (value instanceof String text) {
+      return (Object) handles.textNode().invokeExact(text);
+    }
+    if (value instanceof Integer number) {
+      return (Object) handles.intNode().invokeExact(number.intValue());
+    }
+    if (value instanceof Long number) {
+      return (Object) handles.longNode().invokeExact(number.longValue());
+    }
+    if (value instanceof Double number) {
+      return (Object) handles.doubleNode().invokeExact(number.doubleValue());
+    }
+    if (value instanceof Boolean bool) {
+      return (Object) handles.booleanNode().invokeExact(bool.booleanValue());
+    }
+    if (value instanceof ToonObject object) {
+      return convertObject(handles, object.canonicalValues());
+    }
+    if (value instanceof ToonArray array) {
+      return convertArray(handles, array.canonicalValues());
+    }
+    if (value instanceof Map<?, ?> map) {
+      return convertObject(handles, map);
+    }
+    if (value instanceof Iterable<?> iterable) {
+      return convertArray(handles, iterable);
+    }
+    return (Object) handles.valueToTree().invokeExact(value);
+  }
+
+  private static Object convertObject(Handles handles, Map<?, ?> map) throws Throwable {
+    Object node = (Object) handles.objectNode().invokeExact();
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      String key = String.valueOf(entry.getKey());
+      Object child = convert(handles, entry.getValue());
+      Object ignored = (Object) handles.set().invokeExact(node, key, child);
+    }
+    return node;
+  }
+
+  private static Object convertArray(Handles handles, Iterable<?> items) throws Throwable {
+    int size = items instanceof Collection<?> collection ? collection.size() : 0;
+    Object node = (Object) handles.arrayNode().invokeExact(size);
+    for (Object item : items) {
+      Object ignored = (Object) handles.add().invokeExact(node, convert(handles, item));
+    }
+    return node;
+  }
+
+  /**
+   * Métodos de Jackson adaptados a tipos {@link Object} para invocarlos con {@code invokeExact};
+   * los de la factoría y {@code valueToTree} ya llevan enlazado su receptor.
+   */
+  private record Handles(
+      MethodHandle nullNode,
+      MethodHandle textNode,
+      MethodHandle intNode,
+      MethodHandle longNode,
+      MethodHandle doubleNode,
+      MethodHandle booleanNode,
+      MethodHandle objectNode,
+      MethodHandle arrayNode,
+      MethodHandle set,
+      MethodHandle add,
+      MethodHandle valueToTree) {
+
+    /** Resuelve los métodos, o devuelve {@code null} si Jackson databind no está disponible. */
+    static Handles load() {
+      try {
+        Class<?> mapperClass = Class.forName("com.fasterxml.jackson.databind.ObjectMapper");
+        Class<?> nodeClass = Class.forName("com.fasterxml.jackson.databind.JsonNode");
+        Class<?> objectClass = Class.forName("com.fasterxml.jackson.databind.node.ObjectNode");
+        Class<?> arrayClass = Class.forName("com.fasterxml.jackson.databind.node.ArrayNode");
+        Object mapper = mapperClass.getConstructor().newInstance();
+        Object factory = mapperClass.getMethod("getNodeFactory").invoke(mapper);
+        Class<?> factoryClass = factory.getClass();
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        return new Handles(
+            bound(lookup, factory, factoryClass, "nullNode"),
+            bound(lookup, factory, factoryClass, "textNode", String.class),
+            bound(lookup, factory, factoryClass, "numberNode", int.class),
+            bound(lookup, factory, factoryClass, "numberNode", long.class),
+            bound(lookup, factory, factoryClass, "numberNode", double.class),
+            bound(lookup, factory, factoryClass, "booleanNode", boolean.class),
+            bound(lookup, factory, factoryClass, "objectNode"),
+            bound(lookup, factory, factoryClass, "arrayNode", int.class),
+            generic(lookup.unreflect(objectClass.getMethod("set", String.class, nodeClass))),
+            generic(lookup.unreflect(arrayClass.getMethod("add", nodeClass))),
+            bound(lookup, mapper, mapperClass, "valueToTree", Object.class));
+      } catch (ClassNotFoundException ignored) {
+        return null;
+      } catch (ReflectiveOperationException | RuntimeException ex) {
+        throw new ExceptionInInitializerError(ex);
+      }
+    }
+
+    private static MethodHandle bound(
+        MethodHandles.Lookup lookup,
+        Object receiver,
+        Class<?> type,
+        String name,
+        Class<?>... parameters)
+        throws ReflectiveOperationException {
+      return generic(lookup.unreflect(type.getMethod(name, parameters)).bindTo(receiver));
+    }
+
+    /** Cambia por {@link Object} el resultado y los parámetros de referencia, salvo los String. */
+    private static MethodHandle generic(MethodHandle handle) {
+      MethodType type = handle.type();
+      for (int i = 0; i < type.parameterCount(); i++) {
+        if (!type.parameterType(i).isPrimitive() && type.parameterType(i) != String.class) {
+          type = type.changeParameterType(i, Object.class);
+        }
+      }
+      return handle.asType(type.changeReturnType(Object.class));
+    }
+  }
+}
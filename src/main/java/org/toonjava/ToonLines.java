@@ -0,0 +1,576 @@
+package org.toonjava;
+
+/**
+ * Cursor de líneas sobre un {@link ToonSource} con una única línea de anticipación, junto con el
+ * análisis léxico que comparten {@link ToonTokener} y {@link ToonReader}: encabezados, pares
+ * clave:valor, celdas delimitadas y primitivos. Todo trabaja con índices sobre el búfer de la
+ * fuente, que sólo es válido para la línea actual hasta la siguiente llamada a {@link #peek()}
+ * tras {@link #consume()}.
+ */
+final class ToonLines {
+  private final ToonSource source;
+  private final ToonDecoderOptions options;
+  private final int indentSize;
+  private final ToonPrimitives.NumberScan numbers = new ToonPrimitives.NumberScan();
+  private final ToonSymbols symbols;
+
+  /**
+   * Destino de los errores al validar con {@link ToonValidator}, o {@code null} si los errores se
+   * lanzan como {@link ToonException}.
+   */
+  private ToonValidator.Report report;
+
+  private char[] chars;
+  private LineInfo current;
+  private int lineNumber = 0;
+  private boolean exhausted = false;
+
+  ToonLines(ToonSource source, ToonDecoderOptions options) {
+    this.source = source;
+    this.options = options;
+    this.indentSize = options.indent();
+    this.symbols =
+        options.symbolTableSize() > 0 ? new ToonSymbols(options.symbolTableSize()) : null;
+  }
+
+  /**
+   * Analizador léxico sin fuente sobre un búfer fijo, para interpretar desde otro hilo rangos de
+   * líneas ya leídas; no admite {@link #peek()}.
+   */
+  static ToonLines over(char[] chars, ToonDecoderOptions options) {
+    ToonLines lexer = new ToonLines(null, options);
+    lexer.chars = chars;
+    lexer.exhausted = true;
+    return lexer;
+  }
+
+  /**
+   * Registra los errores en {@code report} en lugar de lanzarlos: los que no impiden seguir leyendo
+   * (indentación, anchura de las filas) se anotan y la lectura continúa, y el resto se anotan y se
+   * señalan con {@link ToonValidator#ABORT}.
+   */
+  void diagnose(ToonValidator.Report report) {
+    this.report = report;
+  }
+
+  /** Indica si los errores se registran para {@link ToonValidator} en lugar de lanzarse. */
+  boolean diagnosing() {
+    return report != null;
+  }
+
+  /**
+   * Anota un error tras el cual la lectura puede continuar; si no se está validando, lo lanza como
+   * {@link ToonException}.
+   */
+  void report(String message, int line, int column) {
+    if (report == null) {
+      throw error(message, line, column);
+    }
+    report.add(message, line, column);
+    if (report.isFull()) {
+      throw ToonValidator.ABORT;
+    }
+  }
+
+  /** Como {@link #report(String, int, int)}, situado en el índice {@code offset} del búfer. */
+  void report(String message, LineInfo line, int offset) {
+    report(message, line.lineNumber, offset - line.lineStart + 1);
+  }
+
+  /**
+   * Error que impide seguir leyendo el valor en curso: la excepción que debe lanzarse o, al
+   * validar, {@link ToonValidator#ABORT} tras anotarlo.
+   */
+  RuntimeException fail(String message, LineInfo line, int offset) {
+    if (report == null) {
+      return error(message, line, offset);
+    }
+    report.addFailure(message, line.lineNumber, offset - line.lineStart + 1);
+    return ToonValidator.ABORT;
+  }
+
+  /** Indica si los rangos de las líneas ya consumidas siguen siendo válidos en {@link #chars()}. */
+  boolean retainsInput() {
+    return source != null && source.retainsInput();
+  }
+
+  /** Índice siguiente al último carácter de la entrada en {@link #chars()}. */
+  int limit() {
+    return source.limit();
+  }
+
+  /**
+   * Continúa la lectura en la línea que empieza en {@code position}, tras la línea número {@code
+   * lineNumber}; con {@code end} la entrada se da por agotada. Sólo para fuentes que {@link
+   * #retainsInput()}.
+   */
+  void resume(int position, int lineNumber, boolean end) {
+    if (!end) {
+      source.seek(position);
+    }
+    this.chars = source.buffer();
+    this.current = null;
+    this.lineNumber = lineNumber;
+    this.exhausted = end;
+  }
+
+  /**
+   * Índice donde empieza la línea siguiente a la última consumida, o {@code -1} si no quedan
+   * líneas. Sólo para fuentes que {@link #retainsInput()} y sin ninguna línea pendiente de {@link
+   * #peek()}.
+   */
+  int nextLineStart() {
+    return source.nextLineStart();
+  }
+
+  /**
+   * Salta sin interpretarlas las líneas que siguen a la última consumida mientras estén en blanco o
+   * tengan más de {@code indent} espacios de indentación, es decir, el bloque anidado bajo una
+   * línea con esa indentación. El bloque termina en su última línea no vacía o, si la siguen
+   * líneas en blanco con más de {@code indent} espacios, en la última de ellas anterior a una con
+   * menos: un array abierto al final del bloque las leería como suyas, y en modo estricto son un
+   * error. Las líneas en blanco restantes quedan para quien lee el objeto padre. Sólo para fuentes
+   * que {@link #retainsInput()} y sin ninguna línea pendiente de {@link #peek()}.
+   *
+   * @return índice siguiente a la última línea del bloque, sin los espacios finales si no está en
+   *     blanco, o {@code -1} si no tiene ninguna línea no vacía; en ese caso no se avanza.
+   */
+  int skipIndentedBlock(int indent) {
+    int position = source.nextLineStart();
+    if (position < 0) {
+      return -1;
+    }
+    char[] buffer = source.buffer();
+    int limit = source.limit();
+    int number = lineNumber;
+    int blockEnd = -1;
+    int blockLine = 0;
+    int resumeAt = -1;
+    boolean trailing = false;
+    while (true) {
+      int lineEnd = position;
+      while (lineEnd < limit && buffer[lineEnd] != '\n' && buffer[lineEnd] != '\r') {
+        lineEnd++;
+      }
+      int next = -1;
+      if (lineEnd < limit) {
+        next =
+            buffer[lineEnd] == '\r' && lineEnd + 1 < limit && buffer[lineEnd + 1] == '\n'
+                ? lineEnd + 2
+                : lineEnd + 1;
+      }
+      number++;
+      int content = position;
+      int spaces = 0;
+      boolean leading = true;
+      while (content < lineEnd && buffer[content] <= ' ') {
+        // Como en countIndent, los tabuladores no cuentan y cualquier otro espacio la termina.
+        leading &= buffer[content] == ' ' || buffer[content] == '\t';
+        if (leading && buffer[content] == ' ') {
+          spaces++;
+        }
+        content++;
+      }
+      if (content < lineEnd) {
+        if (spaces <= indent) {
+          break;
+        }
+        blockEnd = lineEnd;
+        while (buffer[blockEnd - 1] <= ' ') {
+          blockEnd--;
+        }
+        blockLine = number;
+        resumeAt = next;
+        trailing = true;
+      } else if (trailing && spaces > indent) {
+        blockEnd = lineEnd;
+        blockLine = number;
+        resumeAt = next;
+      } else {
+        trailing = false;
+      }
+      if (next < 0) {
+        break;
+      }
+      position = next;
+    }
+    if (blockEnd >= 0) {
+      resume(resumeAt < 0 ? limit : resumeAt, blockLine, resumeAt < 0);
+    }
+    return blockEnd;
+  }
+
+  /** Búfer que contiene la línea devuelta por el último {@link #peek()}. */
+  char[] chars() {
+    return chars;
+  }
+
+  /** Número de la última línea leída de la fuente. */
+  int lineNumber() {
+    return lineNumber;
+  }
+
+  void skipBlank() {
+    LineInfo line;
+    while ((line = peek()) != null && line.isBlank()) {
+      consume();
+    }
+  }
+
+  /** Devuelve la línea actual leyéndola de la fuente si hace falta, o {@code null} al final. */
+  LineInfo peek() {
+    if (current == null && !exhausted) {
+      if (!source.nextLine()) {
+        exhausted = true;
+      } else {
+        lineNumber++;
+        chars = source.buffer();
+        int lineStart = source.lineStart();
+        int end = source.lineEnd();
+        int start = skipSpaces(lineStart, end);
+        end = trimEnd(start, end);
+        int indent = countIndent(lineStart, start, end);
+        current = new LineInfo(lineStart, start, end, indent, lineNumber);
+      }
+    }
+    return current;
+  }
+
+  void consume() {
+    current = null;
+  }
+
+  private int countIndent(int lineStart, int start, int end) {
+    int count = 0;
+    for (int i = lineStart; i < start; i++) {
+      char ch = chars[i];
+      if (ch == ' ') {
+        count++;
+      } else if (ch == '\t') {
+        if (options.strict()) {
+          report("La indentación con tabuladores no está permitida", lineNumber, count + 1);
+        }
+        // En modo no estricto, los tabuladores se ignoran en el conteo de indentación.
+      } else {
+        break;
+      }
+    }
+    if (options.strict() && start < end && count % indentSize != 0) {
+      report("Indentación no válida, se esperaba múltiplo de " + indentSize, lineNumber, count + 1);
+    }
+    return count;
+  }
+
+  /**
+   * Localiza las celdas de una fila tabular con un único barrido: deja en {@code bounds[2 * i]} y
+   * {@code bounds[2 * i + 1]} el rango sin espacios circundantes del campo {@code i}.
+   *
+   * @return {@code false} si, al validar, la fila no tiene una celda por campo; {@code bounds}
+   *     queda entonces incompleto.
+   * @throws ToonException si la fila no tiene exactamente una celda por campo del encabezado.
+   */
+  boolean splitRow(LineInfo line, int start, int end, ToonHeader header, int[] bounds) {
+    int lastField = header.fields.size() - 1;
+    int cellStart = start;
+    for (int i = 0; i <= lastField; i++) {
+      int cellEnd = findDelimiter(line, cellStart, end, header.delimiter);
+      if ((cellEnd == end) != (i == lastField)) {
+        report(
+            "La fila tabular tiene "
+                + countCells(line, start, end, header.delimiter)
+                + " columnas pero se esperaban "
+                + header.fields.size(),
+            line,
+            start);
+        return false;
+      }
+      int trimmedStart = skipSpaces(cellStart, cellEnd);
+      bounds[2 * i] = trimmedStart;
+      bounds[2 * i + 1] = trimEnd(trimmedStart, cellEnd);
+      cellStart = cellEnd + 1;
+    }
+    return true;
+  }
+
+  private int countCells(LineInfo line, int start, int end, char delimiter) {
+    int count = 1;
+    int cellEnd = findDelimiter(line, start, end, delimiter);
+    while (cellEnd < end) {
+      count++;
+      cellEnd = findDelimiter(line, cellEnd + 1, end, delimiter);
+    }
+    return count;
+  }
+
+  /**
+   * Devuelve el índice del siguiente delimitador fuera de comillas a partir de {@code start}, o
+   * {@code end} si la celda llega hasta el final del rango.
+   */
+  int findDelimiter(LineInfo line, int start, int end, char delimiter) {
+    boolean inQuotes = false;
+    int i = start;
+    while (i < end) {
+      char ch = chars[i];
+      if (ch == '\\' && inQuotes) {
+        if (i + 1 >= end) {
+          throw fail("Secuencia de escape incompleta", line, i);
+        }
+        i += 2;
+        continue;
+      }
+      if (ch == '"') {
+        inQuotes = !inQuotes;
+      } else if (ch == delimiter && !inQuotes) {
+        return i;
+      }
+      i++;
+    }
+    if (inQuotes) {
+      throw fail("Cadena sin cerrar en lista delimitada", line, end);
+    }
+    return end;
+  }
+
+  Object parseCell(LineInfo line, int start, int end) {
+    int cellStart = skipSpaces(start, end);
+    return parsePrimitive(line, cellStart, trimEnd(cellStart, end));
+  }
+
+  ParsedKeyValue parseKeyValue(LineInfo line, int start, int end) {
+    int colonIndex = findKeyColon(line, start, end);
+    int keyStart = skipSpaces(start, colonIndex);
+    String key = decodeKey(line, keyStart, trimEnd(keyStart, colonIndex));
+    return new ParsedKeyValue(key, skipSpaces(colonIndex + 1, end), end);
+  }
+
+  /**
+   * Comprueba que {@code [start, end)} es un par clave:valor con clave no vacía y devuelve el
+   * índice de sus dos puntos, sin materializar la clave.
+   */
+  int findKeyColon(LineInfo line, int start, int end) {
+    int colonIndex = findColonOutsideQuotes(start, end);
+    if (colonIndex < 0) {
+      throw fail("Se esperaba par clave:valor", line, start);
+    }
+    int keyStart = skipSpaces(start, colonIndex);
+    if (trimEnd(keyStart, colonIndex) == keyStart) {
+      throw fail("Clave vacía en par clave:valor", line, keyStart);
+    }
+    return colonIndex;
+  }
+
+  private String decodeKey(LineInfo line, int start, int end) {
+    if (ToonPrimitives.isQuoted(chars, start, end)) {
+      return ToonPrimitives.unescape(chars, start, end, line.lineNumber, line.lineStart, symbols);
+    }
+    return ToonPrimitives.string(chars, start, end, symbols);
+  }
+
+  HeaderLine parseHeaderLine(LineInfo line) {
+    int colonIndex = findColonOutsideQuotes(line.start, line.end);
+    if (colonIndex < 0) {
+      return null;
+    }
+    if (!containsBracketOutsideQuotes(line.start, colonIndex)) {
+      return null;
+    }
+    return parseHeaderText(line, line.start, line.end);
+  }
+
+  HeaderLine parseHeaderText(LineInfo line, int start, int end) {
+    int colonIndex = findColonOutsideQuotes(start, end);
+    if (colonIndex < 0) {
+      return null;
+    }
+    int open = indexOf('[', start, end);
+    if (open < 0 || open > colonIndex || indexOf(']', start, colonIndex + 1) < 0) {
+      return null;
+    }
+
+    ToonHeader header =
+        ToonHeader.parse(chars, start, colonIndex + 1, line.lineNumber, line.lineStart);
+    return new HeaderLine(header, line, skipSpaces(colonIndex + 1, end), end);
+  }
+
+  int findColonOutsideQuotes(int start, int end) {
+    boolean inQuotes = false;
+    boolean escaping = false;
+    for (int i = start; i < end; i++) {
+      char ch = chars[i];
+      if (escaping) {
+        escaping = false;
+        continue;
+      }
+      if (ch == '\\' && inQuotes) {
+        escaping = true;
+        continue;
+      }
+      if (ch == '"') {
+        inQuotes = !inQuotes;
+        continue;
+      }
+      if (ch == ':' && !inQuotes) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean containsBracketOutsideQuotes(int start, int end) {
+    boolean inQuotes = false;
+    boolean escaping = false;
+    boolean openBracket = false;
+    boolean closeBracket = false;
+    for (int i = start; i < end; i++) {
+      char ch = chars[i];
+      if (escaping) {
+        escaping = false;
+        continue;
+      }
+      if (inQuotes) {
+        if (ch == '\\') {
+          escaping = true;
+        } else if (ch == '"') {
+          inQuotes = false;
+        }
+        continue;
+      }
+      if (ch == '"') {
+        inQuotes = true;
+        continue;
+      }
+      if (ch == '[') {
+        openBracket = true;
+      } else if (ch == ']') {
+        closeBracket = true;
+      }
+      if (openBracket && closeBracket) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  int indexOf(char target, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (chars[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Avanza sobre los espacios (en el sentido de {@link String#trim()}) de {@code [start, end)}. */
+  int skipSpaces(int start, int end) {
+    while (start < end && chars[start] <= ' ') {
+      start++;
+    }
+    return start;
+  }
+
+  /** Retrocede sobre los espacios finales de {@code [start, end)} y devuelve el nuevo final. */
+  int trimEnd(int start, int end) {
+    while (end > start && chars[end - 1] <= ' ') {
+      end--;
+    }
+    return end;
+  }
+
+  /**
+   * Comprueba, sin crear el valor, que {@code [start, end)} es un primitivo que {@link
+   * #parsePrimitive} aceptaría, y anota el error si no lo es.
+   */
+  void checkPrimitive(LineInfo line, int start, int end) {
+    if (start == end) {
+      return;
+    }
+    if (chars[start] == '"') {
+      if (end - start < 2 || chars[end - 1] != '"') {
+        report("Cadena sin cerrar", line.lineNumber, end - line.lineStart + 1);
+      } else {
+        checkEscapes(line, start, end);
+      }
+    } else if (end - start > 18
+        && ToonPrimitives.isNumberStart(chars[start])
+        && numbers.scan(chars, start, end)
+        && numbers.integral()) {
+      // Sólo fallan los enteros que no caben en un long, que tienen al menos 19 caracteres; el
+      // error se lanza como al decodificar.
+      numbers.longValue(chars, start, end, line.lineNumber, line.lineStart);
+    }
+  }
+
+  /** Como {@link #checkPrimitive} para una celda con espacios circundantes. */
+  void checkCell(LineInfo line, int start, int end) {
+    int cellStart = skipSpaces(start, end);
+    checkPrimitive(line, cellStart, trimEnd(cellStart, end));
+  }
+
+  /** Comprueba los escapes de la clave entrecomillada que precede a los dos puntos. */
+  void checkKey(LineInfo line, int start, int colonIndex) {
+    int keyStart = skipSpaces(start, colonIndex);
+    int keyEnd = trimEnd(keyStart, colonIndex);
+    if (ToonPrimitives.isQuoted(chars, keyStart, keyEnd)) {
+      checkEscapes(line, keyStart, keyEnd);
+    }
+  }
+
+  /** Anota el primer escape no válido de la cadena entrecomillada {@code [start, end)}. */
+  private void checkEscapes(LineInfo line, int start, int end) {
+    int last = end - 1;
+    for (int i = start + 1; i < last; i++) {
+      if (chars[i] != '\\') {
+        continue;
+      }
+      if (i + 1 >= last) {
+        report("Secuencia de escape incompleta", line, i);
+        return;
+      }
+      char next = chars[++i];
+      if (next != '\\' && next != '"' && next != 'n' && next != 'r' && next != 't') {
+        report("Escape inválido: \\" + next, line, i);
+        return;
+      }
+    }
+  }
+
+  Object parsePrimitive(LineInfo line, int start, int end) {
+    return ToonPrimitives.parse(
+        chars, start, end, line.lineNumber, line.lineStart, numbers, symbols);
+  }
+
+  static ToonException error(String message, int line, int column) {
+    return new ToonException(message, line, column);
+  }
+
+  /** Error situado en el índice {@code offset} del búfer; la columna se deriva aquí. */
+  static ToonException error(String message, LineInfo line, int offset) {
+    return new ToonException(message, line.lineNumber, offset - line.lineStart + 1);
+  }
+
+  /**
+   * Línea actual como índices sobre el búfer de la fuente: {@code [start, end)} es el contenido sin
+   * espacios circundantes y {@code lineStart} el comienzo de la línea, usado para las columnas.
+   */
+  record LineInfo(int lineStart, int start, int end, int indent, int lineNumber) {
+    boolean isBlank() {
+      return start == end;
+    }
+  }
+
+  static final class HeaderLine {
+    final ToonHeader header;
+    final LineInfo line;
+    final int inlineStart;
+    final int inlineEnd;
+
+    HeaderLine(ToonHeader header, LineInfo line, int inlineStart, int inlineEnd) {
+      this.header = header;
+      this.line = line;
+      this.inlineStart = inlineStart;
+      this.inlineEnd = inlineEnd;
+    }
+  }
+
+  record ParsedKeyValue(String key, int valueStart, int valueEnd) {}
+}
@@ -1,7 +1,10 @@
 package org.toonjava;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -10,9 +13,38 @@ import java.util.Set;
 /**
  * Contenedor tipo diccionario para valores TOON, inspirado en {@code JSONObject}. Conserva el orden
  * de inserción y valida los tipos almacenados.
+ *
+ * <p>Los objetos decodificados con {@link ToonDecoderOptions#lazy()} guardan sus objetos y arrays
+ * anidados sin interpretar y los decodifican la primera vez que se accede a ellos, sustituyéndolos
+ * por el resultado. Ese primer acceso, que incluye {@link #remove}, modifica el objeto, así que un
+ * árbol diferido sólo puede compartirse entre hilos después de {@link #validate()}.
+ *
+ * <p>{@link #asMap()} expone el contenido como un {@link Map} de sólo lectura sin copiarlo, y
+ * {@link #freeze()} vuelve inmutable el objeto con todo su subárbol, tras lo cual {@link #toMap()}
+ * devuelve esa misma vista en lugar de una copia.
  */
 public final class ToonObject {
-  private final LinkedHashMap<String, Object> values;
+  private final Map<String, Object> values;
+
+  /**
+   * Valores que son {@link ToonObject}, {@link ToonArray} o {@link ToonDeferred}; un objeto sin
+   * ellos es plano.
+   */
+  private int containers;
+
+  /** Indica si algún valor se guardó como {@link ToonDeferred}, aunque ya se haya interpretado. */
+  private boolean deferred;
+
+  /**
+   * Crece cada vez que se añade o se quita una clave, o el objeto deja de ser plano o vuelve a
+   * serlo; {@link ToonArray} la usa para saber si su forma tabular sigue siendo válida.
+   */
+  private int shapeVersion;
+
+  private boolean frozen;
+
+  /** Vista devuelta por {@link #asMap()}, creada en el primer uso. */
+  private Map<String, Object> view;
 
   public ToonObject() {
     this.values = new LinkedHashMap<>();
@@ -20,21 +52,111 @@ public final class ToonObject {
 
   public ToonObject(Map<String, ?> source) {
     Objects.requireNonNull(source, "source");
+    if (source instanceof ToonShape.ShapedMap shaped && shaped.isShaped()) {
+      // Las filas tabulares conservan su forma compartida: sólo se copia el array de valores.
+      this.values = shaped.mapValues(ToonObject::canonicalize);
+      for (Object value : this.values.values()) {
+        countContainer(value);
+      }
+      return;
+    }
     this.values = new LinkedHashMap<>(source.size());
     for (Map.Entry<String, ?> entry : source.entrySet()) {
       String key = Objects.requireNonNull(entry.getKey(), "key");
-      this.values.put(key, canonicalize(entry.getValue()));
+      this.values.put(key, countContainer(canonicalize(entry.getValue())));
     }
   }
 
+  /**
+   * Toma posesión de {@code canonicalValues}, cuyos valores ya están en forma canónica, y de los
+   * que {@code containers} son objetos o arrays.
+   */
+  private ToonObject(Map<String, Object> canonicalValues, int containers) {
+    this.values = canonicalValues;
+    this.containers = containers;
+  }
+
+  /**
+   * Crea un objeto para una fila tabular que comparte {@code shape} con el resto de filas del
+   * encabezado. Los valores se canonicalizan en el propio array, del que el objeto toma posesión;
+   * las filas nunca contienen bloques diferidos.
+   */
+  static ToonObject ofRow(ToonShape shape, Object[] values) {
+    int containers = 0;
+    for (int i = 0; i < values.length; i++) {
+      Object value = canonicalize(values[i]);
+      if (isContainer(value)) {
+        containers++;
+      }
+      values[i] = value;
+    }
+    return new ToonObject(shape.newRow(values), containers);
+  }
+
+  /**
+   * Envuelve sin copiar un mapa cuyos valores ya están en forma canónica (nulos como {@link
+   * ToonNull}); lo usa {@link ToonTable} para exponer sus filas, que sólo tienen primitivos.
+   */
+  static ToonObject view(Map<String, Object> canonicalValues) {
+    return new ToonObject(canonicalValues, 0);
+  }
+
   public int size() {
     return values.size();
   }
 
+  /**
+   * Contenido sin copiar, con los nulos como {@link ToonNull} y los bloques diferidos ya
+   * interpretados; sólo para lectura interna.
+   */
+  Map<String, Object> canonicalValues() {
+    if (deferred) {
+      for (Map.Entry<String, Object> entry : values.entrySet()) {
+        resolve(entry);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Interpreta todos los bloques anidados que siguen diferidos, en cualquier nivel, de modo que los
+   * errores del documento se lanzan aquí y no en un acceso posterior. Sin efecto en los objetos que
+   * no se decodificaron en modo {@code lazy}.
+   *
+   * @return este mismo objeto.
+   * @throws ToonException con la línea y la columna del primer bloque que no es válido.
+   */
+  public ToonObject validate() {
+    for (Object value : canonicalValues().values()) {
+      if (value instanceof ToonObject object) {
+        object.validate();
+      } else if (value instanceof ToonArray array) {
+        array.validate();
+      }
+    }
+    return this;
+  }
+
   public boolean isEmpty() {
     return values.isEmpty();
   }
 
+  /** Indica si ningún valor es un {@link ToonObject} o un {@link ToonArray}. */
+  boolean isFlat() {
+    return containers == 0;
+  }
+
+  int shapeVersion() {
+    return shapeVersion;
+  }
+
+  /** Forma compartida con otras filas tabulares, o {@code null} si el objeto no la conserva. */
+  ToonShape sharedShape() {
+    return values instanceof ToonShape.ShapedMap shaped && shaped.isShaped()
+        ? shaped.shape()
+        : null;
+  }
+
   public boolean has(String key) {
     Objects.requireNonNull(key, "key");
     return values.containsKey(key);
@@ -42,16 +164,41 @@ public final class ToonObject {
 
   public ToonObject put(String key, Object value) {
     Objects.requireNonNull(key, "key");
-    values.put(key, canonicalize(value));
+    checkMutable();
+    boolean flat = containers == 0;
+    Object previous = values.put(key, countContainer(canonicalize(value)));
+    if (isContainer(previous)) {
+      containers--;
+    }
+    if (previous == null || flat != (containers == 0)) {
+      shapeVersion++;
+    }
     return this;
   }
 
+  /**
+   * Añade una entrada producida por el tokener. Si la clave se repite y su valor anterior es un
+   * bloque diferido, el bloque se interpreta antes de descartarlo, para que sus errores se lancen
+   * como en la lectura completa.
+   */
+  void putDecoded(String key, Object value) {
+    if (deferred && values.get(key) instanceof ToonDeferred block) {
+      Object replaced = block.parse();
+      if (replaced instanceof ToonObject object) {
+        object.validate();
+      } else {
+        ((ToonArray) replaced).validate();
+      }
+    }
+    put(key, value);
+  }
+
   public Object get(String key) {
     Objects.requireNonNull(key, "key");
     if (!values.containsKey(key)) {
       throw new ToonException("Clave no encontrada: " + key);
     }
-    return unwrap(values.get(key));
+    return unwrap(resolve(key, values.get(key)));
   }
 
   public Object opt(String key) {
@@ -59,7 +206,7 @@ public final class ToonObject {
     if (!values.containsKey(key)) {
       return null;
     }
-    return unwrap(values.get(key));
+    return unwrap(resolve(key, values.get(key)));
   }
 
   public String getString(String key) {
@@ -159,9 +306,24 @@ public final class ToonObject {
     return value instanceof ToonArray array ? array : null;
   }
 
+  /**
+   * Quita {@code key} y devuelve su valor, o {@code null} si no estaba. Para poder devolverlo, un
+   * bloque diferido se interpreta antes de quitarlo, aunque el valor no vaya a usarse.
+   *
+   * @throws ToonException si el bloque diferido no es válido; la clave sigue entonces en el objeto.
+   */
   public Object remove(String key) {
     Objects.requireNonNull(key, "key");
-    Object previous = values.remove(key);
+    checkMutable();
+    if (!values.containsKey(key)) {
+      return null;
+    }
+    Object previous = resolve(key, values.get(key));
+    values.remove(key);
+    if (isContainer(previous)) {
+      containers--;
+    }
+    shapeVersion++;
     return unwrap(previous);
   }
 
@@ -173,11 +335,67 @@ public final class ToonObject {
     return Collections.unmodifiableCollection(toUnwrappedValues());
   }
 
+  /**
+   * Vuelve inmutables este objeto y todos los objetos y arrays que contiene, interpretando antes
+   * los bloques diferidos como {@link #validate()}. A partir de aquí {@link #put} y {@link
+   * #remove} lanzan {@link ToonException}, y el árbol y sus vistas pueden compartirse entre hilos
+   * sin copiarlos. Los subárboles compartidos con otros objetos también quedan congelados.
+   *
+   * @return este mismo objeto.
+   * @throws ToonException si algún bloque diferido no es válido; el objeto sigue siendo mutable.
+   */
+  public ToonObject freeze() {
+    if (!frozen) {
+      validate();
+      freezeTree();
+    }
+    return this;
+  }
+
+  /** Congela el subárbol, cuyos bloques diferidos ya están interpretados. */
+  void freezeTree() {
+    frozen = true;
+    for (Object value : values.values()) {
+      if (value instanceof ToonObject object) {
+        object.freezeTree();
+      } else if (value instanceof ToonArray array) {
+        array.freezeTree();
+      }
+    }
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Vista de sólo lectura del contenido, sin copiarlo: refleja los cambios posteriores del objeto,
+   * devuelve {@code null} para los valores nulos y muestra los objetos y arrays anidados como sus
+   * propias vistas {@link #asMap()} y {@link ToonArray#asList()}. Los bloques diferidos se
+   * interpretan al leerlos, como con {@link #get}.
+   */
+  public Map<String, Object> asMap() {
+    Map<String, Object> current = view;
+    if (current == null) {
+      current = new MapView();
+      view = current;
+    }
+    return current;
+  }
+
   /**
    * Devuelve una copia del contenido como {@link Map}, deshaciendo centinelas y clonando
-   * estructuras anidadas.
+   * estructuras anidadas. Si el objeto está congelado, devuelve {@link #asMap()}, que ya no puede
+   * cambiar.
    */
   public Map<String, Object> toMap() {
+    if (frozen) {
+      return asMap();
+    }
+    canonicalValues();
+    if (values instanceof ToonShape.ShapedMap shaped && shaped.isShaped()) {
+      return Collections.unmodifiableMap(shaped.mapValues(ToonObject::cloneValue));
+    }
     LinkedHashMap<String, Object> copy = new LinkedHashMap<>(values.size());
     for (Map.Entry<String, Object> entry : values.entrySet()) {
       copy.put(entry.getKey(), cloneValue(entry.getValue()));
@@ -187,7 +405,13 @@ public final class ToonObject {
 
   @Override
   public String toString() {
-    return toMap().toString();
+    return asMap().toString();
+  }
+
+  private void checkMutable() {
+    if (frozen) {
+      throw new ToonException("El ToonObject está congelado");
+    }
   }
 
   private Object getRequired(String key, String expectedType) {
@@ -216,11 +440,42 @@ public final class ToonObject {
     return value.getClass().getSimpleName();
   }
 
+  private Object countContainer(Object canonical) {
+    if (isContainer(canonical)) {
+      containers++;
+      deferred |= canonical instanceof ToonDeferred;
+    }
+    return canonical;
+  }
+
+  private static boolean isContainer(Object value) {
+    return value instanceof ToonObject
+        || value instanceof ToonArray
+        || value instanceof ToonDeferred;
+  }
+
+  /** Sustituye un bloque diferido por su valor; no cambia la forma del objeto. */
+  private Object resolve(String key, Object value) {
+    if (value instanceof ToonDeferred block) {
+      value = block.parse();
+      values.put(key, value);
+    }
+    return value;
+  }
+
+  private static void resolve(Map.Entry<String, Object> entry) {
+    if (entry.getValue() instanceof ToonDeferred block) {
+      entry.setValue(block.parse());
+    }
+  }
+
   private static Object canonicalize(Object value) {
     if (value instanceof ToonNull || value == null) {
       return ToonNull.INSTANCE;
     }
-    if (value instanceof ToonObject || value instanceof ToonArray) {
+    if (value instanceof ToonObject
+        || value instanceof ToonArray
+        || value instanceof ToonDeferred) {
       return value;
     }
     if (value instanceof String || value instanceof Boolean) {
@@ -233,6 +488,9 @@ public final class ToonObject {
     if (value instanceof Map<?, ?> map) {
       return new ToonObject(castMap(map));
     }
+    if (value instanceof ToonTable.Rows rows) {
+      return rows.toTable();
+    }
     if (value instanceof Iterable<?> iterable) {
       return new ToonArray(toList(iterable));
     }
@@ -273,12 +531,26 @@ public final class ToonObject {
 
   private Collection<Object> toUnwrappedValues() {
     java.util.ArrayList<Object> list = new java.util.ArrayList<>(values.size());
-    for (Object value : values.values()) {
+    for (Object value : canonicalValues().values()) {
       list.add(unwrap(value));
     }
     return list;
   }
 
+  /** Valor tal como lo muestran las vistas: sin centinelas y con los contenedores como vistas. */
+  static Object viewValue(Object value) {
+    if (value == ToonNull.INSTANCE) {
+      return null;
+    }
+    if (value instanceof ToonObject obj) {
+      return obj.asMap();
+    }
+    if (value instanceof ToonArray array) {
+      return array.asList();
+    }
+    return value;
+  }
+
   private static Object cloneValue(Object value) {
     if (value == ToonNull.INSTANCE) {
       return null;
@@ -291,4 +563,49 @@ public final class ToonObject {
     }
     return value;
   }
+
+  /** Vista de {@link #asMap()}: lee el mapa del objeto en cada acceso. */
+  private final class MapView extends AbstractMap<String, Object> {
+    @Override
+    public int size() {
+      return values.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return values.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+      return key instanceof String name ? viewValue(opt(name)) : null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public int size() {
+          return values.size();
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          Iterator<Entry<String, Object>> entries = canonicalValues().entrySet().iterator();
+          return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+              return entries.hasNext();
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              Entry<String, Object> entry = entries.next();
+              return new SimpleImmutableEntry<>(entry.getKey(), viewValue(entry.getValue()));
+            }
+          };
+        }
+      };
+    }
+  }
 }
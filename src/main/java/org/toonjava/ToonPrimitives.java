@@ -0,0 +1,282 @@
+package org.toonjava;
+
+/**
+ * Interpretación de tokens primitivos (SPEC §4 y §7.4) sobre un rango de caracteres. El tipo se
+ * decide y los números enteros se convierten en una sola pasada, sin expresiones regulares ni
+ * subcadenas intermedias; sólo las cadenas resultantes se materializan.
+ *
+ * <p>Los errores reciben el número de línea y el índice {@code lineStart} en que empieza la línea
+ * dentro de {@code chars}; la columna se calcula únicamente al construir la excepción.
+ */
+final class ToonPrimitives {
+  /** Potencias de diez exactamente representables como {@code double}. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /** Máximo de dígitos significativos para el camino rápido exacto de {@code double}. */
+  private static final int MAX_FAST_DIGITS = 15;
+
+  /** Máximo de dígitos con los que un entero cabe siempre en un {@code long}. */
+  private static final int MAX_LONG_DIGITS = 18;
+
+  private ToonPrimitives() {}
+
+  /**
+   * Interpreta {@code chars[start, end)}, que ya viene sin espacios circundantes: {@code null},
+   * booleanos, cadenas entrecomilladas, números ({@link Integer}, {@link Long} o {@link Double}) o,
+   * en otro caso, la cadena literal. {@code number} es un área de trabajo reutilizable y las
+   * cadenas se comparten a través de {@code symbols} si no es {@code null}.
+   */
+  static Object parse(
+      char[] chars,
+      int start,
+      int end,
+      int line,
+      int lineStart,
+      NumberScan number,
+      ToonSymbols symbols) {
+    int length = end - start;
+    if (length == 0) {
+      return "";
+    }
+    char first = chars[start];
+    if (first == '"') {
+      checkClosed(chars, start, end, line, lineStart);
+      return unescape(chars, start, end, line, lineStart, symbols);
+    }
+    if (length == 4 && first == 'n' && matches(chars, start, "null")) {
+      return null;
+    }
+    if (length == 4 && first == 't' && matches(chars, start, "true")) {
+      return Boolean.TRUE;
+    }
+    if (length == 5 && first == 'f' && matches(chars, start, "false")) {
+      return Boolean.FALSE;
+    }
+    if (isNumberStart(first) && number.scan(chars, start, end)) {
+      if (number.integral()) {
+        long value = number.longValue(chars, start, end, line, lineStart);
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+          return (int) value;
+        }
+        return value;
+      }
+      return number.doubleValue(chars, start, end);
+    }
+    return string(chars, start, end, symbols);
+  }
+
+  /** Materializa {@code chars[start, end)}, compartiéndola a través de {@code symbols} si hay. */
+  static String string(char[] chars, int start, int end, ToonSymbols symbols) {
+    return symbols == null ? new String(chars, start, end - start) : symbols.get(chars, start, end);
+  }
+
+  static boolean isNumberStart(char ch) {
+    return ch == '-' || isDigit(ch);
+  }
+
+  /** Comprueba que un token que empieza por comillas también termina con ellas. */
+  static void checkClosed(char[] chars, int start, int end, int line, int lineStart) {
+    if (end - start < 2 || chars[end - 1] != '"') {
+      throw new ToonException("Cadena sin cerrar", line, end - lineStart + 1);
+    }
+  }
+
+  /**
+   * Análisis de un token numérico con el resultado en campos, de modo que quien lo reutiliza puede
+   * obtener {@code long} o {@code double} sin crear cajas.
+   */
+  static final class NumberScan {
+    private boolean negative;
+    private long mantissa;
+    private int significant;
+    private int exponent;
+    private boolean integral;
+
+    /** Indica si el último token analizado no tenía parte decimal ni exponente. */
+    boolean integral() {
+      return integral;
+    }
+
+    /**
+     * Reconoce {@code -?(0|[1-9]\d*)(\.\d+)?([eE][+-]?\d+)?}; devuelve {@code false} si el token
+     * no es numérico (por ejemplo, con ceros a la izquierda) y debe tratarse como cadena.
+     */
+    boolean scan(char[] chars, int start, int end) {
+      int i = start;
+      negative = chars[i] == '-';
+      mantissa = 0;
+      significant = 0;
+      exponent = 0;
+      integral = true;
+      if (negative) {
+        i++;
+      }
+      if (i >= end) {
+        return false;
+      }
+      char ch = chars[i];
+      if (ch == '0') {
+        i++;
+        if (i < end && isDigit(chars[i])) {
+          return false;
+        }
+      } else if (isDigit(ch)) {
+        while (i < end && isDigit(ch = chars[i])) {
+          if (significant < MAX_LONG_DIGITS) {
+            mantissa = mantissa * 10 + (ch - '0');
+          }
+          significant++;
+          i++;
+        }
+      } else {
+        return false;
+      }
+
+      if (i < end && chars[i] == '.') {
+        integral = false;
+        i++;
+        int fractionStart = i;
+        while (i < end && isDigit(ch = chars[i])) {
+          if (mantissa != 0 || ch != '0') {
+            if (significant < MAX_LONG_DIGITS) {
+              mantissa = mantissa * 10 + (ch - '0');
+            }
+            significant++;
+          }
+          exponent--;
+          i++;
+        }
+        if (i == fractionStart) {
+          return false;
+        }
+      }
+      if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+        integral = false;
+        i++;
+        boolean negativeExponent = false;
+        if (i < end && (chars[i] == '+' || chars[i] == '-')) {
+          negativeExponent = chars[i] == '-';
+          i++;
+        }
+        int exponentStart = i;
+        int explicit = 0;
+        while (i < end && isDigit(ch = chars[i])) {
+          if (explicit < 100_000) {
+            explicit = explicit * 10 + (ch - '0');
+          }
+          i++;
+        }
+        if (i == exponentStart) {
+          return false;
+        }
+        exponent += negativeExponent ? -explicit : explicit;
+      }
+      return i == end;
+    }
+
+    /**
+     * Valor del último token entero analizado sobre el mismo rango.
+     *
+     * @throws ToonException si no cabe en un {@code long}.
+     */
+    long longValue(char[] chars, int start, int end, int line, int lineStart) {
+      if (significant > MAX_LONG_DIGITS) {
+        return parseLongSlow(chars, start, end, line, lineStart);
+      }
+      return negative ? -mantissa : mantissa;
+    }
+
+    /** Valor del último token decimal analizado sobre el mismo rango. */
+    double doubleValue(char[] chars, int start, int end) {
+      if (significant <= MAX_FAST_DIGITS && Math.abs(exponent) < POWERS_OF_TEN.length) {
+        // Camino rápido de Clinger: mantisa y potencia son exactas, así que hay un único redondeo.
+        double value =
+            exponent >= 0
+                ? mantissa * POWERS_OF_TEN[exponent]
+                : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+      }
+      return Double.parseDouble(new String(chars, start, end - start));
+    }
+  }
+
+  private static long parseLongSlow(char[] chars, int start, int end, int line, int lineStart) {
+    String token = new String(chars, start, end - start);
+    try {
+      return Long.parseLong(token);
+    } catch (NumberFormatException ex) {
+      throw new ToonException("Número inválido: " + token, line, start - lineStart + 1, ex);
+    }
+  }
+
+  private static boolean isDigit(char ch) {
+    return ch >= '0' && ch <= '9';
+  }
+
+  static boolean matches(char[] chars, int start, String literal) {
+    for (int i = 0; i < literal.length(); i++) {
+      if (chars[start + i] != literal.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean isQuoted(char[] chars, int start, int end) {
+    return end - start >= 2 && chars[start] == '"' && chars[end - 1] == '"';
+  }
+
+  /** Quita las comillas de {@code chars[start, end)} y resuelve los escapes de SPEC §7.1. */
+  static String unescape(char[] chars, int start, int end, int line, int lineStart) {
+    return unescape(chars, start, end, line, lineStart, null);
+  }
+
+  /** Como {@link #unescape(char[], int, int, int, int)}; comparte las cadenas sin escapes. */
+  static String unescape(
+      char[] chars, int start, int end, int line, int lineStart, ToonSymbols symbols) {
+    int last = end - 1;
+    int firstEscape = start + 1;
+    while (firstEscape < last && chars[firstEscape] != '\\') {
+      firstEscape++;
+    }
+    if (firstEscape == last) {
+      return string(chars, start + 1, last, symbols);
+    }
+    StringBuilder sb = new StringBuilder(end - start - 2);
+    sb.append(chars, start + 1, firstEscape - start - 1);
+    for (int i = firstEscape; i < last; i++) {
+      char ch = chars[i];
+      if (ch == '\\') {
+        if (i + 1 >= last) {
+          throw new ToonException("Secuencia de escape incompleta", line, i - lineStart + 1);
+        }
+        char next = chars[++i];
+        switch (next) {
+          case '\\':
+            sb.append('\\');
+            break;
+          case '"':
+            sb.append('"');
+            break;
+          case 'n':
+            sb.append('\n');
+            break;
+          case 'r':
+            sb.append('\r');
+            break;
+          case 't':
+            sb.append('\t');
+            break;
+          default:
+            throw new ToonException("Escape inválido: \\" + next, line, i - lineStart + 1);
+        }
+      } else {
+        sb.append(ch);
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,97 @@
+package org.toonjava;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Conjunto de rutas que se quieren leer de un documento, como {@code "meta.version"} o {@code
+ * "users.id"}. Cada ruta es una secuencia de claves separadas por puntos; los arrays son
+ * transparentes, de modo que {@code "users.id"} (o {@code "users[*].id"}) selecciona la clave
+ * {@code id} de cada elemento de {@code users}. Una ruta que termina en una clave la selecciona con
+ * todo su contenido.
+ *
+ * <p>Al decodificar con {@link ToonDecoder#decode(String, ToonProjection)}, las entradas de objeto
+ * que no están en ninguna ruta se saltan sin interpretar sus valores, y de los arrays tabulares
+ * sólo se leen las columnas seleccionadas. Los arrays conservan todos sus elementos y los objetos
+ * seleccionados se conservan aunque queden vacíos; una clave cuyo valor es un primitivo sólo se
+ * conserva si su ruta termina en ella. Las claves que contienen puntos no pueden seleccionarse.
+ */
+public final class ToonProjection {
+  private final Node root;
+
+  private ToonProjection(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * @throws IllegalArgumentException si no hay rutas o alguna tiene una clave vacía.
+   */
+  public static ToonProjection of(String... paths) {
+    Objects.requireNonNull(paths, "paths");
+    if (paths.length == 0) {
+      throw new IllegalArgumentException("La proyección necesita al menos una ruta");
+    }
+    Node root = new Node(new HashMap<>());
+    for (String path : paths) {
+      root.add(Objects.requireNonNull(path, "path"));
+    }
+    return new ToonProjection(root);
+  }
+
+  Node root() {
+    return root;
+  }
+
+  /**
+   * Nodo del árbol de rutas: las claves seleccionadas en un objeto y lo que se selecciona dentro de
+   * cada una. {@link #ALL} selecciona el valor completo.
+   */
+  static final class Node {
+    static final Node ALL = new Node(null);
+
+    private final Map<String, Node> children;
+
+    private Node(Map<String, Node> children) {
+      this.children = children;
+    }
+
+    /** Indica si se selecciona el valor completo. */
+    boolean all() {
+      return children == null;
+    }
+
+    /** Nodo para el valor de {@code key}, o {@code null} si ninguna ruta pasa por la clave. */
+    Node select(String key) {
+      return children == null ? this : children.get(key);
+    }
+
+    private void add(String path) {
+      Node node = this;
+      String[] segments = path.split("\\.", -1);
+      for (int i = 0; i < segments.length; i++) {
+        String key = segments[i];
+        if (key.endsWith("[*]")) {
+          key = key.substring(0, key.length() - 3);
+        }
+        if (key.isEmpty()) {
+          throw new IllegalArgumentException("Ruta de proyección con una clave vacía: " + path);
+        }
+        Node child = node.children.get(key);
+        if (i == segments.length - 1) {
+          node.children.put(key, ALL);
+          return;
+        }
+        if (child == ALL) {
+          // Una ruta más corta ya selecciona el valor completo.
+          return;
+        }
+        if (child == null) {
+          child = new Node(new HashMap<>());
+          node.children.put(key, child);
+        }
+        node = child;
+      }
+    }
+  }
+}
@@ -0,0 +1,639 @@
+package org.toonjava;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.toonjava.ToonLines.HeaderLine;
+import org.toonjava.ToonLines.LineInfo;
+import org.toonjava.ToonLines.ParsedKeyValue;
+
+/**
+ * Lector de tipo <em>pull</em>: en lugar de devolver valores completos como {@link ToonTokener},
+ * entrega el documento token a token con {@link #nextToken()}, al estilo de los lectores de JSON
+ * en streaming. Los tres tipos de array (lista inline, tabular y lista expandida) producen {@link
+ * Token#START_ARRAY}, sus elementos y {@link Token#END_ARRAY}; cada fila tabular se presenta como
+ * un objeto con los campos del encabezado. Las longitudes declaradas se comprueban como en el
+ * tokener, salvo que un elemento de más se rechaza en cuanto aparece, sin esperar al cierre.
+ *
+ * <p>Los primitivos se clasifican al leer el token pero no se materializan: {@link #getIntValue()},
+ * {@link #getLongValue()}, {@link #getDoubleValue()} y {@link #getBooleanValue()} no crean cajas, y
+ * {@link #getText()} sólo crea la cadena si se pide. Los getters describen el token actual y dejan
+ * de ser válidos en la siguiente llamada a {@link #nextToken()}.
+ *
+ * <p>Si la fuente contiene varios valores consecutivos en la raíz, se recorren uno tras otro.
+ */
+public final class ToonReader {
+  private static final int OBJECT = 0;
+  private static final int ARRAY = 1;
+  private static final int ROW = 2;
+
+  private static final int NONE = 0;
+  private static final int PRIMITIVE = 1;
+  private static final int NESTED_OBJECT = 2;
+  private static final int NESTED_ARRAY = 3;
+
+  /** Tokens que produce {@link #nextToken()}. */
+  public enum Token {
+    START_OBJECT,
+    END_OBJECT,
+    START_ARRAY,
+    END_ARRAY,
+    FIELD_NAME,
+    VALUE_STRING,
+    VALUE_NUMBER_INT,
+    VALUE_NUMBER_FLOAT,
+    VALUE_TRUE,
+    VALUE_FALSE,
+    VALUE_NULL
+  }
+
+  private final ToonLines lines;
+  private final ToonDecoderOptions options;
+  private final int indentSize;
+  private final ToonPrimitives.NumberScan numbers = new ToonPrimitives.NumberScan();
+  private Frame[] frames = new Frame[8];
+  private int depth = 0;
+  private boolean skipping = false;
+
+  private Token token;
+  private String name;
+  private char[] valueChars;
+  private int valueStart;
+  private int valueEnd;
+  private boolean quoted;
+  private long longValue;
+  private String text;
+
+  public ToonReader(String source) {
+    this(source, ToonDecoderOptions.defaults());
+  }
+
+  public ToonReader(String source, ToonDecoderOptions options) {
+    this(ToonSource.of(source), options);
+  }
+
+  /** Lee el {@link Reader} de forma incremental; no se cierra al terminar. */
+  public ToonReader(Reader reader) {
+    this(reader, ToonDecoderOptions.defaults());
+  }
+
+  public ToonReader(Reader reader, ToonDecoderOptions options) {
+    this(ToonSource.of(reader), options);
+  }
+
+  private ToonReader(ToonSource source, ToonDecoderOptions options) {
+    this.options = Objects.requireNonNull(options, "options");
+    this.lines = new ToonLines(source, options);
+    this.indentSize = options.indent();
+  }
+
+  /**
+   * Avanza al siguiente token.
+   *
+   * @return el token, o {@code null} al terminar la fuente.
+   * @throws ToonException si el documento no es válido.
+   */
+  public Token nextToken() {
+    if (depth == 0) {
+      return nextRoot();
+    }
+    Frame frame = frames[depth - 1];
+    switch (frame.kind) {
+      case OBJECT:
+        return nextInObject(frame);
+      case ARRAY:
+        return nextInArray(frame);
+      default:
+        return nextInRow(frame);
+    }
+  }
+
+  /** Token actual, o {@code null} antes de empezar o al terminar la fuente. */
+  public Token currentToken() {
+    return token;
+  }
+
+  /**
+   * Si el token actual es {@link Token#START_OBJECT} o {@link Token#START_ARRAY}, avanza hasta su
+   * cierre, que pasa a ser el token actual; en otro caso no hace nada. Los valores omitidos no se
+   * interpretan, pero la estructura (indentación, filas y longitudes declaradas) sí se valida.
+   */
+  public void skipChildren() {
+    if (token != Token.START_OBJECT && token != Token.START_ARRAY) {
+      return;
+    }
+    int target = depth - 1;
+    skipping = true;
+    try {
+      while (depth > target) {
+        nextToken();
+      }
+    } finally {
+      skipping = false;
+    }
+  }
+
+  /**
+   * Clave asociada al token actual: la propia clave en {@link Token#FIELD_NAME} y, para valores o
+   * contenedores que pertenecen a un objeto, la clave de su entrada; {@code null} en la raíz y en
+   * los elementos de array.
+   */
+  public String currentName() {
+    return name;
+  }
+
+  /** Longitud declarada en el encabezado si el token actual es {@link Token#START_ARRAY}. */
+  public int declaredLength() {
+    if (token != Token.START_ARRAY) {
+      throw new ToonException("El token actual no es START_ARRAY: " + token);
+    }
+    return frames[depth - 1].headerLine.header.length;
+  }
+
+  /**
+   * Campos del encabezado si el token actual es {@link Token#START_ARRAY}; una lista vacía si el
+   * array no es tabular.
+   */
+  public List<String> declaredFields() {
+    if (token != Token.START_ARRAY) {
+      throw new ToonException("El token actual no es START_ARRAY: " + token);
+    }
+    return frames[depth - 1].headerLine.header.fields;
+  }
+
+  /**
+   * Texto del token actual: la clave en {@link Token#FIELD_NAME}, la cadena ya sin comillas ni
+   * escapes en {@link Token#VALUE_STRING} y el literal tal como aparece para números, booleanos y
+   * {@code null}; {@code null} para los tokens de estructura.
+   */
+  public String getText() {
+    if (token == null) {
+      return null;
+    }
+    switch (token) {
+      case FIELD_NAME:
+        return name;
+      case VALUE_STRING:
+        if (text == null) {
+          text =
+              quoted
+                  ? new String(valueChars, valueStart + 1, valueEnd - valueStart - 2)
+                  : new String(valueChars, valueStart, valueEnd - valueStart);
+        }
+        return text;
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+      case VALUE_NULL:
+        return new String(valueChars, valueStart, valueEnd - valueStart);
+      default:
+        return null;
+    }
+  }
+
+  public int getIntValue() {
+    long number = getLongValue();
+    if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+      throw new ToonException("Valor fuera de rango int: " + number);
+    }
+    return (int) number;
+  }
+
+  /** Valor numérico como {@code long}; la parte decimal se trunca como en {@code longValue()}. */
+  public long getLongValue() {
+    if (token == Token.VALUE_NUMBER_INT) {
+      return longValue;
+    }
+    return (long) getDoubleValue();
+  }
+
+  public double getDoubleValue() {
+    if (token == Token.VALUE_NUMBER_INT) {
+      return longValue;
+    }
+    if (token == Token.VALUE_NUMBER_FLOAT) {
+      return numbers.doubleValue(valueChars, valueStart, valueEnd);
+    }
+    throw typeError("Number");
+  }
+
+  public boolean getBooleanValue() {
+    if (token == Token.VALUE_TRUE || token == Token.VALUE_FALSE) {
+      return token == Token.VALUE_TRUE;
+    }
+    throw typeError("Boolean");
+  }
+
+  /**
+   * Valor numérico con el mismo tipo que produce {@link ToonTokener}: {@link Integer}, {@link Long}
+   * o {@link Double}.
+   */
+  public Number getNumberValue() {
+    if (token == Token.VALUE_NUMBER_INT) {
+      if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+        return (int) longValue;
+      }
+      return longValue;
+    }
+    return getDoubleValue();
+  }
+
+  private ToonException typeError(String expected) {
+    return new ToonException("Se esperaba " + expected + " pero se encontró " + token);
+  }
+
+  private Token nextRoot() {
+    lines.skipBlank();
+    LineInfo current = lines.peek();
+    if (current == null) {
+      name = null;
+      return token = null;
+    }
+    HeaderLine headerLine = lines.parseHeaderLine(current);
+    if (headerLine != null && headerLine.header.key == null) {
+      lines.consume();
+      return startArray(headerLine, current.indent() + indentSize);
+    }
+    if (lines.indexOf(':', current.start(), current.end()) < 0
+        || ToonPrimitives.isQuoted(lines.chars(), current.start(), current.end())) {
+      lines.consume();
+      return value(current, current.start(), current.end());
+    }
+    return startObject(current.indent(), true);
+  }
+
+  private Token nextInObject(Frame frame) {
+    if (frame.closed) {
+      return end(Token.END_OBJECT);
+    }
+    if (frame.pendingKey != null) {
+      frame.key = frame.pendingKey;
+      frame.pendingKey = null;
+      return emit(Token.FIELD_NAME, depth - 1);
+    }
+    int pending = frame.pending;
+    frame.pending = NONE;
+    switch (pending) {
+      case PRIMITIVE:
+        return value(frame.valueLine, frame.valueStart, frame.valueEnd);
+      case NESTED_OBJECT:
+        return startObject(frame.valueIndent, true);
+      case NESTED_ARRAY:
+        HeaderLine header = frame.valueHeader;
+        frame.valueHeader = null;
+        return startArray(header, frame.valueIndent);
+      default:
+        break;
+    }
+
+    LineInfo line;
+    while ((line = lines.peek()) != null) {
+      if (line.isBlank()) {
+        // Blank lines fuera de arrays: se ignoran.
+        lines.consume();
+        continue;
+      }
+      if (line.indent() < frame.indent) {
+        break;
+      }
+      if (line.indent() > frame.indent) {
+        if (frame.adjust) {
+          frame.indent = line.indent();
+        } else {
+          throw ToonLines.error("Indentación inesperada", line, line.start());
+        }
+      }
+      frame.adjust = false;
+
+      HeaderLine headerLine = lines.parseHeaderLine(line);
+      if (headerLine != null) {
+        if (headerLine.header.key == null) {
+          throw ToonLines.error(
+              "Los encabezados de array dentro de objetos requieren una clave",
+              line.lineNumber(),
+              1);
+        }
+        lines.consume();
+        frame.key = headerLine.header.key;
+        frame.pending = NESTED_ARRAY;
+        frame.valueHeader = headerLine;
+        frame.valueIndent = frame.indent + indentSize;
+        return emit(Token.FIELD_NAME, depth - 1);
+      }
+
+      lines.consume();
+      ParsedKeyValue kv = pendingValue(frame, line, line.start(), line.end());
+      frame.key = kv.key();
+      return emit(Token.FIELD_NAME, depth - 1);
+    }
+    return end(Token.END_OBJECT);
+  }
+
+  /** Guarda en {@code frame} el valor de {@code key: valor} para entregarlo tras la clave. */
+  private ParsedKeyValue pendingValue(Frame frame, LineInfo line, int start, int end) {
+    ParsedKeyValue kv = lines.parseKeyValue(line, start, end);
+    if (kv.valueStart() == kv.valueEnd()) {
+      frame.pending = NESTED_OBJECT;
+      frame.valueIndent = frame.indent + indentSize;
+    } else {
+      frame.pending = PRIMITIVE;
+      frame.valueLine = line;
+      frame.valueStart = kv.valueStart();
+      frame.valueEnd = kv.valueEnd();
+    }
+    return kv;
+  }
+
+  private Token nextInArray(Frame frame) {
+    HeaderLine headerLine = frame.headerLine;
+    ToonHeader header = headerLine.header;
+    if (frame.inlinePosition >= 0) {
+      int start = frame.inlinePosition;
+      int end = headerLine.inlineEnd;
+      int cellEnd = lines.findDelimiter(headerLine.line, start, end, header.delimiter);
+      frame.inlinePosition = cellEnd == end ? -1 : cellEnd + 1;
+      countElement(frame, headerLine.line, start);
+      int cellStart = lines.skipSpaces(start, cellEnd);
+      return value(headerLine.line, cellStart, lines.trimEnd(cellStart, cellEnd));
+    }
+    if (frame.inlineRow) {
+      frame.inlineRow = false;
+      countElement(frame, headerLine.line, headerLine.inlineStart);
+      return startRow(frame, headerLine.line, headerLine.inlineStart, headerLine.inlineEnd);
+    }
+
+    int expectedIndent = frame.indent;
+    LineInfo line;
+    while ((line = lines.peek()) != null) {
+      if (line.isBlank()) {
+        if (options.strict()) {
+          if (line.indent() < expectedIndent) {
+            break;
+          }
+          throw ToonLines.error(
+              "Las líneas en blanco dentro de arrays no son válidas en modo estricto",
+              line,
+              line.start());
+        }
+        lines.consume();
+        // En modo no estricto, mantenga la posición del encabezado para elementos posteriores.
+        continue;
+      }
+      if (line.indent() < expectedIndent) {
+        break;
+      }
+
+      if (header.isTabular()) {
+        if (line.indent() == expectedIndent
+            && lines.indexOf(header.delimiter, line.start(), line.end()) < 0
+            && lines.findColonOutsideQuotes(line.start(), line.end()) >= 0) {
+          break;
+        }
+        if (line.indent() != expectedIndent) {
+          throw ToonLines.error("Indentación inválida en fila tabular", line, line.start());
+        }
+        lines.consume();
+        countElement(frame, line, line.start());
+        return startRow(frame, line, line.start(), line.end());
+      }
+
+      char[] chars = lines.chars();
+      if (chars[line.start()] != '-') {
+        if (line.indent() == expectedIndent) {
+          break;
+        }
+        throw ToonLines.error("Se esperaba elemento de array con prefijo '- '", line, line.start());
+      }
+
+      lines.consume();
+      if (line.end() - line.start() > 1 && chars[line.start() + 1] != ' ') {
+        throw ToonLines.error("Se esperaba elemento de array con prefijo '- '", line, line.start());
+      }
+      int payloadStart = lines.skipSpaces(Math.min(line.start() + 2, line.end()), line.end());
+      int payloadEnd = line.end();
+      int nestedIndent = expectedIndent + indentSize;
+      countElement(frame, line, line.start());
+      if (payloadStart == payloadEnd) {
+        Token start = startObject(nestedIndent, false);
+        frames[depth - 1].closed = true;
+        return start;
+      }
+
+      HeaderLine nestedHeaderLine = lines.parseHeaderText(line, payloadStart, payloadEnd);
+      if (nestedHeaderLine != null) {
+        if (nestedHeaderLine.header.key == null) {
+          return startArray(nestedHeaderLine, nestedIndent);
+        }
+        Token start = startObject(nestedIndent, false);
+        Frame item = frames[depth - 1];
+        item.pendingKey = nestedHeaderLine.header.key;
+        item.pending = NESTED_ARRAY;
+        item.valueHeader = nestedHeaderLine;
+        item.valueIndent = nestedIndent;
+        return start;
+      }
+
+      if (lines.indexOf(':', payloadStart, payloadEnd) >= 0) {
+        Token start = startObject(nestedIndent, false);
+        Frame item = frames[depth - 1];
+        item.pendingKey = pendingValue(item, line, payloadStart, payloadEnd).key();
+        if (item.pending == NESTED_OBJECT) {
+          item.valueIndent = nestedIndent;
+        }
+        return start;
+      }
+      return value(line, payloadStart, payloadEnd);
+    }
+
+    if (frame.count != header.length) {
+      throw ToonLines.error(
+          "El encabezado declara " + header.length + " elementos pero se leyeron " + frame.count,
+          headerLine.line.lineNumber(),
+          1);
+    }
+    return end(Token.END_ARRAY);
+  }
+
+  /** Cuenta un elemento más y falla en cuanto se supera la longitud declarada. */
+  private static void countElement(Frame array, LineInfo line, int offset) {
+    int length = array.headerLine.header.length;
+    if (array.count == length) {
+      throw ToonLines.error(
+          "El encabezado declara " + length + " elementos pero se encontraron más", line, offset);
+    }
+    array.count++;
+  }
+
+  private Token nextInRow(Frame row) {
+    if (row.field == row.fields.size()) {
+      return end(Token.END_OBJECT);
+    }
+    if (!row.valueNext) {
+      row.valueNext = true;
+      row.key = row.fields.get(row.field);
+      return emit(Token.FIELD_NAME, depth - 1);
+    }
+    row.valueNext = false;
+    int field = row.field++;
+    return value(row.valueLine, row.bounds[2 * field], row.bounds[2 * field + 1]);
+  }
+
+  private Token startObject(int indent, boolean adjust) {
+    Frame frame = push(OBJECT);
+    frame.indent = indent;
+    frame.adjust = adjust;
+    return emit(Token.START_OBJECT, depth - 2);
+  }
+
+  private Token startArray(HeaderLine headerLine, int indent) {
+    Frame frame = push(ARRAY);
+    frame.headerLine = headerLine;
+    frame.indent = indent;
+    if (headerLine.inlineStart < headerLine.inlineEnd) {
+      if (headerLine.header.isTabular()) {
+        frame.inlineRow = true;
+      } else {
+        frame.inlinePosition = headerLine.inlineStart;
+      }
+    }
+    return emit(Token.START_ARRAY, depth - 2);
+  }
+
+  private Token startRow(Frame array, LineInfo line, int start, int end) {
+    ToonHeader header = array.headerLine.header;
+    if (array.bounds == null) {
+      array.bounds = new int[2 * header.fields.size()];
+    }
+    lines.splitRow(line, start, end, header, array.bounds);
+    Frame row = push(ROW);
+    row.fields = header.fields;
+    row.bounds = array.bounds;
+    row.valueLine = line;
+    return emit(Token.START_OBJECT, depth - 2);
+  }
+
+  /** Clasifica el primitivo de {@code [start, end)} sin materializarlo. */
+  private Token value(LineInfo line, int start, int end) {
+    valueChars = lines.chars();
+    valueStart = start;
+    valueEnd = end;
+    quoted = false;
+    text = null;
+    if (skipping) {
+      return emit(Token.VALUE_STRING, depth - 1);
+    }
+    return emit(classify(line, start, end), depth - 1);
+  }
+
+  private Token classify(LineInfo line, int start, int end) {
+    int length = end - start;
+    if (length == 0) {
+      return Token.VALUE_STRING;
+    }
+    char[] chars = valueChars;
+    char first = chars[start];
+    if (first == '"') {
+      ToonPrimitives.checkClosed(chars, start, end, line.lineNumber(), line.lineStart());
+      quoted = true;
+      for (int i = start + 1; i < end - 1; i++) {
+        if (chars[i] == '\\') {
+          text = ToonPrimitives.unescape(chars, start, end, line.lineNumber(), line.lineStart());
+          break;
+        }
+      }
+      return Token.VALUE_STRING;
+    }
+    if (length == 4 && first == 'n' && ToonPrimitives.matches(chars, start, "null")) {
+      return Token.VALUE_NULL;
+    }
+    if (length == 4 && first == 't' && ToonPrimitives.matches(chars, start, "true")) {
+      return Token.VALUE_TRUE;
+    }
+    if (length == 5 && first == 'f' && ToonPrimitives.matches(chars, start, "false")) {
+      return Token.VALUE_FALSE;
+    }
+    if (ToonPrimitives.isNumberStart(first) && numbers.scan(chars, start, end)) {
+      if (numbers.integral()) {
+        longValue = numbers.longValue(chars, start, end, line.lineNumber(), line.lineStart());
+        return Token.VALUE_NUMBER_INT;
+      }
+      return Token.VALUE_NUMBER_FLOAT;
+    }
+    return Token.VALUE_STRING;
+  }
+
+  private Token end(Token end) {
+    Frame frame = frames[--depth];
+    frame.clear();
+    return emit(end, depth - 1);
+  }
+
+  /** Fija el token actual y la clave de su entrada dentro del marco {@code container}. */
+  private Token emit(Token next, int container) {
+    token = next;
+    name = container >= 0 && frames[container].kind != ARRAY ? frames[container].key : null;
+    return next;
+  }
+
+  private Frame push(int kind) {
+    if (depth == frames.length) {
+      frames = Arrays.copyOf(frames, depth * 2);
+    }
+    Frame frame = frames[depth];
+    if (frame == null) {
+      frame = new Frame();
+      frames[depth] = frame;
+    }
+    frame.kind = kind;
+    depth++;
+    return frame;
+  }
+
+  /**
+   * Estado de un contenedor abierto. Un objeto guarda su indentación y el valor pendiente tras la
+   * clave actual; un array, su encabezado, la posición en la lista inline y los elementos leídos;
+   * una fila tabular, el campo actual y los rangos de sus celdas.
+   */
+  private static final class Frame {
+    int kind;
+    int indent;
+    boolean adjust;
+    boolean closed;
+    String key;
+    String pendingKey;
+    int pending = NONE;
+    LineInfo valueLine;
+    int valueStart;
+    int valueEnd;
+    int valueIndent;
+    HeaderLine valueHeader;
+    HeaderLine headerLine;
+    int count;
+    int inlinePosition = -1;
+    boolean inlineRow;
+    int[] bounds;
+    List<String> fields;
+    int field;
+    boolean valueNext;
+
+    void clear() {
+      adjust = false;
+      closed = false;
+      key = null;
+      pendingKey = null;
+      pending = NONE;
+      valueLine = null;
+      valueHeader = null;
+      headerLine = null;
+      count = 0;
+      inlinePosition = -1;
+      inlineRow = false;
+      bounds = null;
+      fields = null;
+      field = 0;
+      valueNext = false;
+    }
+  }
+}
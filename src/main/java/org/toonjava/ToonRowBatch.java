@@ -0,0 +1,172 @@
+package org.toonjava;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.toonjava.ToonLines.LineInfo;
+
+/**
+ * Lote de filas de un array tabular que se interpretan en paralelo y se entregan en orden.
+ *
+ * <p>El tokener sigue leyendo las líneas de forma secuencial, porque la indentación decide dónde
+ * termina el array; sólo la separación en celdas y el análisis de primitivos, que dominan el coste
+ * de las tablas grandes, se reparten en el pool de {@link ToonDecoderOptions#parallelPool()}. Si
+ * una fila falla se entregan las anteriores y se lanza el error de la primera fila inválida, el
+ * mismo que produciría la lectura secuencial.
+ */
+final class ToonRowBatch {
+  /** Filas por lote: acota la memoria retenida cuando la entrada se lee de un flujo. */
+  static final int CAPACITY = 1 << 16;
+
+  /** Filas por tarea hoja; por debajo no compensa repartir el trabajo. */
+  private static final int LEAF_ROWS = 1 << 10;
+
+  private final ToonHeader header;
+  private final ToonDecoderOptions options;
+  private final boolean shared;
+  private LineInfo[] rows = new LineInfo[LEAF_ROWS];
+  private char[] chars;
+  private int length;
+  private int size;
+
+  /**
+   * @param shared si las líneas provienen de un búfer que conserva toda la entrada, de modo que
+   *     basta con guardar sus rangos en lugar de copiarlas.
+   */
+  ToonRowBatch(ToonHeader header, ToonDecoderOptions options, boolean shared) {
+    this.header = header;
+    this.options = options;
+    this.shared = shared;
+    this.chars = shared ? null : new char[8192];
+  }
+
+  boolean isFull() {
+    return size == CAPACITY;
+  }
+
+  /** Añade la fila {@code line} del búfer {@code source}, que puede reutilizarse a continuación. */
+  void add(char[] source, LineInfo line) {
+    if (size == rows.length) {
+      rows = Arrays.copyOf(rows, Math.min(size * 2, CAPACITY));
+    }
+    if (shared) {
+      chars = source;
+      rows[size++] = line;
+      return;
+    }
+    int lineLength = line.end() - line.lineStart();
+    if (length + lineLength > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + lineLength));
+    }
+    System.arraycopy(source, line.lineStart(), chars, length, lineLength);
+    int shift = length - line.lineStart();
+    rows[size++] =
+        new LineInfo(
+            length, line.start() + shift, line.end() + shift, line.indent(), line.lineNumber());
+    length += lineLength;
+  }
+
+  /**
+   * Interpreta las filas acumuladas, las entrega a {@code handler} en orden y vacía el lote.
+   *
+   * @return número de filas entregadas.
+   * @throws ToonException de la primera fila inválida, tras entregar las anteriores.
+   */
+  int flush(ToonHandler handler) {
+    int count = size;
+    Object[][] values = new Object[count][];
+    Parse task = new Parse(values, 0, count);
+    ForkJoinPool pool = options.pool();
+    if (count <= LEAF_ROWS || pool.getParallelism() < 2) {
+      task.compute();
+    } else {
+      pool.invoke(task);
+    }
+    int delivered = task.errorRow < 0 ? count : task.errorRow;
+    // Cada fila tiene su propio array, así que el manejador puede quedárselo sin copiarlo.
+    ToonBuilders.OwnedRows owner = handler instanceof ToonBuilders.OwnedRows rows ? rows : null;
+    for (int i = 0; i < delivered; i++) {
+      if (owner != null) {
+        owner.ownedRow(values[i]);
+      } else {
+        handler.tabularRow(values[i]);
+      }
+    }
+    Arrays.fill(rows, 0, size, null);
+    size = 0;
+    length = 0;
+    if (task.error != null) {
+      throw task.error;
+    }
+    return count;
+  }
+
+  /** Tarea que divide el rango de filas hasta {@link #LEAF_ROWS} y comparte el primer error. */
+  private final class Parse extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Object[][] values;
+    private final int from;
+    private final int to;
+    private final Parse root;
+    private volatile int errorRow = -1;
+    private ToonException error;
+
+    /** Analizador léxico de cada hilo, sólo en la tarea raíz; las hojas de un hilo lo comparten. */
+    private final Map<Thread, ToonLines> lexers;
+
+    Parse(Object[][] values, int from, int to) {
+      this(values, from, to, null);
+    }
+
+    private Parse(Object[][] values, int from, int to, Parse root) {
+      this.values = values;
+      this.from = from;
+      this.to = to;
+      this.root = root == null ? this : root;
+      this.lexers = root == null ? new ConcurrentHashMap<>() : null;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > LEAF_ROWS) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new Parse(values, from, middle, root), new Parse(values, middle, to, root));
+        return;
+      }
+      ToonLines lexer =
+          root.lexers.computeIfAbsent(
+              Thread.currentThread(), thread -> ToonLines.over(chars, options));
+      int fields = header.fields.size();
+      int[] bounds = new int[2 * fields];
+      for (int i = from; i < to; i++) {
+        int failed = root.errorRow;
+        if (failed >= 0 && failed < i) {
+          return;
+        }
+        LineInfo line = rows[i];
+        try {
+          lexer.splitRow(line, line.start(), line.end(), header, bounds);
+          Object[] cells = new Object[fields];
+          for (int f = 0; f < fields; f++) {
+            cells[f] = lexer.parsePrimitive(line, bounds[2 * f], bounds[2 * f + 1]);
+          }
+          values[i] = cells;
+        } catch (ToonException ex) {
+          root.fail(i, ex);
+          return;
+        }
+      }
+    }
+
+    /** Conserva el error de la fila más temprana, que es el que vería la lectura secuencial. */
+    private synchronized void fail(int row, ToonException ex) {
+      if (errorRow < 0 || row < errorRow) {
+        error = ex;
+        errorRow = row;
+      }
+    }
+  }
+}
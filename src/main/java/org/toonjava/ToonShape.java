@@ -0,0 +1,233 @@
+package org.toonjava;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Forma compartida por las filas de un array tabular: las claves del encabezado en orden y un
+ * índice precalculado de clave a posición. Cada fila sólo guarda un {@code Object[]} con sus
+ * valores, sin repetir las claves ni crear nodos por entrada.
+ */
+final class ToonShape {
+  private final String[] keys;
+  private final Map<String, Integer> index;
+
+  /** @param keys claves sin repeticiones, en el orden en que deben iterarse. */
+  ToonShape(List<String> keys) {
+    this.keys = keys.toArray(new String[0]);
+    this.index = new HashMap<>(this.keys.length * 2);
+    for (int i = 0; i < this.keys.length; i++) {
+      index.put(this.keys[i], i);
+    }
+  }
+
+  /**
+   * Forma para los campos de un encabezado tabular, o {@code null} si repite nombres de campo (en
+   * cuyo caso las filas se guardan como mapas).
+   */
+  static ToonShape of(List<String> fields) {
+    return new HashSet<>(fields).size() == fields.size() ? new ToonShape(fields) : null;
+  }
+
+  /** Claves en su orden. */
+  List<String> keys() {
+    return List.of(keys);
+  }
+
+  int indexOf(Object key) {
+    Integer position = index.get(key);
+    return position == null ? -1 : position;
+  }
+
+  /** Crea una fila que toma posesión de {@code values}, alineado con las claves de la forma. */
+  ShapedMap newRow(Object[] values) {
+    return new ShapedMap(this, values);
+  }
+
+  /**
+   * Mapa mutable respaldado por una forma. Reemplazar el valor de una clave existente escribe en el
+   * array; añadir o quitar claves lo convierte, una única vez, en un {@link LinkedHashMap} propio.
+   */
+  static final class ShapedMap extends AbstractMap<String, Object> {
+    private final ToonShape shape;
+    private Object[] values;
+    private LinkedHashMap<String, Object> fallback;
+
+    ShapedMap(ToonShape shape, Object[] values) {
+      this.shape = shape;
+      this.values = values;
+    }
+
+    ToonShape shape() {
+      return shape;
+    }
+
+    /** Indica si la fila sigue compartiendo la forma, es decir, si no se le añadieron claves. */
+    boolean isShaped() {
+      return fallback == null;
+    }
+
+    /** Copia la fila aplicando {@code mapper} a cada valor; requiere que {@link #isShaped()}. */
+    ShapedMap mapValues(UnaryOperator<Object> mapper) {
+      Object[] copy = new Object[values.length];
+      for (int i = 0; i < copy.length; i++) {
+        copy[i] = mapper.apply(values[i]);
+      }
+      return new ShapedMap(shape, copy);
+    }
+
+    @Override
+    public int size() {
+      return fallback != null ? fallback.size() : values.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return fallback != null ? fallback.containsKey(key) : shape.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+      if (fallback != null) {
+        return fallback.get(key);
+      }
+      int position = shape.indexOf(key);
+      return position >= 0 ? values[position] : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+      if (fallback == null) {
+        int position = shape.indexOf(key);
+        if (position >= 0) {
+          Object previous = values[position];
+          values[position] = value;
+          return previous;
+        }
+      }
+      return fallback().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+      if (fallback == null && shape.indexOf(key) < 0) {
+        return null;
+      }
+      return fallback().remove(key);
+    }
+
+    @Override
+    public void clear() {
+      fallback().clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return fallback != null ? fallback.entrySet() : new ShapedEntries();
+    }
+
+    private LinkedHashMap<String, Object> fallback() {
+      if (fallback == null) {
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>(values.length * 2);
+        for (int i = 0; i < values.length; i++) {
+          map.put(shape.keys[i], values[i]);
+        }
+        fallback = map;
+        values = null;
+      }
+      return fallback;
+    }
+
+    /** Entradas en el orden de la forma; siguen siendo válidas si la fila deja de estar formada. */
+    private final class ShapedEntries extends AbstractSet<Entry<String, Object>> {
+      @Override
+      public int size() {
+        return ShapedMap.this.size();
+      }
+
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new Iterator<>() {
+          private int next = 0;
+          private int last = -1;
+
+          @Override
+          public boolean hasNext() {
+            while (next < shape.keys.length && !containsKey(shape.keys[next])) {
+              next++;
+            }
+            return next < shape.keys.length;
+          }
+
+          @Override
+          public Entry<String, Object> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            last = next++;
+            return new ShapedEntry(shape.keys[last]);
+          }
+
+          @Override
+          public void remove() {
+            if (last < 0) {
+              throw new IllegalStateException();
+            }
+            ShapedMap.this.remove(shape.keys[last]);
+            last = -1;
+          }
+        };
+      }
+    }
+
+    private final class ShapedEntry implements Entry<String, Object> {
+      private final String key;
+
+      ShapedEntry(String key) {
+        this.key = key;
+      }
+
+      @Override
+      public String getKey() {
+        return key;
+      }
+
+      @Override
+      public Object getValue() {
+        return get(key);
+      }
+
+      @Override
+      public Object setValue(Object value) {
+        return put(key, value);
+      }
+
+      @Override
+      public boolean equals(Object other) {
+        return other instanceof Entry<?, ?> entry
+            && key.equals(entry.getKey())
+            && Objects.equals(getValue(), entry.getValue());
+      }
+
+      @Override
+      public int hashCode() {
+        return key.hashCode() ^ Objects.hashCode(getValue());
+      }
+
+      @Override
+      public String toString() {
+        return key + "=" + getValue();
+      }
+    }
+  }
+}
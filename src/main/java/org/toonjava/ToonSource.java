@@ -0,0 +1,338 @@
+package org.toonjava;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Fuente de líneas consumida por {@link ToonTokener}. Cada línea se expone como un rango {@code
+ * [lineStart, lineEnd)} sobre {@link #buffer()}, sin copiarla a un {@link String}; los finales
+ * {@code CRLF}/{@code CR} se tratan como {@code LF}.
+ *
+ * <p>El rango sólo es válido hasta la siguiente llamada a {@link #nextLine()}: al leer de un {@link
+ * Reader} el búfer se compacta y puede reemplazarse, así que quien consume la línea debe
+ * materializar antes las claves y valores que necesite.
+ *
+ * <p>Igual que {@code split("\n", -1)}, una entrada siempre produce al menos una línea y un salto
+ * final genera una última línea vacía.
+ */
+abstract class ToonSource {
+  private static final int BUFFER_SIZE = 8192;
+
+  /** Tamaño máximo de cada proyección de un fichero; {@link FileChannel#map} admite hasta 2 GB. */
+  static final int SEGMENT_SIZE = 1 << 30;
+
+  private final boolean complete;
+  private char[] buffer;
+  private int position;
+  private int limit;
+  private int lineStart;
+  private int lineEnd;
+  private boolean skipLineFeed = false;
+  private boolean endOfInput;
+  private boolean finished = false;
+
+  /**
+   * @param complete indica que {@code buffer[0, limit)} ya contiene toda la entrada y no debe
+   *     llamarse a {@link #read}.
+   */
+  ToonSource(char[] buffer, int limit, boolean complete) {
+    this.buffer = buffer;
+    this.limit = limit;
+    this.complete = complete;
+    this.endOfInput = complete;
+  }
+
+  static ToonSource of(String source) {
+    Objects.requireNonNull(source, "source");
+    return new StringSource(source.toCharArray(), source.length());
+  }
+
+  /** Fuente completa sobre {@code buffer[0, limit)}, compartido sin copiarlo. */
+  static ToonSource of(char[] buffer, int limit) {
+    return new StringSource(buffer, limit);
+  }
+
+  static ToonSource of(Reader reader) {
+    return new ReaderSource(Objects.requireNonNull(reader, "reader"));
+  }
+
+  /**
+   * Fuente completa con los bytes UTF-8 restantes de {@code bytes}, decodificados de una vez sobre
+   * el búfer de caracteres sin pasar por un {@link String}; la posición de {@code bytes} no cambia.
+   */
+  static ToonSource of(ByteBuffer bytes) {
+    Objects.requireNonNull(bytes, "bytes");
+    try {
+      CharBuffer chars = utf8().decode(bytes.duplicate());
+      return new StringSource(chars.array(), chars.limit());
+    } catch (CharacterCodingException ex) {
+      // No ocurre: las secuencias no válidas se sustituyen.
+      throw new ToonException("No se pudo decodificar la entrada TOON como UTF-8", ex);
+    }
+  }
+
+  /** Fichero UTF-8 proyectado en memoria, en segmentos de {@link #SEGMENT_SIZE} bytes. */
+  static ToonSource of(Path path) {
+    return of(path, SEGMENT_SIZE);
+  }
+
+  /**
+   * Proyecta el fichero en segmentos de como mucho {@code segmentSize} bytes, recortando cada uno
+   * para que no parta una secuencia UTF-8. El canal se cierra enseguida: las proyecciones siguen
+   * siendo válidas hasta que se liberan.
+   */
+  static ToonSource of(Path path, int segmentSize) {
+    Objects.requireNonNull(path, "path");
+    if (segmentSize < 8) {
+      throw new IllegalArgumentException("Los segmentos deben tener al menos 8 bytes");
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      List<ByteBuffer> segments = new ArrayList<>();
+      long start = 0;
+      while (start < size) {
+        int length = (int) Math.min(segmentSize, size - start);
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (start + length < size) {
+          segment.limit(sequenceBoundary(segment, length));
+        }
+        segments.add(segment);
+        start += segment.limit();
+      }
+      return new ByteSource(segments.toArray(new ByteBuffer[0]));
+    } catch (IOException ex) {
+      throw new ToonException("No se pudo leer el fichero TOON " + path, ex);
+    }
+  }
+
+  /**
+   * Devuelve {@code end}, o el comienzo de la última secuencia UTF-8 de {@code bytes[0, end)} si
+   * queda incompleta.
+   */
+  private static int sequenceBoundary(ByteBuffer bytes, int end) {
+    int lead = end - 1;
+    while (lead > 0 && lead > end - 4 && (bytes.get(lead) & 0xC0) == 0x80) {
+      lead--;
+    }
+    int first = bytes.get(lead) & 0xFF;
+    int length = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : first >= 0xC0 ? 2 : 1;
+    return lead > 0 && lead + length > end ? lead : end;
+  }
+
+  /**
+   * Decodificador UTF-8 que, como {@link java.io.InputStreamReader}, sustituye las secuencias no
+   * válidas por {@code U+FFFD}.
+   */
+  private static CharsetDecoder utf8() {
+    return StandardCharsets.UTF_8
+        .newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  /**
+   * Lee hasta {@code length} caracteres en {@code target[offset]}; devuelve {@code -1} al agotarse
+   * la entrada.
+   */
+  abstract int read(char[] target, int offset, int length);
+
+  /**
+   * Indica si el búfer contiene toda la entrada desde el principio, de modo que los rangos de
+   * líneas ya leídas siguen siendo válidos después de {@link #nextLine()}.
+   */
+  final boolean retainsInput() {
+    return complete;
+  }
+
+  /** Índice siguiente al último carácter disponible en {@link #buffer()}. */
+  final int limit() {
+    return limit;
+  }
+
+  /**
+   * Sitúa la lectura al comienzo de la línea que empieza en {@code position}; sólo tiene sentido si
+   * {@link #retainsInput()}.
+   */
+  final void seek(int position) {
+    this.position = position;
+    this.skipLineFeed = false;
+    this.finished = false;
+  }
+
+  /**
+   * Índice donde empieza la línea que devolverá {@link #nextLine()}, o {@code -1} si no quedan
+   * líneas; sólo tiene sentido si {@link #retainsInput()}.
+   */
+  final int nextLineStart() {
+    if (finished) {
+      return -1;
+    }
+    return skipLineFeed && position < limit && buffer[position] == '\n' ? position + 1 : position;
+  }
+
+  /** Búfer que contiene la línea actual; puede cambiar tras {@link #nextLine()}. */
+  final char[] buffer() {
+    return buffer;
+  }
+
+  /** Índice del primer carácter de la línea actual. */
+  final int lineStart() {
+    return lineStart;
+  }
+
+  /** Índice siguiente al último carácter de la línea actual, sin el terminador. */
+  final int lineEnd() {
+    return lineEnd;
+  }
+
+  /** Avanza a la siguiente línea; devuelve {@code false} cuando no quedan más. */
+  final boolean nextLine() {
+    if (finished) {
+      return false;
+    }
+    if (skipLineFeed) {
+      skipLineFeed = false;
+      if ((position < limit || fill()) && buffer[position] == '\n') {
+        position++;
+      }
+    }
+    int scan = position;
+    while (true) {
+      while (scan < limit) {
+        char ch = buffer[scan];
+        if (ch == '\n' || ch == '\r') {
+          lineStart = position;
+          lineEnd = scan;
+          position = scan + 1;
+          skipLineFeed = ch == '\r';
+          return true;
+        }
+        scan++;
+      }
+      int scanned = scan - position;
+      if (!fill()) {
+        lineStart = position;
+        lineEnd = limit;
+        position = limit;
+        finished = true;
+        return true;
+      }
+      scan = position + scanned;
+    }
+  }
+
+  /**
+   * Añade caracteres al búfer conservando la línea en curso {@code [position, limit)}, que se
+   * desplaza al principio y, si ocupa todo el búfer, se amplía.
+   */
+  private boolean fill() {
+    if (endOfInput) {
+      return false;
+    }
+    int pending = limit - position;
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, pending);
+      position = 0;
+      limit = pending;
+    }
+    if (limit == buffer.length) {
+      char[] grown = new char[Math.max(BUFFER_SIZE, buffer.length * 2)];
+      System.arraycopy(buffer, 0, grown, 0, limit);
+      buffer = grown;
+    }
+    int read;
+    do {
+      read = read(buffer, limit, buffer.length - limit);
+    } while (read == 0);
+    if (read < 0) {
+      endOfInput = true;
+      return false;
+    }
+    limit += read;
+    return true;
+  }
+
+  /** Recorre el texto completo ya materializado: se copia una vez y nunca se vuelve a leer. */
+  private static final class StringSource extends ToonSource {
+    StringSource(char[] chars, int limit) {
+      super(chars, limit, true);
+    }
+
+    @Override
+    int read(char[] target, int offset, int length) {
+      return -1;
+    }
+  }
+
+  /**
+   * Decodifica UTF-8 de una serie de segmentos de bytes directamente sobre el búfer de líneas, por
+   * trozos, sin materializar el documento.
+   */
+  private static final class ByteSource extends ToonSource {
+    private final ByteBuffer[] segments;
+    private final CharsetDecoder decoder = utf8();
+    private int segment = 0;
+    private boolean flushed;
+
+    /** Los segmentos, salvo el último, deben terminar en el límite de una secuencia UTF-8. */
+    ByteSource(ByteBuffer[] segments) {
+      super(new char[BUFFER_SIZE], 0, false);
+      this.segments = segments;
+      this.flushed = segments.length == 0;
+    }
+
+    @Override
+    int read(char[] target, int offset, int length) {
+      CharBuffer out = CharBuffer.wrap(target, offset, length);
+      while (out.position() == offset && segment < segments.length) {
+        CoderResult result =
+            decoder.decode(segments[segment], out, segment == segments.length - 1);
+        if (result.isUnderflow()) {
+          segment++;
+        }
+      }
+      if (out.position() == offset && !flushed) {
+        CoderResult result = decoder.flush(out);
+        flushed = !result.isOverflow();
+      }
+      int read = out.position() - offset;
+      return read == 0 && flushed ? -1 : read;
+    }
+  }
+
+  /**
+   * Lee de un {@link Reader} a través de un búfer acotado; la memoria retenida es proporcional a la
+   * línea más larga y no al tamaño del documento.
+   */
+  private static final class ReaderSource extends ToonSource {
+    private final Reader reader;
+
+    ReaderSource(Reader reader) {
+      super(new char[BUFFER_SIZE], 0, false);
+      this.reader = reader;
+    }
+
+    @Override
+    int read(char[] target, int offset, int length) {
+      try {
+        return reader.read(target, offset, length);
+      } catch (IOException ex) {
+        throw new ToonException("No se pudo leer la entrada TOON", ex);
+      }
+    }
+  }
+}
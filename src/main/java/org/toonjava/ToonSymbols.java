@@ -0,0 +1,99 @@
+package org.toonjava;
+
+/**
+ * Tabla acotada de cadenas canónicas de un analizador léxico: las claves y los valores cortos que
+ * se repiten en el documento se materializan una sola vez y las apariciones siguientes comparten la
+ * misma instancia de {@link String}, sin crear ninguna al buscarlas.
+ *
+ * <p>Es una tabla de direccionamiento abierto indexada por el hash del rango de caracteres, el
+ * mismo que calcularía {@link String#hashCode()}. Empieza pequeña y crece hasta guardar {@code
+ * capacity} cadenas, o {@link #MAX_CAPACITY} si es mayor; a partir de ahí las nuevas se crean sin
+ * guardarlas. No es segura entre hilos: cada {@link ToonLines} tiene la suya.
+ */
+final class ToonSymbols {
+  /** Longitud máxima de las cadenas que se comparten; las más largas rara vez se repiten. */
+  static final int MAX_LENGTH = 32;
+
+  /** Cadenas que guarda como mucho una tabla, para que sus huecos quepan en un array. */
+  static final int MAX_CAPACITY = 1 << 29;
+
+  private static final int INITIAL_SLOTS = 64;
+
+  private final int capacity;
+  private String[] entries;
+  private int[] hashes;
+  private int size;
+
+  ToonSymbols(int capacity) {
+    this.capacity = Math.min(capacity, MAX_CAPACITY);
+    int slots = Math.min(INITIAL_SLOTS, slotsFor(this.capacity));
+    this.entries = new String[slots];
+    this.hashes = new int[slots];
+  }
+
+  /** Primera potencia de dos con la que {@code capacity} cadenas ocupan como mucho la mitad. */
+  private static int slotsFor(int capacity) {
+    return Integer.highestOneBit(Math.max(1, capacity) * 2 - 1) * 2;
+  }
+
+  /** Cadena con los caracteres de {@code chars[start, end)}, compartida si ya apareció antes. */
+  String get(char[] chars, int start, int end) {
+    int length = end - start;
+    if (length > MAX_LENGTH) {
+      return new String(chars, start, length);
+    }
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    int mask = entries.length - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    String entry;
+    while ((entry = entries[slot]) != null) {
+      if (hashes[slot] == hash && matches(entry, chars, start, length)) {
+        return entry;
+      }
+      slot = (slot + 1) & mask;
+    }
+    String created = new String(chars, start, length);
+    if (size < capacity) {
+      entries[slot] = created;
+      hashes[slot] = hash;
+      if (++size * 2 > entries.length && entries.length < slotsFor(capacity)) {
+        grow();
+      }
+    }
+    return created;
+  }
+
+  private static boolean matches(String entry, char[] chars, int start, int length) {
+    if (entry.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (entry.charAt(i) != chars[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void grow() {
+    String[] oldEntries = entries;
+    int[] oldHashes = hashes;
+    entries = new String[oldEntries.length * 2];
+    hashes = new int[entries.length];
+    int mask = entries.length - 1;
+    for (int i = 0; i < oldEntries.length; i++) {
+      if (oldEntries[i] != null) {
+        int hash = oldHashes[i];
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (entries[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        entries[slot] = oldEntries[i];
+        hashes[slot] = hash;
+      }
+    }
+  }
+}
@@ -0,0 +1,302 @@
+package org.toonjava;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Array tabular (SPEC §9.3) almacenado por columnas. Se obtiene al decodificar con {@link
+ * ToonDecoderOptions#withColumnar(boolean)} y sigue siendo un {@link ToonArray}: cada elemento es
+ * una vista {@link ToonObject} de sólo lectura que se crea al acceder a la fila, sin un mapa por
+ * fila en memoria.
+ *
+ * <p>Cada columna se guarda en un array primitivo según su {@link ColumnType}; los accesores {@code
+ * getXColumn} devuelven una copia del array en el que las filas nulas valen {@code 0}, {@code
+ * false} o {@code null} (consúltelas con {@link #isNull(int, String)}).
+ */
+public final class ToonTable extends ToonArray {
+
+  /** Tipo de almacenamiento de una columna tras aplicar las ampliaciones por conflicto. */
+  public enum ColumnType {
+    /** Todas las filas son {@code null}. */
+    NULL,
+    INT,
+    LONG,
+    /** Números en coma flotante, posiblemente mezclados con enteros representables exactamente. */
+    DOUBLE,
+    BOOLEAN,
+    STRING,
+    /** Tipos incompatibles entre sí; los valores se guardan en caja. */
+    MIXED
+  }
+
+  private final Rows rows;
+
+  ToonTable(List<String> fields, ToonColumn[] columns) {
+    this(new Rows(fields, columns, true));
+  }
+
+  private ToonTable(Rows rows) {
+    super(rows);
+    this.rows = rows;
+  }
+
+  /**
+   * Filas como mapas de sólo lectura con los valores sin centinelas, tal como las devuelve {@link
+   * ToonTokener#nextValue()}. Al envolverlas, {@link ToonObject} y {@link ToonArray} las convierten
+   * de nuevo en un {@link ToonTable} sin copiar las columnas.
+   */
+  List<Object> rowMaps() {
+    return new Rows(rows.fields, rows.columns, false);
+  }
+
+  /** Valores de una fila en el orden de {@link #fields()}, con los nulos como {@code null}. */
+  Object[] rowValues(int row) {
+    checkRow(row);
+    Object[] values = new Object[rows.columns.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = rows.columns[i].get(row);
+    }
+    return values;
+  }
+
+  /** Nombres de las columnas en el orden del encabezado. */
+  public List<String> fields() {
+    return rows.fields;
+  }
+
+  /** Las columnas sólo guardan primitivos, así que la tabla es uniforme mientras tenga filas. */
+  @Override
+  List<String> tabularFields() {
+    return isEmpty() ? null : rows.fields;
+  }
+
+  /** Las columnas sólo guardan primitivos: no hay nada diferido que interpretar. */
+  @Override
+  public ToonTable validate() {
+    return this;
+  }
+
+  /** La tabla ya es de sólo lectura y sus filas no pueden cambiar. */
+  @Override
+  public ToonTable freeze() {
+    return this;
+  }
+
+  @Override
+  void freezeTree() {}
+
+  @Override
+  public boolean isFrozen() {
+    return true;
+  }
+
+  public ColumnType columnType(String field) {
+    return rows.column(field).type();
+  }
+
+  /** Devuelve la fila indicada como vista {@link ToonObject}. */
+  public ToonObject row(int index) {
+    return getObject(index);
+  }
+
+  public boolean isNull(int row, String field) {
+    ToonColumn column = rows.column(field);
+    checkRow(row);
+    return column.isNull(row);
+  }
+
+  public int[] getIntColumn(String field) {
+    return requireType(field, "int", ColumnType.INT).ints();
+  }
+
+  public long[] getLongColumn(String field) {
+    return requireType(field, "long", ColumnType.INT, ColumnType.LONG).longs();
+  }
+
+  public double[] getDoubleColumn(String field) {
+    return requireType(field, "double", ColumnType.INT, ColumnType.LONG, ColumnType.DOUBLE)
+        .doubles();
+  }
+
+  public boolean[] getBooleanColumn(String field) {
+    return requireType(field, "boolean", ColumnType.BOOLEAN).booleans();
+  }
+
+  public String[] getStringColumn(String field) {
+    return requireType(field, "String", ColumnType.STRING).strings();
+  }
+
+  private ToonColumn requireType(String field, String expected, ColumnType... accepted) {
+    ToonColumn column = rows.column(field);
+    if (column.type() == ColumnType.NULL) {
+      return column;
+    }
+    for (ColumnType type : accepted) {
+      if (column.type() == type) {
+        return column;
+      }
+    }
+    throw new ToonException(
+        "La columna '"
+            + field
+            + "' es de tipo "
+            + column.type()
+            + " y no se puede leer como "
+            + expected);
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= rows.size) {
+      throw new ToonException("Índice fuera de rango: " + row);
+    }
+  }
+
+  private static ToonException readOnly() {
+    return new ToonException("ToonTable es de sólo lectura");
+  }
+
+  /**
+   * Filas de la tabla. Con {@code canonical} las filas son {@link ToonObject} y los nulos el
+   * centinela {@link ToonNull}, como espera {@link ToonArray}; sin él son mapas simples.
+   */
+  static final class Rows extends AbstractList<Object> {
+    final List<String> fields;
+    final ToonColumn[] columns;
+    final int size;
+    private final boolean canonical;
+    private final Map<String, Integer> index;
+
+    Rows(List<String> fields, ToonColumn[] columns, boolean canonical) {
+      this.fields = List.copyOf(fields);
+      this.columns = columns;
+      this.size = columns.length == 0 ? 0 : columns[0].size();
+      this.canonical = canonical;
+      this.index = new HashMap<>(fields.size() * 2);
+      for (int i = 0; i < fields.size(); i++) {
+        index.put(fields.get(i), i);
+      }
+    }
+
+    /** Vuelve a envolver las mismas columnas como {@link ToonTable}. */
+    ToonTable toTable() {
+      return new ToonTable(fields, columns);
+    }
+
+    ToonColumn column(String field) {
+      Objects.requireNonNull(field, "field");
+      Integer position = index.get(field);
+      if (position == null) {
+        throw new ToonException("Columna no encontrada: " + field);
+      }
+      return columns[position];
+    }
+
+    @Override
+    public Object get(int row) {
+      Objects.checkIndex(row, size);
+      Row view = new Row(this, row);
+      return canonical ? ToonObject.view(view) : view;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void add(int row, Object value) {
+      throw readOnly();
+    }
+
+    @Override
+    public Object set(int row, Object value) {
+      throw readOnly();
+    }
+
+    @Override
+    public Object remove(int row) {
+      throw readOnly();
+    }
+
+    Object value(int column, int row) {
+      Object value = columns[column].get(row);
+      return value == null && canonical ? ToonNull.INSTANCE : value;
+    }
+  }
+
+  /** Vista de una fila: las claves son los campos del encabezado y los valores, de las columnas. */
+  private static final class Row extends AbstractMap<String, Object> {
+    private final Rows rows;
+    private final int row;
+
+    Row(Rows rows, int row) {
+      this.rows = rows;
+      this.row = row;
+    }
+
+    @Override
+    public int size() {
+      return rows.columns.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return rows.index.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+      Integer position = rows.index.get(key);
+      return position == null ? null : rows.value(position, row);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+      throw readOnly();
+    }
+
+    @Override
+    public Object remove(Object key) {
+      throw readOnly();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public int size() {
+          return rows.columns.length;
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          return new Iterator<>() {
+            private int column = 0;
+
+            @Override
+            public boolean hasNext() {
+              return column < rows.columns.length;
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              int current = column++;
+              return new SimpleImmutableEntry<>(rows.fields.get(current), rows.value(current, row));
+            }
+          };
+        }
+      };
+    }
+  }
+}
@@ -1,680 +1,798 @@
 package org.toonjava;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.io.Reader;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.toonjava.grammar.ToonLexer;
-import org.toonjava.grammar.ToonParser;
+import java.util.concurrent.ForkJoinPool;
+import org.toonjava.ToonLines.HeaderLine;
+import org.toonjava.ToonLines.LineInfo;
+import org.toonjava.ToonLines.ParsedKeyValue;
 
 /**
- * Tokener sencillo que envuelve el parser ANTLR de encabezados para transformar texto TOON en
- * estructuras básicas de Java (Map/List). Soporta encabezados con valores inline, arrays tabulares
- * y objetos multi-línea dentro de arrays.
+ * Tokener sencillo que transforma texto TOON en estructuras básicas de Java (Map/List). Soporta
+ * encabezados con valores inline, arrays tabulares y objetos multi-línea dentro de arrays. Los
+ * encabezados de array se analizan con {@link ToonHeader}, sin dependencias de runtime.
+ *
+ * <p>El recorrido produce eventos para un {@link ToonHandler} ({@link #parseValue(ToonHandler)}).
+ * Los métodos que devuelven valores adaptan esos eventos a un {@link ToonValueBuilder}: sin
+ * argumentos producen {@code Map}/{@code List}, y las variantes que reciben un constructor permiten
+ * obtener directamente cualquier otra representación en una sola pasada.
+ *
+ * <p>Las líneas se leen bajo demanda desde un {@link ToonSource} con una única línea de
+ * anticipación, por lo que la memoria del tokener depende de la profundidad de anidamiento y no del
+ * tamaño del documento.
+ *
+ * <p>Internamente las líneas, celdas y pares clave:valor se representan como rangos de índices
+ * sobre el búfer de la fuente; sólo las claves y los valores finales se materializan como {@link
+ * String}, y las columnas de error se calculan a partir del índice únicamente al lanzar la
+ * excepción.
  */
 public final class ToonTokener {
-  private final List<LineInfo> lines;
+  /** Destino de los eventos de los valores que la proyección excluye. */
+  private static final ToonHandler SKIPPED = new ToonHandler() {};
+
+  private final ToonLines lines;
   private final ToonDecoderOptions options;
   private final int indentSize;
-  private int index = 0;
+  private ToonHandler handler;
+
+  /** Parte de la {@link ToonProjection} que se aplica al valor en curso. */
+  private ToonProjection.Node projection = ToonProjection.Node.ALL;
+
+  /** Indica que se recorre un valor excluido sólo para comprobar su estructura. */
+  private boolean skipping;
 
   public ToonTokener(String source) {
     this(source, ToonDecoderOptions.defaults());
   }
 
   public ToonTokener(String source, ToonDecoderOptions options) {
-    Objects.requireNonNull(source, "source");
+    this(ToonSource.of(source), options);
+  }
+
+  /**
+   * Crea un tokener que consume el {@link Reader} de forma incremental. El lector no se cierra al
+   * terminar; esa responsabilidad queda en quien lo creó.
+   */
+  public ToonTokener(Reader reader) {
+    this(reader, ToonDecoderOptions.defaults());
+  }
+
+  public ToonTokener(Reader reader, ToonDecoderOptions options) {
+    this(ToonSource.of(reader), options);
+  }
+
+  ToonTokener(ToonSource source, ToonDecoderOptions options) {
     this.options = Objects.requireNonNull(options, "options");
+    this.lines = new ToonLines(source, options);
     this.indentSize = options.indent();
-    this.lines = normalizeLines(source);
   }
 
   public boolean hasMoreValues() {
-    skipBlankLines();
-    return index < lines.size();
+    lines.skipBlank();
+    return lines.peek() != null;
   }
 
   public Object nextValue() {
-    skipBlankLines();
-    if (index >= lines.size()) {
-      return null;
+    return nextValue(ToonBuilders.MAPS);
+  }
+
+  /** Lee el siguiente valor construyendo sus contenedores con {@code builder}. */
+  public <O, A> Object nextValue(ToonValueBuilder<O, A> builder) {
+    ToonBuilders.Assembler assembler = assembler(builder);
+    return parseValue(assembler) ? assembler.result() : null;
+  }
+
+  /**
+   * Recorre el siguiente valor entregando sus eventos a {@code handler}, sin construir ningún
+   * contenedor.
+   *
+   * @return {@code false} si no quedan valores en la fuente.
+   */
+  public boolean parseValue(ToonHandler handler) {
+    this.handler = Objects.requireNonNull(handler, "handler");
+    lines.skipBlank();
+    LineInfo current = lines.peek();
+    if (current == null) {
+      return false;
     }
-    LineInfo current = peekLine();
-    HeaderLine headerLine = parseHeaderLine(current);
+    HeaderLine headerLine = lines.parseHeaderLine(current);
     if (headerLine != null && headerLine.header.key == null) {
-      consumeLine();
-      return readArray(headerLine, current.indent + indentSize);
-    }
-    if (!current.trimmed.contains(":") || isQuoted(current.trimmed)) {
-      consumeLine();
-      return parsePrimitive(current.trimmed, current.lineNumber, current.indent + 1);
+      lines.consume();
+      readArray(headerLine, current.indent() + indentSize, current.indent() == 0);
+    } else if (lines.indexOf(':', current.start(), current.end()) < 0
+        || ToonPrimitives.isQuoted(lines.chars(), current.start(), current.end())) {
+      lines.consume();
+      if (lines.diagnosing()) {
+        lines.checkPrimitive(current, current.start(), current.end());
+      } else {
+        handler.primitive(lines.parsePrimitive(current, current.start(), current.end()));
+      }
+    } else {
+      readObject(current.indent());
     }
-    return readObject(current.indent);
+    return true;
   }
 
   public Map<String, Object> nextObject() {
-    skipBlankLines();
-    if (index >= lines.size()) {
-      throw error("No hay objeto disponible", currentLineNumber(), 1);
+    return nextObject(ToonBuilders.MAPS);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <O, A> O nextObject(ToonValueBuilder<O, A> builder) {
+    ToonBuilders.Assembler assembler = assembler(builder);
+    this.handler = assembler;
+    lines.skipBlank();
+    LineInfo current = lines.peek();
+    if (current == null) {
+      throw ToonLines.error("No hay objeto disponible", lines.lineNumber(), 1);
     }
-    LineInfo current = peekLine();
-    return readObject(current.indent);
+    readObject(current.indent());
+    return (O) assembler.result();
   }
 
   public List<Object> nextArray() {
-    skipBlankLines();
-    if (index >= lines.size()) {
-      throw error("No hay array disponible", currentLineNumber(), 1);
+    return nextArray(ToonBuilders.MAPS);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <O, A> A nextArray(ToonValueBuilder<O, A> builder) {
+    ToonBuilders.Assembler assembler = assembler(builder);
+    this.handler = assembler;
+    lines.skipBlank();
+    LineInfo current = lines.peek();
+    if (current == null) {
+      throw ToonLines.error("No hay array disponible", lines.lineNumber(), 1);
     }
-    LineInfo current = peekLine();
-    HeaderLine headerLine = parseHeaderLine(current);
+    HeaderLine headerLine = lines.parseHeaderLine(current);
     if (headerLine == null || headerLine.header.key != null) {
-      throw error("Se esperaba encabezado de array en la posición actual", current.lineNumber, 1);
+      throw ToonLines.error(
+          "Se esperaba encabezado de array en la posición actual", current.lineNumber(), 1);
+    }
+    lines.consume();
+    readArray(headerLine, current.indent() + indentSize, current.indent() == 0);
+    return (A) assembler.result();
+  }
+
+  /**
+   * Limita los valores siguientes a las rutas de {@code projection}: el resto de entradas se saltan
+   * sin interpretarlas.
+   */
+  ToonTokener project(ToonProjection projection) {
+    this.projection = Objects.requireNonNull(projection, "projection").root();
+    return this;
+  }
+
+  /**
+   * Prepara el tokener para {@link ToonValidator}: los valores se recorren como los que excluye una
+   * proyección, sin entregar eventos, pero comprobando sus primitivos, y los errores se anotan en
+   * {@code report} en lugar de lanzarse.
+   */
+  ToonTokener validating(ToonValidator.Report report) {
+    lines.diagnose(report);
+    skipping = true;
+    return this;
+  }
+
+  /** Valida el siguiente valor en el modo de {@link #validating}; {@code false} si no quedan. */
+  boolean validateValue() {
+    return parseValue(SKIPPED);
+  }
+
+  /**
+   * Indica si el siguiente valor es un objeto, como lo decidiría {@link #parseValue}, sin consumir
+   * su primera línea. Si el encabezado de esa línea no es válido, se considera un objeto salvo que
+   * empiece por {@code [}.
+   */
+  boolean nextIsObject() {
+    lines.skipBlank();
+    LineInfo current = lines.peek();
+    if (current == null) {
+      return false;
+    }
+    try {
+      HeaderLine headerLine = lines.parseHeaderLine(current);
+      if (headerLine != null && headerLine.header.key == null) {
+        return false;
+      }
+    } catch (ToonException ex) {
+      return lines.chars()[current.start()] != '[';
     }
-    consumeLine();
-    return readArray(headerLine, current.indent + indentSize);
+    return lines.indexOf(':', current.start(), current.end()) >= 0
+        && !ToonPrimitives.isQuoted(lines.chars(), current.start(), current.end());
   }
 
-  private Map<String, Object> readObject(int expectedIndent) {
-    Map<String, Object> result = new LinkedHashMap<>();
-    readObjectEntries(result, expectedIndent);
-    return result;
+  /**
+   * Valida, en el modo de {@link #validating}, más entradas del objeto raíz a partir de la línea
+   * actual, tras reanudar la lectura con {@link #recover}; {@code false} si no quedan líneas.
+   */
+  boolean validateEntries() {
+    if (!hasMoreValues()) {
+      return false;
+    }
+    readObjectEntries(0, false);
+    return true;
   }
 
-  private void readObjectEntries(Map<String, Object> target, int expectedIndent) {
-    boolean allowIndentAdjustment = target.isEmpty();
-    while (index < lines.size()) {
-      LineInfo line = peekLine();
-      if (line.trimmed.isEmpty()) {
+  /**
+   * Tras un error que interrumpió el valor en curso, descarta las líneas hasta la línea {@code
+   * line} incluida y las siguientes hasta la próxima línea sin indentación, donde la validación
+   * puede seguir.
+   */
+  void recover(int line) {
+    LineInfo current;
+    while ((current = lines.peek()) != null
+        && (current.lineNumber() <= line || current.isBlank() || current.indent() > 0)) {
+      lines.consume();
+    }
+  }
+
+  /** Número de la línea actual, o de la última leída si no quedan líneas. */
+  int lineNumber() {
+    LineInfo current = lines.peek();
+    return current != null ? current.lineNumber() : lines.lineNumber();
+  }
+
+  private ToonBuilders.Assembler assembler(ToonValueBuilder<?, ?> builder) {
+    return new ToonBuilders.Assembler(
+        Objects.requireNonNull(builder, "builder"), options.columnar());
+  }
+
+  private void readObject(int expectedIndent) {
+    handler.startObject();
+    if (expectedIndent > 0 || readBlocks(null, 0) < 0) {
+      readObjectEntries(expectedIndent, true);
+    }
+    handler.endObject();
+  }
+
+  private void readObjectEntries(int expectedIndent, boolean allowIndentAdjustment) {
+    LineInfo line;
+    while ((line = lines.peek()) != null) {
+      if (line.isBlank()) {
         // Blank lines fuera de arrays: se ignoran.
-        consumeLine();
+        lines.consume();
         continue;
       }
-      if (line.indent < expectedIndent) {
+      if (line.indent() < expectedIndent) {
         break;
       }
-      if (line.indent > expectedIndent) {
+      if (line.indent() > expectedIndent) {
         if (allowIndentAdjustment) {
-          expectedIndent = line.indent;
+          expectedIndent = line.indent();
         } else {
-          throw error("Indentación inesperada", line.lineNumber, line.indent + 1);
+          throw lines.fail("Indentación inesperada", line, line.start());
         }
       }
 
-      HeaderLine headerLine = parseHeaderLine(line);
+      HeaderLine headerLine = lines.parseHeaderLine(line);
       if (headerLine != null) {
         if (headerLine.header.key == null) {
-          throw error(
-              "Los encabezados de array dentro de objetos requieren una clave", line.lineNumber, 1);
+          throw lines.fail(
+              "Los encabezados de array dentro de objetos requieren una clave",
+              line,
+              line.lineStart());
         }
-        consumeLine();
-        target.put(headerLine.header.key, readArray(headerLine, expectedIndent + indentSize));
-        readObjectEntries(target, expectedIndent);
+        lines.consume();
+        readKeyedArray(headerLine, expectedIndent, true);
+        readObjectEntries(expectedIndent, false);
         allowIndentAdjustment = false;
         continue;
       }
 
-      consumeLine();
-      ParsedKeyValue kv = parseKeyValue(line.trimmed, line.lineNumber, line.indent + 1);
-      if (kv.valueSegment.isEmpty()) {
-        target.put(kv.key, readObject(expectedIndent + indentSize));
-      } else {
-        target.put(kv.key, parsePrimitive(kv.valueSegment, line.lineNumber, kv.valueColumn));
-      }
+      lines.consume();
+      readKeyValue(line, line.start(), line.end(), expectedIndent + indentSize, true);
       allowIndentAdjustment = false;
     }
   }
 
-  private List<Object> readArray(HeaderLine headerLine, int expectedIndent) {
-    Header header = headerLine.header;
-    List<Object> items = new ArrayList<>();
+  /**
+   * Entrega la clave y el valor de {@code key: valor}; un valor vacío abre un objeto anidado, que
+   * con {@code deferrable} puede entregarse como {@link ToonDeferred}.
+   */
+  private void readKeyValue(
+      LineInfo line, int start, int end, int nestedIndent, boolean deferrable) {
+    if (skipping) {
+      int colonIndex = lines.findKeyColon(line, start, end);
+      int valueStart = lines.skipSpaces(colonIndex + 1, end);
+      if (lines.diagnosing()) {
+        lines.checkKey(line, start, colonIndex);
+        lines.checkPrimitive(line, valueStart, end);
+      }
+      if (valueStart == end) {
+        readObject(nestedIndent);
+      }
+      return;
+    }
+    ParsedKeyValue kv = lines.parseKeyValue(line, start, end);
+    boolean nested = kv.valueStart() == kv.valueEnd();
+    ToonProjection.Node parent = projection;
+    ToonProjection.Node selected = parent.select(kv.key());
+    if (selected == null || !(nested || selected.all())) {
+      if (nested) {
+        skipValue(null, nestedIndent - indentSize);
+      }
+      return;
+    }
+    handler.key(kv.key());
+    if (nested) {
+      projection = selected;
+      if (!deferrable
+          || !deferring()
+          || !defer(lines.nextLineStart(), line.lineNumber(), nestedIndent - indentSize, false)) {
+        readObject(nestedIndent);
+      }
+      projection = parent;
+    } else {
+      handler.primitive(lines.parsePrimitive(line, kv.valueStart(), kv.valueEnd()));
+    }
+  }
+
+  /**
+   * Entrega la clave y el array de {@code headerLine}, cuyo objeto tiene indentación {@code
+   * indent}, o lo salta si la proyección lo excluye. Con {@code deferrable} el array puede
+   * entregarse como {@link ToonDeferred}.
+   */
+  private void readKeyedArray(HeaderLine headerLine, int indent, boolean deferrable) {
+    ToonProjection.Node parent = projection;
+    projection = parent.select(headerLine.header.key);
+    if (projection == null) {
+      projection = parent;
+      skipValue(headerLine, indent);
+      return;
+    }
+    handler.key(headerLine.header.key);
+    LineInfo line = headerLine.line;
+    if (!deferrable
+        || headerLine.inlineStart < headerLine.inlineEnd
+        || !deferring()
+        || !defer(line.lineStart(), line.lineNumber() - 1, indent, true)) {
+      readArray(headerLine, indent + indentSize, false);
+    }
+    projection = parent;
+  }
+
+  /**
+   * Salta el valor de una clave que la proyección excluye: el array de {@code headerLine} o, si es
+   * {@code null}, el objeto anidado bajo una línea con indentación {@code indent}. En modo estricto
+   * se recorre sin entregar eventos ni interpretar primitivos, comprobando la indentación, las
+   * celdas de las filas y las longitudes declaradas; si no, se salta por indentación sin leerlo.
+   */
+  private void skipValue(HeaderLine headerLine, int indent) {
+    if (!options.strict()) {
+      skipLines(indent);
+      return;
+    }
+    ToonHandler target = handler;
+    ToonProjection.Node node = projection;
+    handler = SKIPPED;
+    projection = ToonProjection.Node.ALL;
+    skipping = true;
+    try {
+      if (headerLine != null) {
+        readArray(headerLine, indent + indentSize, false);
+      } else {
+        readObject(indent + indentSize);
+      }
+    } finally {
+      handler = target;
+      projection = node;
+      skipping = false;
+    }
+  }
+
+  /** Consume las líneas en blanco o con más de {@code indent} espacios de indentación. */
+  private void skipLines(int indent) {
+    if (lines.retainsInput()) {
+      lines.skipIndentedBlock(indent);
+      return;
+    }
+    LineInfo line;
+    while ((line = lines.peek()) != null && (line.isBlank() || line.indent() > indent)) {
+      lines.consume();
+    }
+  }
+
+  /**
+   * Indica si los bloques anidados bajo una clave pueden entregarse como {@link ToonDeferred}: en
+   * modo {@code lazy}, con la entrada completa en memoria y construyendo el árbol de {@link
+   * ToonObject}.
+   */
+  private boolean deferring() {
+    return options.lazy()
+        && projection.all()
+        && lines.retainsInput()
+        && handler instanceof ToonBuilders.Assembler assembler
+        && assembler.defers();
+  }
+
+  /**
+   * Salta el bloque anidado bajo la línea recién consumida, con indentación {@code indent}, y lo
+   * entrega como {@link ToonDeferred} que empieza en {@code start}, tras la línea {@code
+   * lineNumber}.
+   *
+   * @return {@code false} si el bloque no tiene ninguna línea; en ese caso no se entrega nada.
+   */
+  private boolean defer(int start, int lineNumber, int indent, boolean array) {
+    int end = lines.skipIndentedBlock(indent);
+    if (end < 0) {
+      return false;
+    }
+    ((ToonBuilders.Assembler) handler)
+        .deferred(new ToonDeferred(lines.chars(), start, end, lineNumber, indent, array, options));
+    return true;
+  }
+
+  /**
+   * Interpreta un bloque diferido con un tokener propio sobre el mismo búfer. Las líneas del bloque
+   * que la lectura completa habría dejado al objeto padre producen el mismo error que en ella.
+   */
+  static Object parseDeferred(ToonDeferred block) {
+    ToonTokener tokener =
+        new ToonTokener(ToonSource.of(block.chars(), block.end()), block.options());
+    tokener.lines.resume(block.start(), block.lineNumber(), false);
+    ToonBuilders.Assembler assembler = tokener.assembler(ToonBuilders.TOON);
+    tokener.handler = assembler;
+    int nestedIndent = block.indent() + tokener.indentSize;
+    if (block.array()) {
+      LineInfo line = tokener.lines.peek();
+      tokener.lines.consume();
+      tokener.readArray(tokener.lines.parseHeaderLine(line), nestedIndent, false);
+    } else {
+      tokener.readObject(nestedIndent);
+    }
+    tokener.lines.skipBlank();
+    LineInfo rest = tokener.lines.peek();
+    if (rest != null) {
+      throw ToonLines.error("Indentación inesperada", rest, rest.start());
+    }
+    return assembler.result();
+  }
+
+  /**
+   * Lee un array a partir de su encabezado.
+   *
+   * @param root si es la lista raíz del documento, cuyos elementos pueden leerse en paralelo.
+   */
+  private void readArray(HeaderLine headerLine, int expectedIndent, boolean root) {
+    ToonHeader header = headerLine.header;
+    int[] columns = header.isTabular() && !projection.all() ? selectColumns(header.fields) : null;
+    handler.startArray(
+        header.length, header.delimiter, columns == null ? header.fields : fields(header, columns));
+    int count = 0;
 
-    if (!headerLine.inlineSegment.isEmpty()) {
+    boolean inline = headerLine.inlineStart < headerLine.inlineEnd;
+    if (inline) {
       if (header.isTabular()) {
-        Map<String, Object> row =
-            parseTabularRow(
-                headerLine.inlineSegment, header, headerLine.lineNumber, headerLine.inlineColumn);
-        items.add(row);
+        Object[] cells = new Object[columns == null ? header.fields.size() : columns.length];
+        readTabularRow(
+            headerLine.line,
+            headerLine.inlineStart,
+            headerLine.inlineEnd,
+            header,
+            new int[2 * header.fields.size()],
+            cells,
+            columns);
+        handler.tabularRow(cells);
+        count++;
       } else {
-        List<TokenSlice> tokens =
-            parseDelimitedValues(
-                headerLine.inlineSegment,
-                header.delimiter,
-                headerLine.lineNumber,
-                headerLine.inlineColumn);
-        for (TokenSlice slice : tokens) {
-          items.add(parsePrimitive(slice.text, headerLine.lineNumber, slice.column));
-        }
+        count +=
+            readDelimitedValues(
+                headerLine.line, headerLine.inlineStart, headerLine.inlineEnd, header.delimiter);
       }
     }
+    int blocks = root && !inline && !header.isTabular() ? readBlocks(header, expectedIndent) : -1;
+    count += blocks >= 0 ? blocks : readElements(header, expectedIndent, columns);
 
-    while (index < lines.size()) {
-      LineInfo line = peekLine();
-      if (line.trimmed.isEmpty()) {
+    if (header.length >= 0 && count != header.length) {
+      lines.report(
+          "El encabezado declara " + header.length + " elementos pero se leyeron " + count,
+          headerLine.line.lineNumber(),
+          1);
+    }
+    handler.endArray();
+  }
+
+  /**
+   * Posiciones de los campos tabulares que la proyección selecciona, o {@code null} si los
+   * selecciona todos.
+   */
+  private int[] selectColumns(List<String> fields) {
+    int[] columns = new int[fields.size()];
+    int count = 0;
+    for (int i = 0; i < columns.length; i++) {
+      ToonProjection.Node field = projection.select(fields.get(i));
+      if (field != null && field.all()) {
+        columns[count++] = i;
+      }
+    }
+    return count == columns.length ? null : Arrays.copyOf(columns, count);
+  }
+
+  private static List<String> fields(ToonHeader header, int[] columns) {
+    String[] fields = new String[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      fields[i] = header.fields.get(columns[i]);
+    }
+    return List.of(fields);
+  }
+
+  /**
+   * Lee las líneas de elementos de un array y devuelve cuántos entregó. De las filas tabulares sólo
+   * se interpretan las celdas de {@code columns}, o todas si es {@code null}.
+   */
+  private int readElements(ToonHeader header, int expectedIndent, int[] columns) {
+    Object[] cells =
+        header.isTabular()
+            ? new Object[columns == null ? header.fields.size() : columns.length]
+            : null;
+    int[] bounds = header.isTabular() ? new int[2 * header.fields.size()] : null;
+    boolean batched =
+        header.isTabular()
+            && columns == null
+            && !skipping
+            && options.parallel()
+            && header.length >= options.parallelThreshold();
+    int count = 0;
+    LineInfo line;
+    while ((line = lines.peek()) != null) {
+      if (line.isBlank()) {
         if (options.strict()) {
-          if (line.indent < expectedIndent) {
+          if (line.indent() < expectedIndent) {
             break;
           }
-          throw error(
+          lines.report(
               "Las líneas en blanco dentro de arrays no son válidas en modo estricto",
-              line.lineNumber,
-              line.indent + 1);
+              line,
+              line.start());
         }
-        consumeLine();
+        lines.consume();
         // En modo no estricto, mantenga la posición del encabezado para elementos posteriores.
         continue;
       }
-      if (line.indent < expectedIndent) {
+      if (line.indent() < expectedIndent) {
         break;
       }
 
       if (header.isTabular()) {
-        if (line.indent == expectedIndent
-            && line.trimmed.indexOf(header.delimiter) < 0
-            && findColonOutsideQuotes(line.trimmed) >= 0) {
+        if (line.indent() == expectedIndent
+            && lines.indexOf(header.delimiter, line.start(), line.end()) < 0
+            && lines.findColonOutsideQuotes(line.start(), line.end()) >= 0) {
           break;
         }
-        if (line.indent != expectedIndent) {
-          throw error("Indentación inválida en fila tabular", line.lineNumber, line.indent + 1);
+        if (line.indent() != expectedIndent) {
+          throw lines.fail("Indentación inválida en fila tabular", line, line.start());
+        }
+        if (batched) {
+          count += readTabularRows(header, expectedIndent);
+          continue;
         }
-        consumeLine();
-        Map<String, Object> row =
-            parseTabularRow(line.trimmed, header, line.lineNumber, line.indent + 1);
-        items.add(row);
+        lines.consume();
+        readTabularRow(line, line.start(), line.end(), header, bounds, cells, columns);
+        handler.tabularRow(cells);
+        count++;
         continue;
       }
 
-      if (!line.trimmed.startsWith("-")) {
-        if (line.indent == expectedIndent) {
+      if (lines.chars()[line.start()] != '-') {
+        if (line.indent() == expectedIndent) {
           break;
         }
-        throw error(
-            "Se esperaba elemento de array con prefijo '- '", line.lineNumber, line.indent + 1);
+        throw lines.fail("Se esperaba elemento de array con prefijo '- '", line, line.start());
       }
 
-      consumeLine();
-      if (line.trimmed.length() > 1 && line.trimmed.charAt(1) != ' ') {
-        throw error(
-            "Se esperaba elemento de array con prefijo '- '", line.lineNumber, line.indent + 1);
+      lines.consume();
+      if (line.end() - line.start() > 1 && lines.chars()[line.start() + 1] != ' ') {
+        throw lines.fail("Se esperaba elemento de array con prefijo '- '", line, line.start());
       }
-      String payload = line.trimmed.length() == 1 ? "" : line.trimmed.substring(2).trim();
-      if (payload.isEmpty()) {
-        items.add(new LinkedHashMap<>());
+      int payloadStart = lines.skipSpaces(Math.min(line.start() + 2, line.end()), line.end());
+      int payloadEnd = line.end();
+      count++;
+      if (payloadStart == payloadEnd) {
+        handler.startObject();
+        handler.endObject();
         continue;
       }
 
-      HeaderLine nestedHeaderLine = parseHeaderText(payload, line.lineNumber, line.indent + 3);
+      HeaderLine nestedHeaderLine = lines.parseHeaderText(line, payloadStart, payloadEnd);
       if (nestedHeaderLine != null) {
-        List<Object> nested = readArray(nestedHeaderLine, expectedIndent + indentSize);
         if (nestedHeaderLine.header.key != null) {
-          Map<String, Object> inline = new LinkedHashMap<>();
-          inline.put(nestedHeaderLine.header.key, nested);
-          readObjectEntries(inline, expectedIndent + indentSize);
-          items.add(inline);
+          handler.startObject();
+          readKeyedArray(nestedHeaderLine, expectedIndent, false);
+          readObjectEntries(expectedIndent + indentSize, false);
+          handler.endObject();
         } else {
-          items.add(nested);
+          readArray(nestedHeaderLine, expectedIndent + indentSize, false);
         }
         continue;
       }
 
-      if (payload.contains(":")) {
-        Map<String, Object> inline = new LinkedHashMap<>();
-        ParsedKeyValue kv = parseKeyValue(payload, line.lineNumber, line.indent + 3);
-        if (kv.valueSegment.isEmpty()) {
-          inline.put(kv.key, readObject(expectedIndent + indentSize));
-        } else {
-          inline.put(kv.key, parsePrimitive(kv.valueSegment, line.lineNumber, kv.valueColumn));
-        }
-        readObjectEntries(inline, expectedIndent + indentSize);
-        items.add(inline);
-      } else {
-        items.add(parsePrimitive(payload, line.lineNumber, line.indent + 3));
+      if (lines.indexOf(':', payloadStart, payloadEnd) >= 0) {
+        handler.startObject();
+        readKeyValue(line, payloadStart, payloadEnd, expectedIndent + indentSize, false);
+        readObjectEntries(expectedIndent + indentSize, false);
+        handler.endObject();
+      } else if (!skipping) {
+        handler.primitive(lines.parsePrimitive(line, payloadStart, payloadEnd));
+      } else if (lines.diagnosing()) {
+        lines.checkPrimitive(line, payloadStart, payloadEnd);
       }
     }
-
-    if (header.length >= 0 && items.size() != header.length) {
-      throw error(
-          "El encabezado declara " + header.length + " elementos pero se leyeron " + items.size(),
-          headerLine.lineNumber,
-          1);
-    }
-    return items;
-  }
-
-  private Map<String, Object> parseTabularRow(
-      String rowText, Header header, int line, int startColumn) {
-    List<TokenSlice> slices = parseDelimitedValues(rowText, header.delimiter, line, startColumn);
-    if (slices.size() != header.fields.size()) {
-      throw error(
-          "La fila tabular tiene "
-              + slices.size()
-              + " columnas pero se esperaban "
-              + header.fields.size(),
-          line,
-          startColumn);
-    }
-    Map<String, Object> row = new LinkedHashMap<>();
-    for (int i = 0; i < slices.size(); i++) {
-      TokenSlice slice = slices.get(i);
-      row.put(header.fields.get(i), parsePrimitive(slice.text, line, slice.column));
-    }
-    return row;
-  }
-
-  private ParsedKeyValue parseKeyValue(String text, int line, int startColumn) {
-    int colonIndex = findColonOutsideQuotes(text);
-    if (colonIndex < 0) {
-      throw error("Se esperaba par clave:valor", line, startColumn);
-    }
-    String keySegment = text.substring(0, colonIndex);
-    int keyLeading = 0;
-    while (keyLeading < keySegment.length()
-        && Character.isWhitespace(keySegment.charAt(keyLeading))) {
-      keyLeading++;
-    }
-    int keyTrailing = keySegment.length();
-    while (keyTrailing > keyLeading && Character.isWhitespace(keySegment.charAt(keyTrailing - 1))) {
-      keyTrailing--;
-    }
-    if (keyLeading == keyTrailing) {
-      throw error("Clave vacía en par clave:valor", line, startColumn + keyLeading);
-    }
-    String keyToken = keySegment.substring(keyLeading, keyTrailing);
-    int keyColumn = startColumn + keyLeading;
-    String key = decodeKey(keyToken, line, keyColumn);
-
-    String valueSegment = text.substring(colonIndex + 1).trim();
-
-    int valueIndex = colonIndex + 1;
-    while (valueIndex < text.length() && Character.isWhitespace(text.charAt(valueIndex))) {
-      valueIndex++;
-    }
-    int valueColumn = startColumn + valueIndex;
-    return new ParsedKeyValue(key, valueSegment, valueColumn);
-  }
-
-  private String decodeKey(String token, int line, int column) {
-    if (isQuoted(token)) {
-      return unescape(token, line, column);
-    }
-    return token;
-  }
-
-  private HeaderLine parseHeaderLine(LineInfo line) {
-    int colonIndex = findColonOutsideQuotes(line.trimmed);
-    if (colonIndex < 0) {
-      return null;
-    }
-    if (!containsBracketOutsideQuotes(line.trimmed, colonIndex)) {
-      return null;
-    }
-    return parseHeaderText(line.trimmed, line.lineNumber, line.indent + 1);
-  }
-
-  private HeaderLine parseHeaderText(String text, int lineNumber, int startColumn) {
-    int colonIndex = findColonOutsideQuotes(text);
-    if (colonIndex < 0) {
-      return null;
-    }
-    String headerSegment = text.substring(0, colonIndex + 1);
-    if (!headerSegment.contains("[") || !headerSegment.contains("]")) {
-      return null;
-    }
-
-    Header header = parseHeaderSegment(headerSegment, lineNumber, startColumn);
-    String inlineSegment = text.substring(colonIndex + 1).trim();
-
-    String tail = text.substring(colonIndex + 1);
-    int offset = 0;
-    while (offset < tail.length() && Character.isWhitespace(tail.charAt(offset))) {
-      offset++;
-    }
-    int inlineColumn = startColumn + colonIndex + 1 + offset;
-    return new HeaderLine(header, inlineSegment, lineNumber, inlineColumn);
+    return count;
   }
 
-  private static int findColonOutsideQuotes(String text) {
-    boolean inQuotes = false;
-    boolean escaping = false;
-    for (int i = 0; i < text.length(); i++) {
-      char ch = text.charAt(i);
-      if (escaping) {
-        escaping = false;
-        continue;
-      }
-      if (ch == '\\' && inQuotes) {
-        escaping = true;
-        continue;
-      }
-      if (ch == '"') {
-        inQuotes = !inQuotes;
-        continue;
+  /**
+   * Lee en paralelo, a partir de la línea actual, las entradas del objeto raíz ({@code header}
+   * {@code null}) o los elementos de la lista raíz. Cada trozo de {@link ToonBlocks} se interpreta
+   * en el pool de las opciones con su propio tokener sobre el mismo búfer y sus eventos se
+   * reproducen después en orden, de modo que {@link #handler} recibe lo mismo que en la lectura
+   * secuencial y un error se lanza tras los eventos que lo preceden, con la misma línea y columna.
+   *
+   * @return elementos leídos, o {@code -1} si el documento debe leerse de forma secuencial; en ese
+   *     caso no se ha entregado ningún evento ni consumido ninguna línea.
+   */
+  private int readBlocks(ToonHeader header, int blockIndent) {
+    ForkJoinPool pool = options.pool();
+    int parallelism = pool.getParallelism();
+    LineInfo first = lines.peek();
+    if (!options.parallel()
+        || !projection.all()
+        || parallelism < 2
+        || !lines.retainsInput()
+        || first == null
+        || deferring()) {
+      return -1;
+    }
+    ToonBlocks blocks =
+        ToonBlocks.split(
+            lines.chars(),
+            lines.limit(),
+            first.lineStart(),
+            first.lineNumber(),
+            blockIndent,
+            options.parallelThreshold(),
+            parallelism);
+    if (blocks == null) {
+      return -1;
+    }
+    char[] chars = lines.chars();
+    ToonEventTape[] tapes =
+        blocks.parse(pool, chunk -> readBlock(chars, chunk, header, blockIndent));
+    // Un trozo que se detiene antes de su final cerraría la lista en la lectura secuencial.
+    for (ToonEventTape tape : tapes) {
+      if (tape.failure != null) {
+        break;
       }
-      if (ch == ':' && !inQuotes) {
-        return i;
+      if (tape.rest != null && !(tape == tapes[tapes.length - 1] && tape.restBlank)) {
+        return -1;
       }
     }
-    return -1;
-  }
 
-  private static boolean containsBracketOutsideQuotes(String text, int endExclusive) {
-    boolean inQuotes = false;
-    boolean escaping = false;
-    boolean openBracket = false;
-    boolean closeBracket = false;
-    int limit = Math.min(endExclusive, text.length());
-    for (int i = 0; i < limit; i++) {
-      char ch = text.charAt(i);
-      if (escaping) {
-        escaping = false;
-        continue;
-      }
-      if (inQuotes) {
-        if (ch == '\\') {
-          escaping = true;
-        } else if (ch == '"') {
-          inQuotes = false;
-        }
-        continue;
-      }
-      if (ch == '"') {
-        inQuotes = true;
-        continue;
-      }
-      if (ch == '[') {
-        openBracket = true;
-      } else if (ch == ']') {
-        closeBracket = true;
-      }
-      if (openBracket && closeBracket) {
-        return true;
+    int count = 0;
+    for (ToonEventTape tape : tapes) {
+      tape.replay(handler);
+      count += tape.count;
+      if (tape.failure != null) {
+        throw tape.failure;
       }
     }
-    return false;
+    LineInfo rest = tapes[tapes.length - 1].rest;
+    if (rest != null) {
+      lines.resume(rest.lineStart(), rest.lineNumber() - 1, false);
+    } else if (blocks.stopPosition() >= 0) {
+      lines.resume(blocks.stopPosition(), blocks.lastLine(), false);
+    } else {
+      lines.resume(lines.limit(), blocks.lastLine(), true);
+    }
+    return count;
   }
 
-  private Header parseHeaderSegment(String headerText, int line, int startColumn) {
+  /** Interpreta un trozo de {@link #readBlocks} con un tokener propio, registrando sus eventos. */
+  private ToonEventTape readBlock(
+      char[] chars, ToonBlocks.Chunk chunk, ToonHeader header, int blockIndent) {
+    ToonEventTape tape = new ToonEventTape();
+    ToonTokener block = new ToonTokener(ToonSource.of(chars, chunk.end()), options);
+    block.lines.resume(chunk.start(), chunk.firstLine() - 1, false);
+    block.handler = tape;
     try {
-      ToonLexer lexer = new ToonLexer(CharStreams.fromString(headerText));
-      CommonTokenStream tokens = new CommonTokenStream(lexer);
-      ToonParser parser = new ToonParser(tokens);
-      ToonParser.HeaderContext ctx = parser.header();
-
-      String key = null;
-      if (ctx.key() != null) {
-        if (ctx.key().UNQUOTED_KEY() != null) {
-          key = ctx.key().UNQUOTED_KEY().getText();
-        } else {
-          key = unescape(ctx.key().STRING().getText(), line, startColumn);
-        }
-      }
-
-      String segment = ctx.bracketSegment().getText();
-      int cursor = 1; // omite '['
-      if (segment.charAt(cursor) == '#') {
-        cursor++;
-      }
-      int lengthStart = cursor;
-      while (cursor < segment.length() && Character.isDigit(segment.charAt(cursor))) {
-        cursor++;
-      }
-      int length = Integer.parseInt(segment.substring(lengthStart, cursor));
-
-      char delimiter = ',';
-      if (segment.charAt(cursor) != ']') {
-        delimiter = segment.charAt(cursor);
-      }
-
-      List<String> fields = new ArrayList<>();
-      if (ctx.fieldsSegment() != null) {
-        for (ToonParser.FieldNameContext fieldCtx : ctx.fieldsSegment().fieldName()) {
-          String token;
-          if (fieldCtx.key().UNQUOTED_KEY() != null) {
-            token = fieldCtx.key().UNQUOTED_KEY().getText();
-          } else {
-            token = unescape(fieldCtx.key().STRING().getText(), line, startColumn);
-          }
-          fields.add(token);
-        }
+      if (header == null) {
+        block.readObjectEntries(0, false);
+      } else {
+        tape.count = block.readElements(header, blockIndent, null);
+        tape.rest = block.lines.peek();
       }
-      return new Header(key, length, delimiter, List.copyOf(fields));
     } catch (RuntimeException ex) {
-      throw error("Encabezado inválido: " + headerText.trim(), line, startColumn, ex);
-    }
-  }
-
-  private List<TokenSlice> parseDelimitedValues(
-      String text, char delimiter, int line, int startColumn) {
-    List<TokenSlice> tokens = new ArrayList<>();
-    if (text.isEmpty()) {
-      return tokens;
+      tape.failure = ex;
+      return tape;
     }
-    StringBuilder current = new StringBuilder();
-    boolean inQuotes = false;
-    int tokenStart = 0;
-    int i = 0;
-    while (i < text.length()) {
-      char ch = text.charAt(i);
-      if (ch == '\\' && inQuotes) {
-        if (i + 1 >= text.length()) {
-          throw error("Secuencia de escape incompleta", line, startColumn + i);
+    if (tape.rest != null && chunk.last()) {
+      try {
+        block.lines.skipBlank();
+        tape.restBlank = block.lines.peek() == null;
+      } catch (ToonException ex) {
+        // La lectura secuencial no llegaría a estas líneas: se vuelve a ella.
+      }
+    }
+    return tape;
+  }
+
+  /**
+   * Lee las celdas de una fila tabular en {@code cells}: una por campo del encabezado o, si {@code
+   * columns} no es {@code null}, una por cada posición que indica.
+   */
+  private void readTabularRow(
+      LineInfo line,
+      int start,
+      int end,
+      ToonHeader header,
+      int[] bounds,
+      Object[] cells,
+      int[] columns) {
+    if (!lines.splitRow(line, start, end, header, bounds)) {
+      return;
+    }
+    if (skipping) {
+      if (lines.diagnosing()) {
+        for (int field = 0; field < header.fields.size(); field++) {
+          lines.checkPrimitive(line, bounds[2 * field], bounds[2 * field + 1]);
         }
-        current.append(ch);
-        i++;
-        current.append(text.charAt(i));
-        i++;
-        continue;
-      }
-      if (ch == '"') {
-        inQuotes = !inQuotes;
-        current.append(ch);
-        i++;
-        continue;
-      }
-      if (ch == delimiter && !inQuotes) {
-        tokens.add(finishToken(current, text, tokenStart, i, startColumn));
-        current.setLength(0);
-        i++;
-        tokenStart = i;
-        continue;
       }
-      current.append(ch);
-      i++;
+      return;
     }
-    if (inQuotes) {
-      throw error("Cadena sin cerrar en lista delimitada", line, startColumn + text.length());
-    }
-    tokens.add(finishToken(current, text, tokenStart, text.length(), startColumn));
-    return tokens;
-  }
-
-  private TokenSlice finishToken(
-      StringBuilder current, String fullText, int tokenStart, int tokenEnd, int startColumn) {
-    String raw = current.toString();
-    int leading = 0;
-    while (leading < raw.length() && Character.isWhitespace(raw.charAt(leading))) {
-      leading++;
-    }
-    String trimmed = raw.substring(leading, raw.length()).trim();
-    int column = startColumn + tokenStart + leading;
-    return new TokenSlice(trimmed, column);
-  }
-
-  private void skipBlankLines() {
-    while (index < lines.size() && lines.get(index).trimmed.isEmpty()) {
-      index++;
+    for (int i = 0; i < cells.length; i++) {
+      int field = columns == null ? i : columns[i];
+      cells[i] = lines.parsePrimitive(line, bounds[2 * field], bounds[2 * field + 1]);
     }
   }
 
-  private LineInfo peekLine() {
-    return lines.get(index);
-  }
-
-  private void consumeLine() {
-    index++;
-  }
-
-  private int currentLineNumber() {
-    return index < lines.size() ? lines.get(index).lineNumber : lines.size();
-  }
-
-  private List<LineInfo> normalizeLines(String source) {
-    String[] rawLines = source.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1);
-    List<LineInfo> result = new ArrayList<>(rawLines.length);
-    int lineNumber = 1;
-    for (String raw : rawLines) {
-      String trimmed = raw.trim();
-      int indent = countIndent(raw, trimmed, lineNumber);
-      result.add(new LineInfo(raw, trimmed, indent, lineNumber));
-      lineNumber++;
-    }
-    return result;
-  }
-
-  private int countIndent(String raw, String trimmed, int lineNumber) {
+  /**
+   * Lee en lotes paralelos la racha de filas tabulares que empieza en la línea actual y devuelve
+   * cuántas entregó. Se detiene, sin consumirla, en la primera línea que no sea una fila con la
+   * indentación esperada, para que el bucle de {@link #readArray} la trate como en la lectura
+   * secuencial.
+   */
+  private int readTabularRows(ToonHeader header, int expectedIndent) {
+    ToonRowBatch batch = new ToonRowBatch(header, options, lines.retainsInput());
     int count = 0;
-    for (char ch : raw.toCharArray()) {
-      if (ch == ' ') {
-        count++;
-      } else if (ch == '\t') {
-        if (options.strict()) {
-          throw new ToonException(
-              "La indentación con tabuladores no está permitida", lineNumber, count + 1);
+    LineInfo line;
+    try {
+      while ((line = lines.peek()) != null
+          && !line.isBlank()
+          && line.indent() == expectedIndent
+          && (lines.indexOf(header.delimiter, line.start(), line.end()) >= 0
+              || lines.findColonOutsideQuotes(line.start(), line.end()) < 0)) {
+        lines.consume();
+        batch.add(lines.chars(), line);
+        if (batch.isFull()) {
+          count += batch.flush(handler);
         }
-        // En modo no estricto, los tabuladores se ignoran en el conteo de indentación.
-      } else {
-        break;
       }
+    } catch (ToonException ex) {
+      // La lectura secuencial habría entregado antes las filas ya leídas.
+      batch.flush(handler);
+      throw ex;
     }
-    if (options.strict() && !trimmed.isEmpty() && count % indentSize != 0) {
-      throw new ToonException(
-          "Indentación no válida, se esperaba múltiplo de " + indentSize, lineNumber, count + 1);
-    }
-    return count;
+    return count + batch.flush(handler);
   }
 
-  private static Object parsePrimitive(String text, int line, int column) {
-    if (text.startsWith("\"") && !isQuoted(text)) {
-      throw new ToonException("Cadena sin cerrar", line, column + text.length());
-    }
-    if (text.equals("null")) {
-      return null;
-    }
-    if (text.equals("true")) {
-      return Boolean.TRUE;
-    }
-    if (text.equals("false")) {
-      return Boolean.FALSE;
-    }
-    if (isQuoted(text)) {
-      return unescape(text, line, column);
-    }
-    if (isNumber(text)) {
-      try {
-        if (text.contains(".") || text.contains("e") || text.contains("E")) {
-          return Double.parseDouble(text);
-        }
-        long value = Long.parseLong(text);
-        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
-          return (int) value;
-        }
-        return value;
-      } catch (NumberFormatException ex) {
-        throw new ToonException("Número inválido: " + text, line, column, ex);
+  /** Entrega los valores de una lista delimitada y devuelve cuántos leyó. */
+  private int readDelimitedValues(LineInfo line, int start, int end, char delimiter) {
+    int count = 0;
+    int cellStart = start;
+    while (true) {
+      int cellEnd = lines.findDelimiter(line, cellStart, end, delimiter);
+      if (!skipping) {
+        handler.primitive(lines.parseCell(line, cellStart, cellEnd));
+      } else if (lines.diagnosing()) {
+        lines.checkCell(line, cellStart, cellEnd);
       }
-    }
-    return text;
-  }
-
-  private static boolean isNumber(String text) {
-    return text.matches("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?");
-  }
-
-  private static boolean isQuoted(String text) {
-    return text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"");
-  }
-
-  private static String unescape(String text, int line, int column) {
-    StringBuilder sb = new StringBuilder(text.length() - 2);
-    for (int i = 1; i < text.length() - 1; i++) {
-      char ch = text.charAt(i);
-      if (ch == '\\') {
-        if (i + 1 >= text.length() - 1) {
-          throw new ToonException("Secuencia de escape incompleta", line, column + i);
-        }
-        char next = text.charAt(++i);
-        switch (next) {
-          case '\\':
-            sb.append('\\');
-            break;
-          case '"':
-            sb.append('"');
-            break;
-          case 'n':
-            sb.append('\n');
-            break;
-          case 'r':
-            sb.append('\r');
-            break;
-          case 't':
-            sb.append('\t');
-            break;
-          default:
-            throw new ToonException("Escape inválido: \\" + next, line, column + i);
-        }
-      } else {
-        sb.append(ch);
+      count++;
+      if (cellEnd == end) {
+        return count;
       }
+      cellStart = cellEnd + 1;
     }
-    return sb.toString();
   }
-
-  private static ToonException error(String message, int line, int column) {
-    return new ToonException(message, line, column);
-  }
-
-  private static ToonException error(String message, int line, int column, Throwable cause) {
-    return new ToonException(message, line, column, cause);
-  }
-
-  private record LineInfo(String raw, String trimmed, int indent, int lineNumber) {}
-
-  private static final class Header {
-    final String key;
-    final int length;
-    final char delimiter;
-    final List<String> fields;
-
-    Header(String key, int length, char delimiter, List<String> fields) {
-      this.key = key;
-      this.length = length;
-      this.delimiter = delimiter;
-      this.fields = fields;
-    }
-
-    boolean isTabular() {
-      return !fields.isEmpty();
-    }
-  }
-
-  private static final class HeaderLine {
-    final Header header;
-    final String inlineSegment;
-    final int lineNumber;
-    final int inlineColumn;
-
-    HeaderLine(Header header, String inlineSegment, int lineNumber, int inlineColumn) {
-      this.header = header;
-      this.inlineSegment = inlineSegment;
-      this.lineNumber = lineNumber;
-      this.inlineColumn = inlineColumn;
-    }
-  }
-
-  private record ParsedKeyValue(String key, String valueSegment, int valueColumn) {}
-
-  private record TokenSlice(String text, int column) {}
 }
@@ -0,0 +1,196 @@
+package org.toonjava;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Valida documentos TOON con las comprobaciones del modo estricto (SPEC §13.3 y §14) sin construir
+ * ningún valor, y devuelve todos los errores encontrados en lugar de detenerse en el primero.
+ *
+ * <p>El documento se recorre como lo hace {@link ToonDecoder}, con los mismos mensajes, líneas y
+ * columnas, así que el primer diagnóstico coincide con la excepción que lanzaría la decodificación
+ * estricta. Los errores que no impiden seguir leyendo, como las longitudes declaradas que no
+ * coinciden, las filas tabulares con otro número de celdas, la indentación con tabuladores o que no
+ * es múltiplo de {@link ToonDecoderOptions#indent()}, las líneas en blanco dentro de arrays o las
+ * cadenas mal formadas, se anotan y la lectura continúa. Tras un error de estructura, como una
+ * línea sin dos puntos o con una indentación inesperada, se anota el error y la validación se
+ * reanuda en la siguiente línea sin indentación, que se lee como otra entrada del objeto raíz o,
+ * si la raíz no es un objeto, como un valor adicional; los errores derivados en esa misma línea no
+ * se repiten.
+ *
+ * <p>Los errores se señalan internamente sin crear excepciones ni trazas de pila, salvo los de los
+ * encabezados de array y los enteros que no caben en un {@code long}, que son poco frecuentes.
+ */
+public final class ToonValidator {
+  /**
+   * Señal con la que el tokener interrumpe el valor en curso tras anotar un error. No tiene traza
+   * de pila y se comparte entre todas las validaciones.
+   */
+  static final RuntimeException ABORT = new Abort();
+
+  private ToonValidator() {}
+
+  /** Valida {@code source} con la indentación por defecto. */
+  public static List<ToonDiagnostic> validate(String source) {
+    return validate(source, ToonDecoderOptions.defaults());
+  }
+
+  /**
+   * Valida {@code source}. De {@code options} sólo se usa la indentación: la validación es siempre
+   * estricta y secuencial.
+   *
+   * @return los errores en el orden en que aparecen; vacía si el documento es válido.
+   */
+  public static List<ToonDiagnostic> validate(String source, ToonDecoderOptions options) {
+    return validate(new ToonTokener(source, validationOptions(options)));
+  }
+
+  /** Valida leyendo el {@link Reader} de forma incremental. El lector no se cierra. */
+  public static List<ToonDiagnostic> validate(Reader reader) {
+    return validate(reader, ToonDecoderOptions.defaults());
+  }
+
+  public static List<ToonDiagnostic> validate(Reader reader, ToonDecoderOptions options) {
+    return validate(new ToonTokener(reader, validationOptions(options)));
+  }
+
+  /** Valida un flujo de bytes UTF-8 de forma incremental. El flujo no se cierra. */
+  public static List<ToonDiagnostic> validate(InputStream input) {
+    return validate(input, ToonDecoderOptions.defaults());
+  }
+
+  public static List<ToonDiagnostic> validate(InputStream input, ToonDecoderOptions options) {
+    return validate(
+        new InputStreamReader(Objects.requireNonNull(input, "input"), StandardCharsets.UTF_8),
+        options);
+  }
+
+  /** Indica si {@code source} es un documento válido, deteniéndose en el primer error. */
+  public static boolean isValid(String source) {
+    return isValid(source, ToonDecoderOptions.defaults());
+  }
+
+  public static boolean isValid(String source, ToonDecoderOptions options) {
+    Report report = new Report(1);
+    run(new ToonTokener(source, validationOptions(options)), report);
+    return report.diagnostics.isEmpty();
+  }
+
+  private static ToonDecoderOptions validationOptions(ToonDecoderOptions options) {
+    return Objects.requireNonNull(options, "options")
+        .withStrict(true)
+        .withColumnar(false)
+        .withParallel(false)
+        .withLazy(false)
+        .withSymbolTableSize(0);
+  }
+
+  private static List<ToonDiagnostic> validate(ToonTokener tokener) {
+    Report report = new Report(Integer.MAX_VALUE);
+    run(tokener, report);
+    return List.copyOf(report.diagnostics);
+  }
+
+  /**
+   * Recorre todo el documento. Si la raíz es un objeto, tras un error la validación sigue leyendo
+   * entradas suyas en la siguiente línea sin indentación. En otro caso, y también si la raíz
+   * terminó sin errores, como {@link ToonDecoder#decode(String)}, cada valor después del primero
+   * es un error.
+   */
+  private static void run(ToonTokener tokener, Report report) {
+    tokener.validating(report);
+    boolean started = false;
+    boolean object = false;
+    boolean recovered = false;
+    while (true) {
+      int first = 0;
+      try {
+        first = tokener.lineNumber();
+        if (!started) {
+          object = tokener.nextIsObject();
+          started = true;
+          if (!tokener.validateValue()) {
+            return;
+          }
+        } else if (object && recovered) {
+          if (!tokener.validateEntries()) {
+            return;
+          }
+        } else {
+          if (!tokener.hasMoreValues()) {
+            return;
+          }
+          report.add(
+              "Se encontraron valores adicionales después del valor principal",
+              tokener.lineNumber(),
+              1);
+          if (report.isFull()) {
+            return;
+          }
+          tokener.validateValue();
+        }
+        continue;
+      } catch (Abort abort) {
+        // El error ya está anotado.
+      } catch (ToonException ex) {
+        if (ex.getLine() < 0) {
+          throw ex;
+        }
+        report.addFailure(ex.reason(), ex.getLine(), ex.getColumn());
+      }
+      if (report.isFull()) {
+        return;
+      }
+      recovered = true;
+      // Descartar al menos la primera línea del valor interrumpido garantiza el avance.
+      tokener.recover(Math.max(report.lastLine(), first));
+    }
+  }
+
+  /** Errores anotados durante una validación, hasta un máximo. */
+  static final class Report {
+    private final List<ToonDiagnostic> diagnostics = new ArrayList<>();
+    private final int limit;
+
+    Report(int limit) {
+      this.limit = limit;
+    }
+
+    void add(String message, int line, int column) {
+      diagnostics.add(new ToonDiagnostic(message, line, column));
+    }
+
+    /**
+     * Anota un error que interrumpe el valor en curso, salvo que otro error ya se haya anotado en
+     * esa línea: sería una consecuencia del primero.
+     */
+    void addFailure(String message, int line, int column) {
+      if (diagnostics.isEmpty() || lastLine() != line) {
+        add(message, line, column);
+      }
+    }
+
+    /** Indica si se alcanzó el máximo de errores y la validación debe detenerse. */
+    boolean isFull() {
+      return diagnostics.size() >= limit;
+    }
+
+    int lastLine() {
+      return diagnostics.isEmpty() ? 0 : diagnostics.get(diagnostics.size() - 1).line();
+    }
+  }
+
+  /** Señal sin traza de pila; ver {@link #ABORT}. */
+  private static final class Abort extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    Abort() {
+      super(null, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package org.toonjava;
+
+import java.util.List;
+
+/**
+ * Construye los contenedores que produce {@link ToonTokener} mientras recorre el documento, de
+ * modo que el árbol final se crea en una sola pasada y sin copias intermedias. {@code O} es el tipo
+ * de los objetos y {@code A} el de los arrays; los valores primitivos se entregan ya interpretados
+ * ({@code null}, {@link Boolean}, {@link String}, {@link Integer}, {@link Long} o {@link Double}).
+ *
+ * <p>{@link ToonTokener#nextValue()} usa un constructor de {@code Map}/{@code List} y {@link
+ * ToonDecoder} uno de {@link ToonObject}/{@link ToonArray}; cualquier otra representación puede
+ * implementar esta interfaz y pasarse a {@link ToonTokener#nextValue(ToonValueBuilder)}.
+ */
+public interface ToonValueBuilder<O, A> {
+
+  /** Crea un objeto vacío. */
+  O createObject();
+
+  /** Añade una entrada al objeto; las claves llegan en el orden del documento. */
+  void put(O object, String key, Object value);
+
+  /**
+   * Crea un array vacío.
+   *
+   * @param expectedSize longitud declarada en el encabezado; es sólo orientativa.
+   */
+  A createArray(int expectedSize);
+
+  /** Añade un elemento al final del array. */
+  void add(A array, Object value);
+
+  /**
+   * Crea una fila de un array tabular. {@code fields} es la misma lista para todas las filas de un
+   * encabezado y {@code values} pasa a ser propiedad del constructor. Por defecto crea un objeto y
+   * añade cada campo en orden.
+   */
+  default O createRow(List<String> fields, Object[] values) {
+    O row = createObject();
+    for (int i = 0; i < values.length; i++) {
+      put(row, fields.get(i), values[i]);
+    }
+    return row;
+  }
+
+  /**
+   * Recibe un array tabular decodificado en modo columnar ({@link
+   * ToonDecoderOptions#withColumnar(boolean)}). Por defecto lo convierte fila a fila con {@link
+   * #createRow(List, Object[])}.
+   */
+  default A createTable(ToonTable table) {
+    A array = createArray(table.size());
+    List<String> fields = table.fields();
+    for (int i = 0; i < table.size(); i++) {
+      add(array, createRow(fields, table.rowValues(i)));
+    }
+    return array;
+  }
+}
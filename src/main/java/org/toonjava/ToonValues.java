@@ -0,0 +1,411 @@
+package org.toonjava;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Lista de los elementos de un {@link ToonArray} en forma canónica, guardada en un array primitivo
+ * mientras todos los elementos son del mismo tipo: {@code int[]} para {@link Integer}, {@code
+ * long[]} si además hay {@link Long} fuera del rango de {@code int}, {@code double[]} para {@link
+ * Double} (con enteros exactos, marcados en un mapa de bits) y {@code boolean[]} para {@link
+ * Boolean}. El primer elemento que no cabe en el almacenamiento actual lo amplía según esas reglas
+ * o, si no es posible, pasa todos los elementos a un {@code Object[]}, del que ya no se vuelve.
+ *
+ * <p>Cada elemento se devuelve con el tipo con el que llegó: los enteros en el rango de {@code int}
+ * como {@link Integer} y el resto como {@link Long}, igual que los produce el tokener. Por eso un
+ * {@link Long} que cabe en un {@code int}, como cualquier otro {@link Number}, obliga a usar {@code
+ * Object[]}.
+ */
+final class ToonValues extends AbstractList<Object> implements RandomAccess {
+  private static final int DEFAULT_CAPACITY = 10;
+  private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+  /** Almacenamiento actual; {@code EMPTY} hasta el primer elemento. */
+  enum Kind {
+    EMPTY,
+    INT,
+    LONG,
+    DOUBLE,
+    BOOLEAN,
+    OBJECT
+  }
+
+  private Kind kind = Kind.EMPTY;
+  private int size;
+  private int capacity;
+  private int[] ints;
+  private long[] longs;
+  private double[] doubles;
+  private long[] integral;
+  private boolean[] booleans;
+  private Object[] objects;
+
+  ToonValues() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** Reserva espacio para {@code initialCapacity} elementos al fijarse el tipo. */
+  ToonValues(int initialCapacity) {
+    this.capacity = Math.max(initialCapacity, 1);
+  }
+
+  Kind kind() {
+    return kind;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Object get(int index) {
+    Objects.checkIndex(index, size);
+    switch (kind) {
+      case INT:
+        return ints[index];
+      case LONG:
+        return integerOf(longs[index]);
+      case DOUBLE:
+        return getBit(integral, index)
+            ? integerOf((long) doubles[index])
+            : (Object) doubles[index];
+      case BOOLEAN:
+        return booleans[index];
+      default:
+        return objects[index];
+    }
+  }
+
+  /** Elemento de una lista {@code INT}, sin caja. */
+  int intAt(int index) {
+    Objects.checkIndex(index, size);
+    return ints[index];
+  }
+
+  /** Elemento de una lista {@code INT} o {@code LONG}, sin caja. */
+  long longAt(int index) {
+    Objects.checkIndex(index, size);
+    return kind == Kind.INT ? ints[index] : longs[index];
+  }
+
+  /** Elemento de una lista {@code INT}, {@code LONG} o {@code DOUBLE}, sin caja. */
+  double doubleAt(int index) {
+    Objects.checkIndex(index, size);
+    switch (kind) {
+      case INT:
+        return ints[index];
+      case LONG:
+        return longs[index];
+      default:
+        return doubles[index];
+    }
+  }
+
+  /** Elemento de una lista {@code BOOLEAN}, sin caja. */
+  boolean booleanAt(int index) {
+    Objects.checkIndex(index, size);
+    return booleans[index];
+  }
+
+  /** Copia de los elementos de una lista {@code INT}. */
+  int[] ints() {
+    return Arrays.copyOf(ints, size);
+  }
+
+  /** Copia de los elementos de una lista {@code INT} o {@code LONG}. */
+  long[] longs() {
+    if (kind == Kind.LONG) {
+      return Arrays.copyOf(longs, size);
+    }
+    long[] result = new long[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = ints[i];
+    }
+    return result;
+  }
+
+  /** Copia de los elementos de una lista {@code INT}, {@code LONG} o {@code DOUBLE}. */
+  double[] doubles() {
+    if (kind == Kind.DOUBLE) {
+      return Arrays.copyOf(doubles, size);
+    }
+    double[] result = new double[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = kind == Kind.INT ? ints[i] : longs[i];
+    }
+    return result;
+  }
+
+  /** Copia de los elementos de una lista {@code BOOLEAN}. */
+  boolean[] booleans() {
+    return Arrays.copyOf(booleans, size);
+  }
+
+  @Override
+  public void add(int index, Object value) {
+    Objects.checkIndex(index, size + 1);
+    modCount++;
+    accept(value);
+    if (size == capacity) {
+      grow();
+    }
+    if (index < size) {
+      move(index, index + 1, size - index);
+    }
+    size++;
+    store(index, value);
+  }
+
+  @Override
+  public Object set(int index, Object value) {
+    Object previous = get(index);
+    accept(value);
+    store(index, value);
+    return previous;
+  }
+
+  @Override
+  public Object remove(int index) {
+    Object previous = get(index);
+    modCount++;
+    move(index + 1, index, size - index - 1);
+    size--;
+    if (objects != null) {
+      objects[size] = null;
+    }
+    if (integral != null) {
+      clearBit(integral, size);
+    }
+    return previous;
+  }
+
+  /** Amplía el almacenamiento, si hace falta, para que pueda guardar {@code value}. */
+  private void accept(Object value) {
+    Kind target = widen(value);
+    if (target == Kind.DOUBLE && kind == Kind.LONG) {
+      for (int i = 0; i < size; i++) {
+        if (!isExact(longs[i])) {
+          target = Kind.OBJECT;
+          break;
+        }
+      }
+    }
+    if (target != kind) {
+      convert(target);
+    }
+  }
+
+  private Kind widen(Object value) {
+    Kind incoming = kindOf(value);
+    if (incoming == kind || kind == Kind.OBJECT) {
+      return kind;
+    }
+    switch (kind) {
+      case EMPTY:
+        return incoming;
+      case INT:
+        return incoming == Kind.LONG || incoming == Kind.DOUBLE ? incoming : Kind.OBJECT;
+      case LONG:
+        if (incoming == Kind.INT) {
+          // Se guarda como long y se lee de nuevo como Integer.
+          return Kind.LONG;
+        }
+        return incoming == Kind.DOUBLE ? Kind.DOUBLE : Kind.OBJECT;
+      case DOUBLE:
+        return incoming == Kind.INT || (incoming == Kind.LONG && isExact((Long) value))
+            ? Kind.DOUBLE
+            : Kind.OBJECT;
+      default:
+        return Kind.OBJECT;
+    }
+  }
+
+  private static Kind kindOf(Object value) {
+    if (value instanceof Integer) {
+      return Kind.INT;
+    }
+    if (value instanceof Long l && (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE)) {
+      return Kind.LONG;
+    }
+    if (value instanceof Double) {
+      return Kind.DOUBLE;
+    }
+    if (value instanceof Boolean) {
+      return Kind.BOOLEAN;
+    }
+    return Kind.OBJECT;
+  }
+
+  private void convert(Kind target) {
+    switch (target) {
+      case INT:
+        ints = new int[capacity];
+        break;
+      case LONG:
+        longs = new long[capacity];
+        for (int i = 0; i < size; i++) {
+          longs[i] = ints[i];
+        }
+        ints = null;
+        break;
+      case DOUBLE:
+        doubles = new double[capacity];
+        if (kind != Kind.EMPTY) {
+          integral = new long[bitWords(capacity)];
+          for (int i = 0; i < size; i++) {
+            doubles[i] = kind == Kind.INT ? ints[i] : longs[i];
+            setBit(integral, i);
+          }
+        }
+        ints = null;
+        longs = null;
+        break;
+      case BOOLEAN:
+        booleans = new boolean[capacity];
+        break;
+      default:
+        Object[] boxed = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+          boxed[i] = get(i);
+        }
+        objects = boxed;
+        ints = null;
+        longs = null;
+        doubles = null;
+        integral = null;
+        booleans = null;
+        break;
+    }
+    kind = target;
+  }
+
+  private void store(int index, Object value) {
+    switch (kind) {
+      case INT:
+        ints[index] = (Integer) value;
+        break;
+      case LONG:
+        longs[index] = ((Number) value).longValue();
+        break;
+      case DOUBLE:
+        if (value instanceof Double d) {
+          doubles[index] = d;
+          if (integral != null) {
+            clearBit(integral, index);
+          }
+        } else {
+          doubles[index] = ((Number) value).longValue();
+          if (integral == null) {
+            integral = new long[bitWords(capacity)];
+          }
+          setBit(integral, index);
+        }
+        break;
+      case BOOLEAN:
+        booleans[index] = (Boolean) value;
+        break;
+      default:
+        objects[index] = value;
+        break;
+    }
+  }
+
+  /** Desplaza {@code count} elementos de {@code from} a {@code to}. */
+  private void move(int from, int to, int count) {
+    if (count <= 0) {
+      return;
+    }
+    switch (kind) {
+      case INT:
+        System.arraycopy(ints, from, ints, to, count);
+        break;
+      case LONG:
+        System.arraycopy(longs, from, longs, to, count);
+        break;
+      case DOUBLE:
+        System.arraycopy(doubles, from, doubles, to, count);
+        if (integral != null) {
+          moveBits(from, to, count);
+        }
+        break;
+      case BOOLEAN:
+        System.arraycopy(booleans, from, booleans, to, count);
+        break;
+      default:
+        System.arraycopy(objects, from, objects, to, count);
+        break;
+    }
+  }
+
+  private void moveBits(int from, int to, int count) {
+    if (to > from) {
+      for (int i = count - 1; i >= 0; i--) {
+        copyBit(from + i, to + i);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        copyBit(from + i, to + i);
+      }
+    }
+  }
+
+  private void copyBit(int from, int to) {
+    if (getBit(integral, from)) {
+      setBit(integral, to);
+    } else {
+      clearBit(integral, to);
+    }
+  }
+
+  private void grow() {
+    capacity = capacity + (capacity >> 1) + 1;
+    if (ints != null) {
+      ints = Arrays.copyOf(ints, capacity);
+    }
+    if (longs != null) {
+      longs = Arrays.copyOf(longs, capacity);
+    }
+    if (doubles != null) {
+      doubles = Arrays.copyOf(doubles, capacity);
+    }
+    if (integral != null) {
+      integral = Arrays.copyOf(integral, bitWords(capacity));
+    }
+    if (booleans != null) {
+      booleans = Arrays.copyOf(booleans, capacity);
+    }
+    if (objects != null) {
+      objects = Arrays.copyOf(objects, capacity);
+    }
+  }
+
+  private static Object integerOf(long value) {
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      return (int) value;
+    }
+    return value;
+  }
+
+  private static boolean isExact(long value) {
+    return value >= -MAX_EXACT_DOUBLE && value <= MAX_EXACT_DOUBLE;
+  }
+
+  private static int bitWords(int bits) {
+    return (bits + 63) >>> 6;
+  }
+
+  private static void setBit(long[] bits, int index) {
+    bits[index >>> 6] |= 1L << index;
+  }
+
+  private static void clearBit(long[] bits, int index) {
+    bits[index >>> 6] &= ~(1L << index);
+  }
+
+  private static boolean getBit(long[] bits, int index) {
+    return bits != null && (bits[index >>> 6] & (1L << index)) != 0;
+  }
+}
@@ -0,0 +1,682 @@
+package org.toonjava;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.time.temporal.TemporalAccessor;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Escribe valores como documentos TOON directamente sobre un {@link Appendable} (un {@link Writer},
+ * un {@link StringBuilder}...) o sobre un {@link OutputStream} en UTF-8, en una sola pasada y sin
+ * construir el documento en memoria: los caracteres se acumulan en un búfer fijo que se vuelca al
+ * destino cuando se llena y al terminar cada documento.
+ *
+ * <p>Acepta {@link ToonObject}, {@link ToonArray}, {@link Map} (las claves se convierten con {@link
+ * String#valueOf(Object)}), {@link Collection}, {@link Iterable} y arrays de Java, además de los
+ * primitivos: {@code null}/{@link ToonNull}, {@link Boolean}, {@link Number}, {@link CharSequence},
+ * {@link Character}, enumerados (por su nombre) y fechas ({@link Date} y {@link TemporalAccessor},
+ * en ISO-8601). Los números se escriben sin notación exponencial, {@code -0} como {@code 0} y
+ * {@code NaN} o infinitos como {@code null} (SPEC §2-3). Cualquier otro tipo produce una {@link
+ * ToonException}.
+ *
+ * <p>Los arrays de primitivos se escriben inline, los arrays de objetos uniformes con valores
+ * primitivos en forma tabular y el resto como lista de elementos {@code - } (SPEC §9-10).
+ */
+public final class ToonWriter implements Flushable, Closeable {
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Appendable appendable;
+  private final OutputStream stream;
+  private final int indentSize;
+  private final char delimiter;
+  private final boolean lengthMarker;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private final byte[] bytes;
+  private int size;
+  private boolean lineStarted;
+
+  public ToonWriter(Appendable out) {
+    this(out, ToonEncoderOptions.defaults());
+  }
+
+  public ToonWriter(Appendable out, ToonEncoderOptions options) {
+    this(Objects.requireNonNull(out, "out"), null, options);
+  }
+
+  /** Escribe en UTF-8 sobre {@code out}. */
+  public ToonWriter(OutputStream out) {
+    this(out, ToonEncoderOptions.defaults());
+  }
+
+  public ToonWriter(OutputStream out, ToonEncoderOptions options) {
+    this(null, Objects.requireNonNull(out, "out"), options);
+  }
+
+  private ToonWriter(Appendable appendable, OutputStream stream, ToonEncoderOptions options) {
+    Objects.requireNonNull(options, "options");
+    this.appendable = appendable;
+    this.stream = stream;
+    this.indentSize = options.indent();
+    this.delimiter = options.delimiter();
+    this.lengthMarker = options.lengthMarker();
+    this.bytes = stream == null ? null : new byte[BUFFER_SIZE * 3];
+  }
+
+  /**
+   * Escribe {@code value} como un documento completo, sin salto de línea final, y lo entrega al
+   * destino. Un objeto vacío produce un documento vacío.
+   */
+  public ToonWriter write(Object value) {
+    startDocument();
+    writeRoot(value);
+    endDocument();
+    return this;
+  }
+
+  /**
+   * Empieza un documento que se escribe por partes con {@link #writeRoot}, {@link #writeField} y
+   * {@link #writeObjectKey}, para quien recorre su entrada sin tenerla entera en memoria.
+   */
+  void startDocument() {
+    lineStarted = false;
+  }
+
+  /** Termina el documento empezado con {@link #startDocument()} y lo entrega al destino. */
+  void endDocument() {
+    flushBuffer(true);
+  }
+
+  void writeRoot(Object value) {
+    Map<?, ?> object = asObject(value);
+    if (object != null) {
+      writeFields(object, 0);
+    } else {
+      Collection<?> array = asArray(value);
+      if (array != null) {
+        writeArray(null, value, array, 0, false);
+      } else {
+        writePrimitive(value);
+      }
+    }
+  }
+
+  /** Escribe {@code key:} en {@code depth}; los campos del objeto siguen en {@code depth + 1}. */
+  void writeObjectKey(String key, int depth) {
+    startItem(depth, false);
+    writeKey(key);
+    put(':');
+  }
+
+  void writeField(String key, Object value, int depth) {
+    writeField(key, value, depth, false);
+  }
+
+  /** Entrega al destino lo pendiente y, si admite {@link Flushable}, lo vacía. */
+  @Override
+  public void flush() {
+    flushBuffer(true);
+    try {
+      if (stream != null) {
+        stream.flush();
+      } else if (appendable instanceof Flushable flushable) {
+        flushable.flush();
+      }
+    } catch (IOException ex) {
+      throw new ToonException("No se pudo escribir la salida TOON", ex);
+    }
+  }
+
+  /** Vacía el escritor y cierra el destino si admite {@link Closeable}. */
+  @Override
+  public void close() {
+    flush();
+    try {
+      if (stream != null) {
+        stream.close();
+      } else if (appendable instanceof Closeable closeable) {
+        closeable.close();
+      }
+    } catch (IOException ex) {
+      throw new ToonException("No se pudo cerrar la salida TOON", ex);
+    }
+  }
+
+  private void writeFields(Map<?, ?> object, int depth) {
+    for (Map.Entry<?, ?> entry : object.entrySet()) {
+      writeField(String.valueOf(entry.getKey()), entry.getValue(), depth, false);
+    }
+  }
+
+  /**
+   * Escribe {@code key: valor}; con {@code listItem} la línea empieza por {@code - } y los campos
+   * de un objeto anidado van dos niveles por debajo (SPEC §10).
+   */
+  private void writeField(String key, Object value, int depth, boolean listItem) {
+    Map<?, ?> object = asObject(value);
+    if (object != null) {
+      startItem(depth, listItem);
+      writeKey(key);
+      put(':');
+      writeFields(object, listItem ? depth + 2 : depth + 1);
+      return;
+    }
+    Collection<?> array = asArray(value);
+    if (array != null) {
+      writeArray(key, value, array, depth, listItem);
+      return;
+    }
+    startItem(depth, listItem);
+    writeKey(key);
+    put(':');
+    put(' ');
+    writePrimitive(value);
+  }
+
+  /**
+   * Escribe el encabezado del array {@code value}, visto como {@code array}, en {@code depth} y sus
+   * elementos un nivel por debajo.
+   */
+  private void writeArray(
+      String key, Object value, Collection<?> array, int depth, boolean listItem) {
+    startItem(depth, listItem);
+    if (isPrimitiveArray(array)) {
+      writeHeader(key, array.size(), null);
+      writeInlineValues(array);
+      return;
+    }
+    List<?> fields =
+        value instanceof ToonArray toonArray ? toonArray.tabularFields() : tabularFields(array);
+    writeHeader(key, array.size(), fields);
+    if (fields != null) {
+      for (Object row : array) {
+        Map<?, ?> object = asObject(row);
+        startLine(depth + 1);
+        for (int i = 0; i < fields.size(); i++) {
+          if (i > 0) {
+            put(delimiter);
+          }
+          writePrimitive(object.get(fields.get(i)));
+        }
+      }
+      return;
+    }
+    for (Object item : array) {
+      writeListItem(item, depth + 1);
+    }
+  }
+
+  private void writeListItem(Object item, int depth) {
+    Map<?, ?> object = asObject(item);
+    if (object != null) {
+      if (object.isEmpty()) {
+        startLine(depth);
+        put('-');
+        return;
+      }
+      Iterator<? extends Map.Entry<?, ?>> entries = object.entrySet().iterator();
+      Map.Entry<?, ?> first = entries.next();
+      writeField(String.valueOf(first.getKey()), first.getValue(), depth, true);
+      while (entries.hasNext()) {
+        Map.Entry<?, ?> entry = entries.next();
+        writeField(String.valueOf(entry.getKey()), entry.getValue(), depth + 1, false);
+      }
+      return;
+    }
+    Collection<?> array = asArray(item);
+    if (array != null) {
+      writeArray(null, item, array, depth, true);
+      return;
+    }
+    startItem(depth, true);
+    writePrimitive(item);
+  }
+
+  /**
+   * Devuelve los campos de la forma tabular: los del primer objeto, si todos los elementos son
+   * objetos con las mismas claves y sólo valores primitivos (SPEC §9.3), o {@code null} si no.
+   * Un {@link ToonArray} ya conoce su forma y no necesita este recorrido.
+   */
+  private static List<Object> tabularFields(Collection<?> array) {
+    Map<?, ?> first = asObject(array.iterator().next());
+    if (first == null || first.isEmpty()) {
+      return null;
+    }
+    List<Object> fields = new ArrayList<>(first.keySet());
+    for (Object row : array) {
+      Map<?, ?> object = asObject(row);
+      if (object == null || object.size() != fields.size()) {
+        return null;
+      }
+      for (Object field : fields) {
+        Object value = object.get(field);
+        if ((value == null && !object.containsKey(field)) || !isPrimitive(value)) {
+          return null;
+        }
+      }
+    }
+    return fields;
+  }
+
+  private void writeHeader(String key, int length, List<?> fields) {
+    if (key != null) {
+      writeKey(key);
+    }
+    put('[');
+    if (lengthMarker) {
+      put('#');
+    }
+    writeLong(length);
+    if (delimiter != ',') {
+      put(delimiter);
+    }
+    put(']');
+    if (fields != null) {
+      put('{');
+      for (int i = 0; i < fields.size(); i++) {
+        if (i > 0) {
+          put(delimiter);
+        }
+        writeKey(String.valueOf(fields.get(i)));
+      }
+      put('}');
+    }
+    put(':');
+  }
+
+  private void writeInlineValues(Collection<?> array) {
+    boolean first = true;
+    for (Object value : array) {
+      put(first ? ' ' : delimiter);
+      writePrimitive(value);
+      first = false;
+    }
+  }
+
+  private void writePrimitive(Object value) {
+    if (value == null || value instanceof ToonNull) {
+      put("null");
+    } else if (value instanceof String string) {
+      writeString(string);
+    } else if (value instanceof Number number) {
+      writeNumber(number);
+    } else if (value instanceof Boolean bool) {
+      put(bool ? "true" : "false");
+    } else if (value instanceof CharSequence || value instanceof Character) {
+      writeString(value.toString());
+    } else if (value instanceof Enum<?> constant) {
+      writeString(constant.name());
+    } else if (value instanceof Date date) {
+      writeString(date.toInstant().toString());
+    } else if (value instanceof TemporalAccessor temporal) {
+      writeString(temporal.toString());
+    } else {
+      throw new ToonException("Tipo de valor no soportado para codificar: " + value.getClass());
+    }
+  }
+
+  private void writeNumber(Number number) {
+    if (number instanceof Integer
+        || number instanceof Long
+        || number instanceof Short
+        || number instanceof Byte) {
+      writeLong(number.longValue());
+    } else if (number instanceof BigInteger) {
+      put(number.toString());
+    } else if (number instanceof BigDecimal decimal) {
+      put(decimal.signum() == 0 ? "0" : decimal.stripTrailingZeros().toPlainString());
+    } else {
+      double value = number.doubleValue();
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        put("null");
+      } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+        // Incluye -0, que se normaliza a 0.
+        writeLong((long) value);
+      } else {
+        String text =
+            number instanceof Float ? Float.toString(number.floatValue()) : Double.toString(value);
+        if (text.indexOf('E') >= 0) {
+          text = new BigDecimal(text).stripTrailingZeros().toPlainString();
+        }
+        put(text);
+      }
+    }
+  }
+
+  private void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      put(Long.toString(value));
+      return;
+    }
+    if (size + 20 > buffer.length) {
+      flushBuffer(false);
+    }
+    if (value < 0) {
+      buffer[size++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+      digits++;
+    }
+    int position = size + digits;
+    size = position;
+    do {
+      buffer[--position] = (char) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+  }
+
+  /** Escribe la clave sin comillas si es un identificador ({@code [A-Za-z_][\w.]*}) (SPEC §7.3). */
+  private void writeKey(String key) {
+    if (isIdentifier(key)) {
+      put(key);
+    } else {
+      writeQuoted(key);
+    }
+  }
+
+  private void writeString(String value) {
+    if (isSafeUnquoted(value)) {
+      put(value);
+    } else {
+      writeQuoted(value);
+    }
+  }
+
+  private void writeQuoted(String value) {
+    put('"');
+    int length = value.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      char escaped =
+          switch (value.charAt(i)) {
+            case '"' -> '"';
+            case '\\' -> '\\';
+            case '\n' -> 'n';
+            case '\r' -> 'r';
+            case '\t' -> 't';
+            default -> 0;
+          };
+      if (escaped != 0) {
+        put(value, start, i);
+        put('\\');
+        put(escaped);
+        start = i + 1;
+      }
+    }
+    put(value, start, length);
+    put('"');
+  }
+
+  /** Aplica las reglas de SPEC §7.2 con el delimitador del documento. */
+  private boolean isSafeUnquoted(String value) {
+    int length = value.length();
+    if (length == 0 || isPadding(value.charAt(0)) || isPadding(value.charAt(length - 1))) {
+      return false;
+    }
+    char first = value.charAt(0);
+    if (first == '-' || value.equals("true") || value.equals("false") || value.equals("null")) {
+      return false;
+    }
+    if (first >= '0' && first <= '9' && isNumericLike(value)) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char ch = value.charAt(i);
+      switch (ch) {
+        case ':', '"', '\\', '[', ']', '{', '}', '\n', '\r', '\t':
+          return false;
+        default:
+          if (ch == delimiter) {
+            return false;
+          }
+      }
+    }
+    return true;
+  }
+
+  /** Equivale a {@code \d+(\.\d+)?([eE][+-]?\d+)?}, que incluye los ceros a la izquierda. */
+  private static boolean isNumericLike(String value) {
+    int length = value.length();
+    int i = skipDigits(value, 0);
+    if (i < length && value.charAt(i) == '.') {
+      int fraction = i + 1;
+      i = skipDigits(value, fraction);
+      if (i == fraction) {
+        return false;
+      }
+    }
+    if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+      i++;
+      if (i < length && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+        i++;
+      }
+      int exponent = i;
+      i = skipDigits(value, exponent);
+      if (i == exponent) {
+        return false;
+      }
+    }
+    return i == length;
+  }
+
+  private static int skipDigits(String value, int index) {
+    while (index < value.length() && value.charAt(index) >= '0' && value.charAt(index) <= '9') {
+      index++;
+    }
+    return index;
+  }
+
+  /** Espacios que {@code String.prototype.trim()} eliminaría en la implementación de referencia. */
+  private static boolean isPadding(char ch) {
+    return Character.isWhitespace(ch) || Character.isSpaceChar(ch) || ch == '\uFEFF';
+  }
+
+  private static boolean isIdentifier(String key) {
+    int length = key.length();
+    if (length == 0 || !(isAsciiLetter(key.charAt(0)) || key.charAt(0) == '_')) {
+      return false;
+    }
+    for (int i = 1; i < length; i++) {
+      char ch = key.charAt(i);
+      if (!isAsciiLetter(ch) && !(ch >= '0' && ch <= '9') && ch != '_' && ch != '.') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAsciiLetter(char ch) {
+    return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+  }
+
+  private static Map<?, ?> asObject(Object value) {
+    if (value instanceof ToonObject object) {
+      return object.canonicalValues();
+    }
+    return value instanceof Map<?, ?> map ? map : null;
+  }
+
+  /** Devuelve el valor como colección si es un array, sin copiarlo salvo que sea un Iterable. */
+  private static Collection<?> asArray(Object value) {
+    if (value instanceof ToonArray array) {
+      return array.canonicalValues();
+    }
+    if (value instanceof Collection<?> collection) {
+      return collection;
+    }
+    if (value instanceof Object[] array) {
+      return Arrays.asList(array);
+    }
+    if (value != null && value.getClass().isArray()) {
+      return new PrimitiveArray(value);
+    }
+    if (value instanceof Iterable<?> iterable) {
+      List<Object> items = new ArrayList<>();
+      iterable.forEach(items::add);
+      return items;
+    }
+    return null;
+  }
+
+  private static boolean isPrimitive(Object value) {
+    return value == null
+        || value instanceof ToonNull
+        || value instanceof CharSequence
+        || value instanceof Number
+        || value instanceof Boolean
+        || value instanceof Character
+        || value instanceof Enum<?>
+        || value instanceof Date
+        || value instanceof TemporalAccessor;
+  }
+
+  private static boolean isPrimitiveArray(Collection<?> array) {
+    if (array instanceof PrimitiveArray) {
+      return true;
+    }
+    for (Object value : array) {
+      if (!isPrimitive(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void startItem(int depth, boolean listItem) {
+    startLine(depth);
+    if (listItem) {
+      put('-');
+      put(' ');
+    }
+  }
+
+  private void startLine(int depth) {
+    if (lineStarted) {
+      put('\n');
+    }
+    lineStarted = true;
+    for (int spaces = depth * indentSize; spaces > 0; spaces--) {
+      put(' ');
+    }
+  }
+
+  private void put(char ch) {
+    if (size == buffer.length) {
+      flushBuffer(false);
+    }
+    buffer[size++] = ch;
+  }
+
+  private void put(String text) {
+    put(text, 0, text.length());
+  }
+
+  private void put(String text, int start, int end) {
+    while (start < end) {
+      if (size == buffer.length) {
+        flushBuffer(false);
+      }
+      int count = Math.min(end - start, buffer.length - size);
+      text.getChars(start, start + count, buffer, size);
+      size += count;
+      start += count;
+    }
+  }
+
+  /**
+   * Vuelca el búfer en el destino. Al escribir UTF-8 un surrogate alto final se conserva para el
+   * siguiente volcado salvo con {@code end}, de modo que los pares no se separen.
+   */
+  private void flushBuffer(boolean end) {
+    if (size == 0) {
+      return;
+    }
+    try {
+      if (stream != null) {
+        int carry = !end && Character.isHighSurrogate(buffer[size - 1]) ? 1 : 0;
+        stream.write(bytes, 0, encodeUtf8(size - carry));
+        if (carry > 0) {
+          buffer[0] = buffer[size - 1];
+        }
+        size = carry;
+        return;
+      }
+      if (appendable instanceof Writer writer) {
+        writer.write(buffer, 0, size);
+      } else if (appendable instanceof StringBuilder builder) {
+        builder.append(buffer, 0, size);
+      } else {
+        appendable.append(CharBuffer.wrap(buffer, 0, size));
+      }
+      size = 0;
+    } catch (IOException ex) {
+      throw new ToonException("No se pudo escribir la salida TOON", ex);
+    }
+  }
+
+  /** Codifica {@code buffer[0, length)} en {@link #bytes}; los surrogates sueltos pasan a '?'. */
+  private int encodeUtf8(int length) {
+    int count = 0;
+    for (int i = 0; i < length; i++) {
+      char ch = buffer[i];
+      if (ch < 0x80) {
+        bytes[count++] = (byte) ch;
+      } else if (ch < 0x800) {
+        bytes[count++] = (byte) (0xC0 | (ch >> 6));
+        bytes[count++] = (byte) (0x80 | (ch & 0x3F));
+      } else if (Character.isHighSurrogate(ch)
+          && i + 1 < length
+          && Character.isLowSurrogate(buffer[i + 1])) {
+        int codePoint = Character.toCodePoint(ch, buffer[++i]);
+        bytes[count++] = (byte) (0xF0 | (codePoint >> 18));
+        bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        bytes[count++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(ch)) {
+        bytes[count++] = '?';
+      } else {
+        bytes[count++] = (byte) (0xE0 | (ch >> 12));
+        bytes[count++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+        bytes[count++] = (byte) (0x80 | (ch & 0x3F));
+      }
+    }
+    return count;
+  }
+
+  /** Vista de sólo lectura sobre un array de primitivos de Java. */
+  private static final class PrimitiveArray extends AbstractList<Object> {
+    private final Object array;
+    private final int length;
+
+    PrimitiveArray(Object array) {
+      this.array = array;
+      this.length = Array.getLength(array);
+    }
+
+    @Override
+    public Object get(int index) {
+      return Array.get(array, index);
+    }
+
+    @Override
+    public int size() {
+      return length;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package org.toonjava;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/** Carga los fixtures de decodificación que comparten las pruebas de cada modo de lectura. */
+final class ToonDecodeFixtures {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Path FIXTURE_BASE =
+      Path.of(".", "src", "test", "resources", "fixtures", "decode");
+
+  /**
+   * Caso de un fichero de fixtures; {@code expected} es {@code null} en los que deben fallar. El
+   * nombre identifica el caso en los informes de las pruebas parametrizadas.
+   */
+  record Fixture(
+      String name,
+      String input,
+      JsonNode expected,
+      boolean shouldError,
+      ToonDecoderOptions options) {
+    boolean isObject() {
+      return expected != null && expected.isObject();
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  static List<Fixture> load() {
+    if (!Files.isDirectory(FIXTURE_BASE)) {
+      throw new IllegalStateException("No se encontró el directorio de fixtures: " + FIXTURE_BASE);
+    }
+    try (Stream<Path> files = Files.list(FIXTURE_BASE)) {
+      return files
+          .filter(Files::isRegularFile)
+          .sorted(Comparator.comparing(Path::getFileName))
+          .flatMap(ToonDecodeFixtures::readFixture)
+          .collect(Collectors.toList());
+    } catch (IOException ex) {
+      throw new IllegalStateException("No se pudo listar " + FIXTURE_BASE, ex);
+    }
+  }
+
+  private static Stream<Fixture> readFixture(Path path) {
+    try {
+      JsonNode root = MAPPER.readTree(Files.readString(path));
+      JsonNode tests = root.get("tests");
+      if (tests == null || !tests.isArray()) {
+        throw new IllegalStateException("Fixture sin array de tests: " + path);
+      }
+      return StreamSupport.stream(tests.spliterator(), false).map(test -> toFixture(path, test));
+    } catch (IOException ex) {
+      throw new IllegalStateException("No se pudo leer el fixture " + path, ex);
+    }
+  }
+
+  private static Fixture toFixture(Path path, JsonNode testNode) {
+    String name = path.getFileName() + " :: " + testNode.path("name").asText("(sin nombre)");
+    return new Fixture(
+        name,
+        testNode.path("input").asText(),
+        testNode.get("expected"),
+        testNode.path("shouldError").asBoolean(false),
+        parseOptions(testNode.get("options")));
+  }
+
+  private static ToonDecoderOptions parseOptions(JsonNode node) {
+    if (node == null || node.isNull()) {
+      return ToonDecoderOptions.defaults();
+    }
+    ToonDecoderOptions base = ToonDecoderOptions.defaults();
+    int indent =
+        node.path("indent").isNumber() ? node.path("indent").asInt(base.indent()) : base.indent();
+    boolean strict =
+        node.path("strict").isBoolean()
+            ? node.path("strict").asBoolean(base.strict())
+            : base.strict();
+    return new ToonDecoderOptions(indent, strict);
+  }
+
+  private ToonDecodeFixtures() {}
+}
@@ -2,88 +2,276 @@ package org.toonjava;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.toonjava.ToonDecodeFixtures.Fixture;
 
+/**
+ * Decodifica cada fixture de {@link ToonDecodeFixtures} con cada {@link Mode}: los válidos deben
+ * dar el JSON esperado y los inválidos una {@link ToonException}, con el mismo mensaje que la
+ * lectura secuencial salvo en los modos que no lo comparan.
+ */
 class ToonDecoderFixtureTest {
   private static final ObjectMapper MAPPER = new ObjectMapper();
-  private static final Path FIXTURE_BASE =
-      Path.of(".", "src", "test", "resources", "fixtures", "decode");
 
-  @ParameterizedTest(name = "{0}")
+  /** Pool de varios hilos, para que la decodificación paralela reparta aunque haya un núcleo. */
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  @ParameterizedTest(name = "{0} :: {1}")
   @MethodSource("fixtureCases")
-  void decodeFixtures(
-      String displayName,
-      String input,
-      JsonNode expected,
-      boolean shouldError,
-      boolean isObject,
-      ToonDecoderOptions options) {
-    if (shouldError) {
-      assertThrows(ToonException.class, () -> ToonDecoder.decode(input, options), displayName);
+  void decodeFixtures(Mode mode, Fixture fixture) throws Exception {
+    if (fixture.shouldError()) {
+      ToonException error =
+          assertThrows(ToonException.class, () -> mode.decode(fixture), fixture.name());
+      if (mode.sameError) {
+        ToonException sequential =
+            assertThrows(
+                ToonException.class,
+                () -> ToonDecoder.decode(fixture.input(), fixture.options()));
+        assertEquals(sequential.getMessage(), error.getMessage(), fixture.name());
+      }
       return;
     }
+    JsonNode expected = mode.expected(fixture);
+    JsonNode actual = toJson(mode.decode(fixture));
+    assertEquals(expected, actual, () -> describeMismatch(fixture.name(), expected, actual));
+  }
+
+  private static Stream<Arguments> fixtureCases() {
+    List<Fixture> fixtures = ToonDecodeFixtures.load();
+    return Arrays.stream(Mode.values())
+        .flatMap(
+            mode -> fixtures.stream().filter(mode::appliesTo).map(f -> Arguments.of(mode, f)));
+  }
 
-    Object decoded = ToonDecoder.decode(input, options);
-    Object plain = ToonDecoder.toJavaValue(decoded);
-    JsonNode actualNode = MAPPER.valueToTree(plain);
+  /** Una forma de decodificar el texto de un fixture. */
+  enum Mode {
+    STRING(fixture -> ToonDecoder.decode(fixture.input(), fixture.options())),
+    JSON_NODE(
+        fixture ->
+            (JsonNode)
+                ToonDecoder.toJsonNode(ToonDecoder.decode(fixture.input(), fixture.options()))),
+    READER(fixture -> ToonDecoder.decode(new StringReader(fixture.input()), fixture.options())),
+    BYTES(
+        fixture -> {
+          byte[] padded = ("#" + fixture.input() + "#").getBytes(StandardCharsets.UTF_8);
+          return ToonDecoder.decode(padded, 1, padded.length - 2, fixture.options());
+        }),
+    BYTE_BUFFER(
+        fixture -> {
+          byte[] padded = ("#" + fixture.input() + "#").getBytes(StandardCharsets.UTF_8);
+          ByteBuffer direct = ByteBuffer.allocateDirect(padded.length).put(padded).position(1);
+          Object value = ToonDecoder.decode(direct.limit(padded.length - 1), fixture.options());
+          assertEquals(1, direct.position(), "la posición del ByteBuffer cambió");
+          return value;
+        }),
+    PATH(fixture -> fromFile(fixture, file -> ToonDecoder.decode(file, fixture.options()))),
+    SEGMENTED_PATH(
+        fixture ->
+            fromFile(
+                fixture,
+                file ->
+                    new ToonDecoder(new ToonTokener(ToonSource.of(file, 8), fixture.options()))
+                        .nextValue())),
+    COLUMNAR(fixture -> ToonDecoder.decode(fixture.input(), fixture.options().withColumnar(true))),
+    COLUMNAR_JSON(
+        fixture ->
+            (JsonNode)
+                ToonDecoder.toJsonNode(
+                    ToonDecoder.decode(fixture.input(), fixture.options().withColumnar(true)))),
+    /** Detecta el exceso de elementos de un array al llegar a ellos, con otro mensaje. */
+    PULL(fixture -> pull(fixture.input(), fixture.options()), false),
+    PARALLEL(fixture -> ToonDecoder.decode(fixture.input(), parallel(fixture.options()))),
+    LAZY(
+        fixture ->
+            validate(ToonDecoder.decode(fixture.input(), fixture.options().withLazy(true)))),
+    LAZY_JSON(
+        fixture ->
+            (JsonNode)
+                ToonDecoder.toJsonNode(
+                    ToonDecoder.decode(fixture.input(), fixture.options().withLazy(true)))),
+    SYMBOLS(
+        fixture ->
+            ToonDecoder.decode(fixture.input(), fixture.options().withSymbolTableSize(2))),
+    PARALLEL_SYMBOLS(
+        fixture ->
+            ToonDecoder.decode(
+                fixture.input(), parallel(fixture.options()).withSymbolTableSize(64))),
+    JACKSON(
+        fixture -> {
+          StringWriter json = new StringWriter();
+          try (JsonGenerator generator = MAPPER.getFactory().createGenerator(json)) {
+            ToonJackson.toJson(fixture.input(), fixture.options(), generator);
+          }
+          return MAPPER.readTree(json.toString());
+        }),
+    MAP(fixture -> ToonDecoder.decodeToMap(fixture.input(), fixture.options())) {
+      @Override
+      boolean appliesTo(Fixture fixture) {
+        return fixture.shouldError() || fixture.isObject();
+      }
+    },
+    MAP_JSON(
+        fixture ->
+            (JsonNode)
+                ToonDecoder.toJsonNode(
+                    ToonDecoder.decodeToMap(fixture.input(), fixture.options()))) {
+      @Override
+      boolean appliesTo(Fixture fixture) {
+        return fixture.shouldError() || fixture.isObject();
+      }
+    },
+    PROJECTION(
+        fixture ->
+            ToonDecoder.decode(
+                fixture.input(), fixture.options(), ToonProjection.of(firstKey(fixture)))) {
+      @Override
+      boolean appliesTo(Fixture fixture) {
+        String first = firstKey(fixture);
+        return first != null && !first.contains(".") && !first.endsWith("[*]");
+      }
 
-    assertEquals(expected, actualNode, () -> describeMismatch(displayName, expected, actualNode));
+      @Override
+      JsonNode expected(Fixture fixture) {
+        String first = firstKey(fixture);
+        return MAPPER.createObjectNode().set(first, fixture.expected().get(first));
+      }
+    };
 
-    Object jsonNode = ToonDecoder.toJsonNode(decoded);
-    assertTrue(
-        jsonNode instanceof JsonNode,
-        () -> displayName + " -> la conversión a JsonNode devolvió " + jsonNode);
-    assertEquals(expected, jsonNode, () -> describeMismatch(displayName, expected, jsonNode));
+    private final Decoding decoding;
+    private final boolean sameError;
 
-    if (isObject) {
-      JsonNode mapNode = MAPPER.valueToTree(ToonDecoder.decodeToMap(input, options));
-      assertEquals(expected, mapNode, () -> describeMismatch(displayName, expected, mapNode));
+    Mode(Decoding decoding) {
+      this(decoding, true);
     }
-  }
 
-  private static Stream<Arguments> fixtureCases() throws IOException {
-    if (!Files.isDirectory(FIXTURE_BASE)) {
-      throw new IllegalStateException("No se encontró el directorio de fixtures: " + FIXTURE_BASE);
+    Mode(Decoding decoding, boolean sameError) {
+      this.decoding = decoding;
+      this.sameError = sameError;
     }
 
-    return Files.list(FIXTURE_BASE)
-        .filter(Files::isRegularFile)
-        .sorted(Comparator.comparing(Path::getFileName))
-        .flatMap(ToonDecoderFixtureTest::readFixture);
+    Object decode(Fixture fixture) throws Exception {
+      return decoding.decode(fixture);
+    }
+
+    boolean appliesTo(Fixture fixture) {
+      return true;
+    }
+
+    JsonNode expected(Fixture fixture) {
+      return fixture.expected();
+    }
+  }
+
+  @FunctionalInterface
+  interface Decoding {
+    Object decode(Fixture fixture) throws Exception;
+  }
+
+  @FunctionalInterface
+  interface FileDecoding {
+    Object decode(Path file) throws Exception;
   }
 
-  private static Stream<Arguments> readFixture(Path path) {
+  /** Decodifica el fixture desde un fichero temporal UTF-8, que se borra después. */
+  private static Object fromFile(Fixture fixture, FileDecoding decoding) throws Exception {
+    Path file = Files.writeString(Files.createTempFile("toon-fixture", ".toon"), fixture.input());
     try {
-      JsonNode root = MAPPER.readTree(Files.readString(path));
-      JsonNode tests = root.get("tests");
-      if (tests == null || !tests.isArray()) {
-        throw new IllegalStateException("Fixture sin array de tests: " + path);
-      }
-      return StreamSupport.stream(tests.spliterator(), false).map(test -> toArguments(path, test));
-    } catch (IOException ex) {
-      throw new IllegalStateException("No se pudo leer el fixture " + path, ex);
+      return decoding.decode(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /** Primera clave de un fixture válido cuyo valor esperado es un objeto no vacío. */
+  private static String firstKey(Fixture fixture) {
+    if (fixture.shouldError() || !fixture.isObject()) {
+      return null;
+    }
+    Iterator<String> names = fixture.expected().fieldNames();
+    String first = names.hasNext() ? names.next() : null;
+    return first == null || first.isEmpty() ? null : first;
+  }
+
+  private static JsonNode toJson(Object value) {
+    return value instanceof JsonNode node
+        ? node
+        : MAPPER.valueToTree(ToonDecoder.toJavaValue(value));
+  }
+
+  /** Interpreta los bloques diferidos de un valor decodificado en modo {@code lazy}. */
+  private static Object validate(Object value) {
+    if (value instanceof ToonObject object) {
+      object.validate();
+    } else if (value instanceof ToonArray array) {
+      array.validate();
     }
+    return value;
   }
 
-  private static Arguments toArguments(Path path, JsonNode testNode) {
-    String name = testNode.path("name").asText("(sin nombre)");
-    String displayName = path.getFileName() + " :: " + name;
-    String input = testNode.path("input").asText();
-    JsonNode expected = testNode.get("expected");
-    boolean shouldError = testNode.path("shouldError").asBoolean(false);
-    boolean isObject = expected != null && expected.isObject();
-    ToonDecoderOptions options = parseOptions(testNode.get("options"));
-    return Arguments.of(displayName, input, expected, shouldError, isObject, options);
+  /**
+   * Reparte en lotes paralelos cualquier array tabular y en bloques cualquier raíz, por pequeños
+   * que sean, en un pool de varios hilos aunque la máquina tenga un único núcleo.
+   */
+  private static ToonDecoderOptions parallel(ToonDecoderOptions options) {
+    return options.withParallel(true).withParallelThreshold(1).withParallelPool(POOL);
+  }
+
+  /** Reconstruye el valor raíz a partir de los tokens de {@link ToonReader}. */
+  private static Object pull(String input, ToonDecoderOptions options) {
+    ToonReader reader = new ToonReader(input, options);
+    ToonReader.Token token = reader.nextToken();
+    Object value = token == null ? null : pullValue(reader, token);
+    if (reader.nextToken() != null) {
+      throw new ToonException("Se encontraron valores adicionales después del valor principal");
+    }
+    return value;
+  }
+
+  private static Object pullValue(ToonReader reader, ToonReader.Token token) {
+    switch (token) {
+      case START_OBJECT:
+        Map<String, Object> object = new LinkedHashMap<>();
+        while (reader.nextToken() != ToonReader.Token.END_OBJECT) {
+          String key = reader.getText();
+          object.put(key, pullValue(reader, reader.nextToken()));
+        }
+        return object;
+      case START_ARRAY:
+        List<Object> array = new ArrayList<>();
+        while ((token = reader.nextToken()) != ToonReader.Token.END_ARRAY) {
+          array.add(pullValue(reader, token));
+        }
+        return array;
+      case VALUE_STRING:
+        return reader.getText();
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return reader.getNumberValue();
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+        return reader.getBooleanValue();
+      default:
+        return null;
+    }
   }
 
   private static String describeMismatch(String displayName, JsonNode expected, Object actual) {
@@ -101,19 +289,5 @@ class ToonDecoderFixtureTest {
         + ")";
   }
 
-  private static ToonDecoderOptions parseOptions(JsonNode node) {
-    if (node == null || node.isNull()) {
-      return ToonDecoderOptions.defaults();
-    }
-    ToonDecoderOptions base = ToonDecoderOptions.defaults();
-    int indent =
-        node.path("indent").isNumber() ? node.path("indent").asInt(base.indent()) : base.indent();
-    boolean strict =
-        node.path("strict").isBoolean()
-            ? node.path("strict").asBoolean(base.strict())
-            : base.strict();
-    return new ToonDecoderOptions(indent, strict);
-  }
-
   private ToonDecoderFixtureTest() {}
 }
@@ -0,0 +1,141 @@
+package org.toonjava;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class ToonEncoderFixtureTest {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Path FIXTURE_BASE =
+      Path.of(".", "src", "test", "resources", "fixtures", "encode");
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("fixtureCases")
+  void encodeFixtures(
+      String displayName,
+      Object input,
+      String json,
+      String expected,
+      boolean container,
+      ToonEncoderOptions options)
+      throws IOException {
+    assertEquals(expected, ToonEncoder.encode(input, options), displayName);
+
+    StringWriter writer = new StringWriter();
+    ToonEncoder.encode(input, options, writer);
+    assertEquals(expected, writer.toString(), displayName + " (Writer)");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ToonEncoder.encode(input, options, bytes);
+    assertEquals(
+        expected, bytes.toString(StandardCharsets.UTF_8), displayName + " (OutputStream)");
+
+    StringBuilder streamed = new StringBuilder();
+    try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+      ToonJackson.toToon(parser, options, streamed);
+    }
+    assertEquals(expected, streamed.toString(), displayName + " (JsonParser)");
+
+    if (container && !expected.isEmpty()) {
+      Object decoded = ToonDecoder.decode(expected);
+      assertEquals(expected, ToonEncoder.encode(decoded, options), displayName + " (ToonObject)");
+      Object columnar =
+          ToonDecoder.decode(expected, ToonDecoderOptions.defaults().withColumnar(true));
+      assertEquals(expected, ToonEncoder.encode(columnar, options), displayName + " (ToonTable)");
+    }
+  }
+
+  @Test
+  void writesLargeDocumentsAcrossBufferFlushes() {
+    List<Object> rows = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      row.put("id", i);
+      row.put("name", "fila " + "\uD83D\uDE00".repeat(i % 7) + " ñ");
+      rows.add(row);
+    }
+    Map<String, Object> document = Map.of("rows", rows);
+    String encoded = ToonEncoder.encode(document);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ToonEncoder.encode(document, bytes);
+    assertEquals(encoded, bytes.toString(StandardCharsets.UTF_8));
+    assertEquals(
+        MAPPER.valueToTree(document), MAPPER.valueToTree(ToonDecoder.decodeToMap(encoded)));
+  }
+
+  private static Stream<Arguments> fixtureCases() throws IOException {
+    if (!Files.isDirectory(FIXTURE_BASE)) {
+      throw new IllegalStateException("No se encontró el directorio de fixtures: " + FIXTURE_BASE);
+    }
+
+    return Files.list(FIXTURE_BASE)
+        .filter(Files::isRegularFile)
+        .sorted(Comparator.comparing(Path::getFileName))
+        .flatMap(ToonEncoderFixtureTest::readFixture);
+  }
+
+  private static Stream<Arguments> readFixture(Path path) {
+    try {
+      JsonNode root = MAPPER.readTree(Files.readString(path));
+      JsonNode tests = root.get("tests");
+      if (tests == null || !tests.isArray()) {
+        throw new IllegalStateException("Fixture sin array de tests: " + path);
+      }
+      return StreamSupport.stream(tests.spliterator(), false).map(test -> toArguments(path, test));
+    } catch (IOException ex) {
+      throw new IllegalStateException("No se pudo leer el fixture " + path, ex);
+    }
+  }
+
+  private static Arguments toArguments(Path path, JsonNode testNode) {
+    String name = testNode.path("name").asText("(sin nombre)");
+    String displayName = path.getFileName() + " :: " + name;
+    JsonNode inputNode = testNode.get("input");
+    Object input = MAPPER.convertValue(inputNode, Object.class);
+    String expected = testNode.path("expected").asText();
+    ToonEncoderOptions options = parseOptions(testNode.get("options"));
+    return Arguments.of(
+        displayName,
+        input,
+        inputNode.toString(),
+        expected,
+        inputNode.isContainerNode(),
+        options);
+  }
+
+  private static ToonEncoderOptions parseOptions(JsonNode node) {
+    ToonEncoderOptions options = ToonEncoderOptions.defaults();
+    if (node == null || node.isNull()) {
+      return options;
+    }
+    if (node.path("indent").isNumber()) {
+      options = options.withIndent(node.path("indent").asInt());
+    }
+    if (node.path("delimiter").isTextual()) {
+      options = options.withDelimiter(node.path("delimiter").asText().charAt(0));
+    }
+    return options.withLengthMarker("#".equals(node.path("lengthMarker").asText(null)));
+  }
+
+  private ToonEncoderFixtureTest() {}
+}
@@ -0,0 +1,120 @@
+package org.toonjava;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.toonjava.grammar.ToonLexer;
+import org.toonjava.grammar.ToonParser;
+
+/** Contrasta el analizador manual {@link ToonHeader} con la gramática {@code Toon.g4} (SPEC §6). */
+class ToonHeaderConformanceTest {
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "items[3]:",
+        "items[#3]:",
+        "items[3|]:",
+        "items[3\t]:",
+        "items[0]:",
+        "[5]:",
+        "[#2|]:",
+        "items[3]{id,name}:",
+        "items[3|]{id|name|role}:",
+        "items[2\t]{id\tname}:",
+        "\"my-key\"[2]:",
+        "\"x-items\"[#2|]{\"id\"|\"display name\"}:",
+        "\"a\\\"b\"[1]{\"c\\\\d\",e_f.g}:",
+        "data.items_2[12]:",
+        "items [3] :",
+        "items[ 3 ]{ id , name }:"
+      })
+  void matchesGrammarOnValidHeaders(String header) {
+    ToonHeader expected = parseWithGrammar(header);
+    ToonHeader actual = ToonHeader.parse(header.toCharArray(), 0, header.length(), 1, 0);
+
+    assertEquals(expected.key, actual.key, header);
+    assertEquals(expected.length, actual.length, header);
+    assertEquals(expected.delimiter, actual.delimiter, header);
+    assertEquals(expected.fields, actual.fields, header);
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "items[]:",
+        "items[3]",
+        "items[x]:",
+        "items[3;]:",
+        "my-key[2]:",
+        "1items[2]:",
+        "items[3]{}:",
+        "items[3]{id,}:",
+        "items[3]{id name}:",
+        "\"open[2]:",
+        "\"bad\\x\"[2]:",
+        "items[3]: extra:",
+        "items[99999999999]:"
+      })
+  void rejectsHeadersRejectedByGrammar(String header) {
+    assertThrows(RuntimeException.class, () -> parseWithGrammar(header), header);
+    assertThrows(
+        ToonException.class,
+        () -> ToonHeader.parse(header.toCharArray(), 0, header.length(), 1, 0),
+        header);
+  }
+
+  private static ToonHeader parseWithGrammar(String headerText) {
+    ToonLexer lexer = new ToonLexer(CharStreams.fromString(headerText));
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(FailingErrorListener.INSTANCE);
+    ToonParser parser = new ToonParser(new CommonTokenStream(lexer));
+    parser.removeErrorListeners();
+    parser.addErrorListener(FailingErrorListener.INSTANCE);
+    ToonParser.HeaderContext ctx = parser.header();
+
+    String key = ctx.key() != null ? keyText(ctx.key()) : null;
+    ToonParser.BracketSegmentContext bracket = ctx.bracketSegment();
+    int length = Integer.parseInt(bracket.DIGITS().getText());
+    char delimiter = bracket.delimsym() != null ? bracket.delimsym().getText().charAt(0) : ',';
+    List<String> fields = new ArrayList<>();
+    if (ctx.fieldsSegment() != null) {
+      for (ToonParser.FieldNameContext field : ctx.fieldsSegment().fieldName()) {
+        fields.add(keyText(field.key()));
+      }
+    }
+    return new ToonHeader(key, length, delimiter, List.copyOf(fields));
+  }
+
+  private static String keyText(ToonParser.KeyContext key) {
+    if (key.UNQUOTED_KEY() != null) {
+      return key.UNQUOTED_KEY().getText();
+    }
+    char[] chars = key.STRING().getText().toCharArray();
+    return ToonPrimitives.unescape(chars, 0, chars.length, 1, 0);
+  }
+
+  private static final class FailingErrorListener extends BaseErrorListener {
+    static final FailingErrorListener INSTANCE = new FailingErrorListener();
+
+    @Override
+    public void syntaxError(
+        Recognizer<?, ?> recognizer,
+        Object offendingSymbol,
+        int line,
+        int charPositionInLine,
+        String msg,
+        RecognitionException e) {
+      throw new IllegalArgumentException("línea " + line + ":" + charPositionInLine + " " + msg);
+    }
+  }
+}
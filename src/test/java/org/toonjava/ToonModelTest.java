@@ -1,13 +1,21 @@
 package org.toonjava;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 class ToonModelTest {
@@ -96,4 +104,411 @@ class ToonModelTest {
     object.put("value", ToonNull.INSTANCE);
     assertNull(object.get("value"));
   }
+
+  @Test
+  void columnarTablesStoreTypedColumnsAndExposeRowViews() {
+    String source =
+        String.join(
+            "\n",
+            "items[4]{sku,qty,price,active,note}:",
+            "  A1,2,9.5,true,null",
+            "  B2,5000000000,10,false,gift",
+            "  C3,null,null,null,7",
+            "  D4,1,2.25,true,ok");
+
+    ToonObject root =
+        ToonDecoder.decodeObject(source, ToonDecoderOptions.defaults().withColumnar(true));
+    ToonTable table = (ToonTable) root.getArray("items");
+
+    assertEquals(ToonTable.ColumnType.STRING, table.columnType("sku"));
+    assertEquals(ToonTable.ColumnType.LONG, table.columnType("qty"));
+    assertEquals(ToonTable.ColumnType.DOUBLE, table.columnType("price"));
+    assertEquals(ToonTable.ColumnType.BOOLEAN, table.columnType("active"));
+    assertEquals(ToonTable.ColumnType.MIXED, table.columnType("note"));
+    assertArrayEquals(new long[] {2, 5_000_000_000L, 0, 1}, table.getLongColumn("qty"));
+    assertArrayEquals(new double[] {9.5, 10, 0, 2.25}, table.getDoubleColumn("price"));
+    assertTrue(table.isNull(2, "qty"));
+    assertThrows(ToonException.class, () -> table.getIntColumn("qty"));
+
+    ToonObject second = table.row(1);
+    assertEquals(10, second.get("price"));
+    assertEquals(5_000_000_000L, second.get("qty"));
+    assertNull(table.getObject(2).get("price"));
+    assertEquals(
+        ToonDecoder.decodeObject(source).toMap(), root.toMap(), "mismo contenido que por filas");
+    assertThrows(ToonException.class, () -> table.add("x"));
+    assertThrows(ToonException.class, () -> second.put("qty", 1));
+
+    String widened =
+        String.join("\n", "rows[2]{big,huge}:", "  5000000000,9007199254740993", "  0.5,0.5");
+    ToonTable rows =
+        (ToonTable)
+            ToonDecoder.decodeObject(widened, ToonDecoderOptions.defaults().withColumnar(true))
+                .getArray("rows");
+    assertEquals(ToonTable.ColumnType.DOUBLE, rows.columnType("big"));
+    assertArrayEquals(new double[] {5_000_000_000L, 0.5}, rows.getDoubleColumn("big"));
+    assertEquals(ToonTable.ColumnType.MIXED, rows.columnType("huge"));
+    assertEquals(ToonDecoder.decodeObject(widened).toMap(), Map.of("rows", rows.toList()));
+  }
+
+  @Test
+  void tabularRowsShareShapeUntilANewKeyIsAdded() {
+    String source = String.join("\n", "users[2]{id,name}:", "  1,Ada", "  2,Bob");
+
+    ToonArray users = ToonDecoder.decodeObject(source).getArray("users");
+    ToonObject first = users.getObject(0);
+    first.put("name", "Ada L.");
+    first.put("role", "admin");
+    first.remove("id");
+
+    assertEquals(Map.of("name", "Ada L.", "role", "admin"), first.toMap());
+    assertEquals(List.of("name", "role"), List.copyOf(first.keySet()));
+    assertEquals(Map.of("id", 2, "name", "Bob"), users.getObject(1).toMap());
+    assertNull(users.getObject(1).opt("role"));
+  }
+
+  @Test
+  void tracksTabularShapeAcrossArrayAndElementChanges() {
+    ToonArray rows = new ToonArray();
+    rows.add(Map.of("id", 1));
+    assertEquals(List.of("id"), rows.tabularFields());
+
+    rows.add(Map.of("id", 2));
+    rows.add(Map.of("id", 3, "name", "Cy"));
+    assertNull(rows.tabularFields());
+    rows.remove(2);
+    assertEquals(List.of("id"), rows.tabularFields());
+
+    ToonObject second = rows.getObject(1);
+    second.put("tags", List.of("a"));
+    assertNull(rows.tabularFields());
+    second.put("tags", "a");
+    assertNull(rows.tabularFields());
+    second.remove("tags");
+    assertEquals(List.of("id"), rows.tabularFields());
+
+    LinkedHashMap<String, Object> reordered = new LinkedHashMap<>();
+    reordered.put("name", "Ada");
+    reordered.put("id", 0);
+    rows.getObject(0).put("name", "Bob");
+    second.put("name", "Cy");
+    rows.add(0, reordered);
+    assertEquals(List.of("name", "id"), rows.tabularFields());
+    assertEquals("[3]{name,id}:\n  Ada,0\n  Bob,1\n  Cy,2", ToonEncoder.encode(rows));
+
+    rows.set(2, List.of());
+    assertNull(rows.tabularFields());
+    rows.set(2, Map.of("id", 2, "name", "Cy"));
+    assertEquals(List.of("name", "id"), rows.tabularFields());
+
+    ToonArray users =
+        ToonDecoder.decodeObject(String.join("\n", "users[2]{id,name}:", "  1,Ada", "  2,Bob"))
+            .getArray("users");
+    assertEquals(List.of("id", "name"), users.tabularFields());
+    users.getObject(1).put("role", "admin");
+    assertNull(users.tabularFields());
+  }
+
+  @Test
+  void projectionSkipsUnrequestedKeysAndColumns() {
+    String source =
+        String.join(
+            "\n",
+            "meta:",
+            "  version: 3",
+            "  author: Ada",
+            "users[2]{id,name}:",
+            "  1,Ada",
+            "  2,Bob",
+            "logs[2]:",
+            "  - level: info",
+            "    text: \"sin \\q escape\"",
+            "  - level: warn",
+            "items[2]:",
+            "  - id: 9",
+            "    tags[1]: t",
+            "  - 7");
+    ToonProjection projection = ToonProjection.of("meta.version", "users[*].id", "items.id");
+
+    ToonObject root = (ToonObject) ToonDecoder.decode(source, projection);
+    assertEquals(List.of("meta", "users", "items"), List.copyOf(root.keySet()));
+    assertEquals(Map.of("version", 3), root.getObject("meta").toMap());
+    assertEquals(List.of(Map.of("id", 1), Map.of("id", 2)), root.getArray("users").toList());
+    assertEquals(List.of(Map.of("id", 9), 7), root.getArray("items").toList());
+    ToonDecoderOptions columnar = ToonDecoderOptions.defaults().withColumnar(true);
+    ToonObject projected = (ToonObject) ToonDecoder.decode(source, columnar, projection);
+    ToonTable users = (ToonTable) projected.getArray("users");
+    assertEquals(List.of("id"), users.fields());
+
+    assertThrows(
+        ToonException.class,
+        () -> ToonDecoder.decode(source.replace("logs[2]", "logs[3]"), projection));
+    assertEquals(
+        root.toMap(),
+        ((ToonObject)
+                ToonDecoder.decode(
+                    source.replace("logs[2]", "logs[3]"),
+                    ToonDecoderOptions.defaults().withStrict(false),
+                    projection))
+            .toMap());
+    assertThrows(IllegalArgumentException.class, () -> ToonProjection.of("meta..version"));
+  }
+
+  @Test
+  void lazyDecodingParsesNestedBlocksOnFirstAccess() {
+    String source =
+        String.join(
+            "\n",
+            "id: 7",
+            "config:",
+            "  name: demo",
+            "  limits:",
+            "    max: 3",
+            "broken[2]:",
+            "  - 1",
+            "tags[2]: a,b",
+            "");
+    ToonDecoderOptions lazy = ToonDecoderOptions.defaults().withLazy(true);
+    assertThrows(ToonException.class, () -> ToonDecoder.decode(source));
+
+    ToonObject root = (ToonObject) ToonDecoder.decode(source, lazy);
+    assertEquals(7, root.getInt("id"));
+    assertEquals(List.of("a", "b"), root.getArray("tags").toList());
+    ToonObject config = root.getObject("config");
+    assertSame(config, root.getObject("config"));
+    assertEquals(3, config.getObject("limits").getInt("max"));
+    ToonException error = assertThrows(ToonException.class, () -> root.getArray("broken"));
+    assertThrows(ToonException.class, root::validate);
+    assertEquals(
+        assertThrows(ToonException.class, () -> ToonDecoder.decode(source)).getMessage(),
+        error.getMessage());
+
+    assertThrows(ToonException.class, () -> root.remove("broken"));
+    assertTrue(root.has("broken"));
+    root.put("broken", List.of(1));
+    assertSame(config, root.validate().getObject("config"));
+    assertEquals(
+        ToonEncoder.encode(ToonDecoder.decode(source.replace("broken[2]", "broken[1]"))),
+        ToonEncoder.encode(root));
+  }
+
+  @Test
+  void lazyDecodingReportsReplacedBlocksAndTrailingBlankLinesLikeTheFullRead() {
+    ToonDecoderOptions lazy = ToonDecoderOptions.defaults().withLazy(true);
+    for (String source :
+        List.of(
+            "a:\n  b:\n     c: 1\na: 2",
+            "a:\n  x[5]:\n    - 1\na:\n  ok: 1",
+            "a:\n  x: \"open\na: 1",
+            "a:\n  b:\n    c[1]: 1,2\na:\n  d: 1\na: 3",
+            "items[2|]{\"a|b\"}:\n  1\n  ",
+            "a:\n  x[1]:\n    - 1\n    \nb: 1")) {
+      ToonException sequential =
+          assertThrows(ToonException.class, () -> ToonDecoder.decode(source), source);
+      ToonException deferred =
+          assertThrows(
+              ToonException.class, () -> ToonDecoder.decodeObject(source, lazy).validate(), source);
+      assertEquals(sequential.getMessage(), deferred.getMessage(), source);
+    }
+    assertEquals(
+        Map.of("a", 2, "b", List.of(1)),
+        ToonDecoder.decodeObject("a:\n  x: 1\n  \nb[1]:\n  - 1\n\na: 2", lazy).validate().toMap());
+  }
+
+  @Test
+  void symbolTableSharesRepeatedKeysAndShortValues() {
+    String source =
+        String.join(
+            "\n",
+            "users[3]:",
+            "  - name: ada",
+            "    \"role\": admin",
+            "  - name: bob",
+            "    role: \"admin\"",
+            "  - name: ada",
+            "    role: x",
+            "");
+    ToonArray users =
+        (ToonArray)
+            ((ToonObject)
+                    ToonDecoder.decode(
+                        source, ToonDecoderOptions.defaults().withSymbolTableSize(16)))
+                .get("users");
+    ToonObject first = users.getObject(0);
+    ToonObject second = users.getObject(1);
+    assertSame(first.getString("role"), second.getString("role"));
+    assertSame(first.getString("name"), users.getObject(2).getString("name"));
+    assertSame(first.keySet().iterator().next(), second.keySet().iterator().next());
+
+    ToonArray capped =
+        (ToonArray)
+            ((ToonObject)
+                    ToonDecoder.decode(
+                        source, ToonDecoderOptions.defaults().withSymbolTableSize(1)))
+                .get("users");
+    assertNotSame(capped.getObject(0).getString("role"), capped.getObject(1).getString("role"));
+    assertEquals(
+        ToonEncoder.encode(((ToonObject) ToonDecoder.decode(source)).get("users")),
+        ToonEncoder.encode(capped));
+    for (int size : new int[] {1 << 29, 1 << 30, Integer.MAX_VALUE}) {
+      assertEquals(
+          ToonEncoder.encode(ToonDecoder.decode(source)),
+          ToonEncoder.encode(
+              ToonDecoder.decode(source, ToonDecoderOptions.defaults().withSymbolTableSize(size))));
+    }
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ToonDecoderOptions.defaults().withSymbolTableSize(-1));
+  }
+
+  @Test
+  void viewsReadTheTreeWithoutCopyingAndFreezeMakesItImmutable() {
+    ToonObject root =
+        ToonDecoder.decodeObject(
+            String.join(
+                "\n",
+                "name: demo",
+                "owner: null",
+                "limits:",
+                "  max: 3",
+                "tags[2]: a,b",
+                "users[2]{id,role}:",
+                "  1,admin",
+                "  2,null",
+                ""),
+            ToonDecoderOptions.defaults().withLazy(true));
+    Map<String, Object> view = root.asMap();
+    assertSame(view, root.asMap());
+    assertEquals(root.toMap(), view);
+    assertEquals(root.toMap().toString(), root.toString());
+    assertTrue(view.containsKey("owner"));
+    assertNull(view.get("owner"));
+    assertEquals(List.of("a", "b"), view.get("tags"));
+    assertNull(((Map<?, ?>) ((List<?>) view.get("users")).get(1)).get("role"));
+    assertThrows(UnsupportedOperationException.class, () -> view.put("x", 1));
+
+    root.getObject("limits").put("min", 1);
+    assertEquals(Map.of("max", 3, "min", 1), view.get("limits"));
+    root.getArray("tags").add("c");
+    assertEquals(List.of("a", "b", "c"), root.getArray("tags").asList());
+
+    assertSame(root, root.freeze());
+    assertTrue(root.isFrozen());
+    assertTrue(root.getObject("limits").isFrozen());
+    assertSame(view, root.toMap());
+    assertSame(root.getArray("tags").asList(), root.getArray("tags").toList());
+    assertThrows(ToonException.class, () -> root.put("x", 1));
+    assertThrows(ToonException.class, () -> root.remove("name"));
+    assertThrows(ToonException.class, () -> root.getObject("limits").put("max", 4));
+    assertThrows(ToonException.class, () -> root.getArray("tags").add("d"));
+    assertThrows(ToonException.class, () -> root.getArray("tags").set(0, "z"));
+    Iterator<Object> tags = root.getArray("tags").iterator();
+    tags.next();
+    assertThrows(ToonException.class, tags::remove);
+    assertEquals(3, root.getArray("tags").size());
+
+    ToonObject broken =
+        ToonDecoder.decodeObject(
+            "ok: 1\nbroken[2]:\n  - 1\n", ToonDecoderOptions.defaults().withLazy(true));
+    assertThrows(ToonException.class, broken::freeze);
+    assertFalse(broken.isFrozen());
+    broken.put("broken", 2);
+    assertEquals(Map.of("ok", 1, "broken", 2), broken.freeze().asMap());
+  }
+
+  @Test
+  void homogeneousArraysKeepPrimitiveStorageAndWidenOnMismatch() {
+    ToonObject root =
+        ToonDecoder.decodeObject(
+            String.join(
+                "\n",
+                "ids[3]: 1,2,3",
+                "scores[3]: 0.5,1,2.25",
+                "flags[2]: true,false",
+                "big[2]: 1,9007199254740993",
+                ""));
+    ToonArray ids = root.getArray("ids");
+    assertArrayEquals(new int[] {1, 2, 3}, ids.toIntArray());
+    assertArrayEquals(new long[] {1, 2, 3}, ids.toLongArray());
+    assertEquals(2, ids.getInt(1));
+    assertEquals(List.of(1, 2, 3), ids.toList());
+    ToonArray scores = root.getArray("scores");
+    assertArrayEquals(new double[] {0.5, 1, 2.25}, scores.toDoubleArray(), 0);
+    assertEquals(List.of(0.5, 1, 2.25), scores.toList());
+    assertArrayEquals(new boolean[] {true, false}, root.getArray("flags").toBooleanArray());
+    ToonArray big = root.getArray("big");
+    assertEquals(List.of(1, 9007199254740993L), big.toList());
+    assertEquals(9007199254740993L, big.getLong(1));
+
+    ids.add(1.5);
+    assertEquals(List.of(1, 2, 3, 1.5), ids.toList());
+    big.add(0.5);
+    assertEquals(List.of(1, 9007199254740993L, 0.5), big.toList());
+    ids.set(0, "x");
+    assertEquals(List.of("x", 2, 3, 1.5), ids.toList());
+    assertThrows(ToonException.class, ids::toIntArray);
+    assertThrows(ToonException.class, () -> ids.getInt(4));
+    ToonArray longs = new ToonArray().add(5L);
+    assertEquals(Long.class, longs.get(0).getClass());
+    assertArrayEquals(new int[0], new ToonArray().toIntArray());
+
+    Random random = new Random(7);
+    Object[] samples = {1, -2, 1L << 40, 2.5, 3.0, true, "s", null, 7L};
+    ToonArray array = new ToonArray();
+    List<Object> expected = new ArrayList<>();
+    for (int step = 0; step < 2000; step++) {
+      Object value = samples[random.nextInt(step < 1000 ? 4 : samples.length)];
+      int operation = random.nextInt(4);
+      if (operation == 0 && !expected.isEmpty()) {
+        int index = random.nextInt(expected.size());
+        assertEquals(expected.remove(index), array.remove(index));
+      } else if (operation == 1 && !expected.isEmpty()) {
+        int index = random.nextInt(expected.size());
+        expected.set(index, value);
+        array.set(index, value);
+      } else {
+        int index = random.nextInt(expected.size() + 1);
+        expected.add(index, value);
+        array.add(index, value);
+      }
+      if (step % 100 == 0) {
+        assertEquals(expected, array.toList());
+      }
+    }
+    assertEquals(expected, array.toList());
+  }
+
+  @Test
+  void streamsRowsOfATableOneAtATime() {
+    String source =
+        String.join(
+            "\n",
+            "meta:",
+            "  rows[1]: skipped",
+            "rows[3]{id,name}:",
+            "  1,Ada",
+            "  2,Bob",
+            "  3,\"Cy\"",
+            "after: ignored");
+
+    List<Map<String, Object>> rows =
+        ToonDecoder.streamRows(new StringReader(source), "rows").map(ToonObject::toMap).toList();
+
+    assertEquals(
+        List.of(
+            Map.of("id", 1, "name", "Ada"),
+            Map.of("id", 2, "name", "Bob"),
+            Map.of("id", 3, "name", "Cy")),
+        rows);
+    assertEquals(2, ToonDecoder.streamRows("[2]:\n  - a: 1\n  - b: 2", null).count());
+
+    Iterator<ToonObject> tooMany =
+        ToonDecoder.streamRows("rows[1]{id}:\n  1\n  2\n  3", "rows").iterator();
+    assertEquals(1, tooMany.next().getInt("id"));
+    ToonException ex = assertThrows(ToonException.class, tooMany::hasNext);
+    assertEquals(3, ex.getLine());
+    assertThrows(
+        ToonException.class, () -> ToonDecoder.streamRows("rows[2]{id}:\n  1", "rows").count());
+    assertThrows(ToonException.class, () -> ToonDecoder.streamRows("a: 1", "rows").count());
+  }
 }
@@ -0,0 +1,148 @@
+package org.toonjava;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.toonjava.ToonReader.Token;
+
+class ToonReaderTest {
+
+  @Test
+  void emitsTokensForAllArrayForms() {
+    String source =
+        String.join(
+            "\n",
+            "tags[2]: a,\"b c\"",
+            "rows[2]{id,ok}:",
+            "  1,true",
+            "  2,null",
+            "items[2]:",
+            "  - k: v",
+            "  - 2.5");
+
+    ToonReader reader = new ToonReader(new StringReader(source));
+    List<String> tokens = new ArrayList<>();
+    Token token;
+    while ((token = reader.nextToken()) != null) {
+      String text = reader.getText();
+      tokens.add(text == null ? token.name() : token.name() + "(" + text + ")");
+    }
+
+    assertEquals(
+        List.of(
+            "START_OBJECT",
+            "FIELD_NAME(tags)",
+            "START_ARRAY",
+            "VALUE_STRING(a)",
+            "VALUE_STRING(b c)",
+            "END_ARRAY",
+            "FIELD_NAME(rows)",
+            "START_ARRAY",
+            "START_OBJECT",
+            "FIELD_NAME(id)",
+            "VALUE_NUMBER_INT(1)",
+            "FIELD_NAME(ok)",
+            "VALUE_TRUE(true)",
+            "END_OBJECT",
+            "START_OBJECT",
+            "FIELD_NAME(id)",
+            "VALUE_NUMBER_INT(2)",
+            "FIELD_NAME(ok)",
+            "VALUE_NULL(null)",
+            "END_OBJECT",
+            "END_ARRAY",
+            "FIELD_NAME(items)",
+            "START_ARRAY",
+            "START_OBJECT",
+            "FIELD_NAME(k)",
+            "VALUE_STRING(v)",
+            "END_OBJECT",
+            "VALUE_NUMBER_FLOAT(2.5)",
+            "END_ARRAY",
+            "END_OBJECT"),
+        tokens);
+  }
+
+  @Test
+  void exposesTypedValuesAndSkipsSubtrees() {
+    String source =
+        String.join(
+            "\n",
+            "skip:",
+            "  deep[2]{a,b}:",
+            "    1,2",
+            "    3,4",
+            "big: 9223372036854775807",
+            "ratio: -1.5e3",
+            "list[3]: 1,2,3");
+
+    ToonReader reader = new ToonReader(source);
+    assertEquals(Token.START_OBJECT, reader.nextToken());
+    assertEquals(Token.FIELD_NAME, reader.nextToken());
+    assertEquals(Token.START_OBJECT, reader.nextToken());
+    assertEquals("skip", reader.currentName());
+    reader.skipChildren();
+    assertEquals(Token.END_OBJECT, reader.currentToken());
+
+    assertEquals(Token.FIELD_NAME, reader.nextToken());
+    assertEquals(Token.VALUE_NUMBER_INT, reader.nextToken());
+    assertEquals("big", reader.currentName());
+    assertEquals(Long.MAX_VALUE, reader.getLongValue());
+    assertThrows(ToonException.class, reader::getIntValue);
+    assertThrows(ToonException.class, reader::getBooleanValue);
+
+    assertEquals(Token.FIELD_NAME, reader.nextToken());
+    assertEquals(Token.VALUE_NUMBER_FLOAT, reader.nextToken());
+    assertEquals(-1500d, reader.getDoubleValue());
+    assertEquals(-1500, reader.getIntValue());
+
+    assertEquals(Token.FIELD_NAME, reader.nextToken());
+    assertEquals(Token.START_ARRAY, reader.nextToken());
+    assertEquals(3, reader.declaredLength());
+    int sum = 0;
+    while (reader.nextToken() == Token.VALUE_NUMBER_INT) {
+      assertNull(reader.currentName());
+      sum += reader.getIntValue();
+    }
+    assertEquals(6, sum);
+    assertEquals(Token.END_ARRAY, reader.currentToken());
+    assertEquals(Token.END_OBJECT, reader.nextToken());
+    assertNull(reader.nextToken());
+  }
+
+  @Test
+  void checksDeclaredLengthsWhenClosingArrays() {
+    ToonReader reader = new ToonReader(String.join("\n", "[3]:", "  - a", "  - b"));
+    assertEquals(Token.START_ARRAY, reader.nextToken());
+    reader.nextToken();
+    reader.nextToken();
+
+    ToonException ex = assertThrows(ToonException.class, reader::nextToken);
+    assertEquals(1, ex.getLine());
+
+    ToonReader skipped = new ToonReader(String.join("\n", "rows[1]{a}:", "  1", "  2"));
+    skipped.nextToken();
+    skipped.nextToken();
+    assertEquals(Token.START_ARRAY, skipped.nextToken());
+    assertThrows(ToonException.class, skipped::skipChildren);
+  }
+
+  @Test
+  void reportsInvalidPrimitivesOnTheirToken() {
+    ToonReader reader = new ToonReader("[2]: ok,\"bad\\q\"");
+    reader.nextToken();
+    assertEquals(Token.VALUE_STRING, reader.nextToken());
+    assertFalse(reader.getText().isEmpty());
+
+    ToonException ex = assertThrows(ToonException.class, reader::nextToken);
+    assertEquals(1, ex.getLine());
+    assertTrue(ex.getColumn() > 1);
+  }
+}
@@ -3,9 +3,19 @@ package org.toonjava;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 
 class ToonTokenerTest {
@@ -118,4 +128,331 @@ class ToonTokenerTest {
     Map<String, Object> second = (Map<String, Object>) items.get(1);
     assertEquals("Bob", second.get("name"));
   }
+
+  @Test
+  void classifiesNumericBoundaries() {
+    String source =
+        "[10]: 2147483647,2147483648,-9223372036854775808,0.1,1e22,1e23,"
+            + "123456789012345678901e-3,007,1.,-0";
+
+    ToonTokener tokener = new ToonTokener(source);
+    List<Object> values = tokener.nextArray();
+
+    assertEquals(
+        List.of(
+            2147483647,
+            2147483648L,
+            Long.MIN_VALUE,
+            0.1d,
+            1e22d,
+            1e23d,
+            123456789012345678.901d,
+            "007",
+            "1.",
+            0),
+        values);
+    assertThrows(ToonException.class, () -> new ToonTokener("n: 9223372036854775808").nextObject());
+  }
+
+  @Test
+  void buildsContainersThroughCustomValueBuilder() {
+    String source =
+        String.join(
+            "\n", "meta:", "  tags[2]: a,b", "rows[2]{name,id}:", "  x,1", "  y,null", "empty:");
+    ToonValueBuilder<TreeMap<String, Object>, List<Object>> sorted =
+        new ToonValueBuilder<>() {
+          @Override
+          public TreeMap<String, Object> createObject() {
+            return new TreeMap<>();
+          }
+
+          @Override
+          public void put(TreeMap<String, Object> object, String key, Object value) {
+            object.put(key, value == null ? "<null>" : value);
+          }
+
+          @Override
+          public List<Object> createArray(int expectedSize) {
+            return new LinkedList<>();
+          }
+
+          @Override
+          public void add(List<Object> array, Object value) {
+            array.add(value);
+          }
+        };
+
+    for (ToonDecoderOptions options :
+        List.of(ToonDecoderOptions.defaults(), ToonDecoderOptions.defaults().withColumnar(true))) {
+      TreeMap<String, Object> root = new ToonTokener(source, options).nextObject(sorted);
+
+      assertEquals(List.of("empty", "meta", "rows"), List.copyOf(root.keySet()));
+      assertEquals(new TreeMap<>(), root.get("empty"));
+      assertEquals(LinkedList.class, root.get("rows").getClass());
+      assertEquals(
+          List.of(new TreeMap<>(Map.of("id", 1, "name", "x")), Map.of("id", "<null>", "name", "y")),
+          root.get("rows"));
+    }
+  }
+
+  @Test
+  void emitsEventsWithoutBuildingTree() {
+    String source =
+        String.join(
+            "\n",
+            "id: 7",
+            "tags[2|]: a|b",
+            "rows[2]{x,y}:",
+            "  1,null",
+            "  2,\"z\"",
+            "items[2]:",
+            "  - k: v",
+            "    n:",
+            "  -",
+            "end: true");
+    List<String> events = new ArrayList<>();
+    ToonHandler recorder =
+        new ToonHandler() {
+          @Override
+          public void startObject() {
+            events.add("{");
+          }
+
+          @Override
+          public void key(String key) {
+            events.add(key + ":");
+          }
+
+          @Override
+          public void endObject() {
+            events.add("}");
+          }
+
+          @Override
+          public void startArray(int length, char delimiter, List<String> fields) {
+            events.add("[" + length + delimiter + fields);
+          }
+
+          @Override
+          public void primitive(Object value) {
+            events.add(String.valueOf(value));
+          }
+
+          @Override
+          public void tabularRow(Object[] values) {
+            events.add(Arrays.toString(values));
+          }
+
+          @Override
+          public void endArray() {
+            events.add("]");
+          }
+        };
+
+    ToonDecoder.parse(new OneCharReader(source), recorder);
+
+    assertEquals(
+        "{ id: 7 tags: [2|[] a b ] rows: [2,[x, y] [1, null] [2, z] ] "
+            + "items: [2,[] { k: v n: { } } { } ] end: true }",
+        String.join(" ", events));
+    assertThrows(ToonException.class, () -> ToonDecoder.parse("1\n2", new ToonHandler() {}));
+  }
+
+  @Test
+  void readsLinesLazilyFromReaderWithMixedLineEndings() {
+    String source = "user:\r\n  name: Ada\r  tags[2]: admin,ops\n\nactive: true\r\n";
+
+    ToonTokener tokener = new ToonTokener(new OneCharReader(source));
+    Map<String, Object> object = tokener.nextObject();
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> user = (Map<String, Object>) object.get("user");
+    assertEquals("Ada", user.get("name"));
+    assertEquals(List.of("admin", "ops"), user.get("tags"));
+    assertEquals(Boolean.TRUE, object.get("active"));
+    assertFalse(tokener.hasMoreValues());
+  }
+
+  @Test
+  void reportsStrictErrorsWithLineNumbersWhenStreaming() {
+    String source = String.join("\n", "items[2]:", "  - a", "  ", "  - b");
+
+    ToonException ex =
+        assertThrows(
+            ToonException.class, () -> new ToonTokener(new StringReader(source)).nextObject());
+    assertEquals(3, ex.getLine());
+  }
+
+  @Test
+  void reportsColumnsRelativeToTheLineAfterBufferRefills() {
+    String padding = "x".repeat(20_000);
+    String source = "rows[2]{id,name}:\n  0," + padding + "\n  1,\"a\\qb\"";
+
+    ToonException fromString =
+        assertThrows(ToonException.class, () -> new ToonTokener(source).nextObject());
+    ToonException fromReader =
+        assertThrows(
+            ToonException.class, () -> new ToonTokener(new OneCharReader(source)).nextObject());
+    for (ToonException ex : List.of(fromString, fromReader)) {
+      assertEquals(3, ex.getLine());
+      assertEquals(8, ex.getColumn());
+    }
+  }
+
+  @Test
+  void parsesLargeTablesInParallelWithSequentialErrors() {
+    CountingPool pool = new CountingPool(4);
+    try {
+      ToonDecoderOptions parallel =
+          ToonDecoderOptions.defaults().withParallel(true).withParallelPool(pool);
+      List<String> lines = new ArrayList<>();
+      lines.add("rows[10000]{id,name,score}:");
+      for (int i = 0; i < 10000; i++) {
+        lines.add("  " + i + ",\"user " + i + "\"," + (i * 0.5));
+      }
+      lines.add("total: 10000");
+      String source = String.join("\n", lines);
+
+      assertEquals(
+          new ToonTokener(source).nextObject(), new ToonTokener(source, parallel).nextObject());
+      assertEquals(
+          new ToonTokener(source).nextObject(),
+          new ToonTokener(new OneCharReader(source), parallel).nextObject());
+      // Un texto completo también reparte el objeto raíz en bloques: dos tareas frente a una.
+      assertEquals(3, pool.invocations.get());
+
+      // Dos hojas fallan; gana la fila más temprana aunque su hoja termine después.
+      lines.set(9001, "  9000,\"bad\\q\",1");
+      lines.set(2501, "  2500,x");
+      String broken = String.join("\n", lines);
+      List<Object> delivered = new ArrayList<>();
+      ToonHandler counter =
+          new ToonHandler() {
+            @Override
+            public void tabularRow(Object[] values) {
+              delivered.add(values[0]);
+            }
+          };
+      ToonException fromString =
+          assertThrows(ToonException.class, () -> ToonDecoder.parse(broken, parallel, counter));
+      assertEquals(2500, delivered.size());
+      ToonException fromReader =
+          assertThrows(
+              ToonException.class,
+              () -> new ToonTokener(new StringReader(broken), parallel).nextObject());
+      ToonException sequential =
+          assertThrows(ToonException.class, () -> new ToonTokener(broken).nextObject());
+      for (ToonException ex : List.of(fromString, fromReader)) {
+        assertEquals(sequential.getMessage(), ex.getMessage());
+        assertEquals(2502, ex.getLine());
+        assertEquals(sequential.getColumn(), ex.getColumn());
+      }
+
+      lines.set(2501, "  2500,\"user 2500\",1250.0");
+      String lateError = String.join("\n", lines);
+      ToonException later =
+          assertThrows(
+              ToonException.class,
+              () -> ToonDecoder.parse(lateError, parallel, new ToonHandler() {}));
+      assertEquals(9002, later.getLine());
+      assertEquals(
+          assertThrows(ToonException.class, () -> new ToonTokener(lateError).nextObject())
+              .getMessage(),
+          later.getMessage());
+
+      lines.set(2501, "\t2500,x,1");
+      delivered.clear();
+      assertThrows(
+          ToonException.class,
+          () -> ToonDecoder.parse(String.join("\n", lines), parallel, counter));
+      assertEquals(2500, delivered.size());
+      assertEquals(10, pool.invocations.get());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void parsesTopLevelBlocksInParallelWithSequentialErrors() {
+    CountingPool pool = new CountingPool(4);
+    try {
+      ToonDecoderOptions parallel =
+          ToonDecoderOptions.defaults()
+              .withParallel(true)
+              .withParallelThreshold(1)
+              .withParallelPool(pool);
+      List<String> entries = new ArrayList<>();
+      List<String> items = new ArrayList<>(List.of("[400]:"));
+      for (int i = 0; i < 400; i++) {
+        entries.add("key" + i + ":\n  id: " + i + "\n  tags[2]: a,b");
+        items.add("  - id: " + i + "\n    name: item " + i);
+      }
+      for (List<String> document : List.of(entries, items)) {
+        String source = String.join("\n", document) + "\n";
+        int invocations = pool.invocations.get();
+        assertEquals(
+            new ToonTokener(source).nextValue(), new ToonTokener(source, parallel).nextValue());
+        assertEquals(invocations + 1, pool.invocations.get());
+
+        List<String> broken = new ArrayList<>(document);
+        broken.set(350, broken.get(350).replace(": ", ":: "));
+        broken.set(120, broken.get(120).replace("\n  ", "\n   "));
+        String invalid = String.join("\n", broken);
+        ToonException sequential =
+            assertThrows(ToonException.class, () -> new ToonTokener(invalid).nextValue());
+        ToonException fromBlocks =
+            assertThrows(
+                ToonException.class, () -> new ToonTokener(invalid, parallel).nextValue());
+        assertEquals(invocations + 2, pool.invocations.get());
+        assertEquals(sequential.getMessage(), fromBlocks.getMessage());
+        assertEquals(sequential.getLine(), fromBlocks.getLine());
+        assertEquals(sequential.getColumn(), fromBlocks.getColumn());
+      }
+
+      String trailing = String.join("\n", items) + "\n\nnext: 1";
+      ToonTokener tokener = new ToonTokener(trailing, parallel);
+      assertEquals(400, ((List<?>) tokener.nextValue()).size());
+      assertEquals(Map.of("next", 1), tokener.nextValue());
+      assertEquals(5, pool.invocations.get());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /** Pool de varios hilos que cuenta las tareas que recibe, con independencia de la máquina. */
+  private static final class CountingPool extends ForkJoinPool {
+    final AtomicInteger invocations = new AtomicInteger();
+
+    CountingPool(int parallelism) {
+      super(parallelism);
+    }
+
+    @Override
+    public <T> T invoke(ForkJoinTask<T> task) {
+      invocations.incrementAndGet();
+      return super.invoke(task);
+    }
+  }
+
+  /** Lector que entrega un carácter por llamada para ejercitar los límites del búfer. */
+  private static final class OneCharReader extends Reader {
+    private final String text;
+    private int position = 0;
+
+    OneCharReader(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (position >= text.length()) {
+        return -1;
+      }
+      buffer[offset] = text.charAt(position++);
+      return 1;
+    }
+
+    @Override
+    public void close() {}
+  }
 }
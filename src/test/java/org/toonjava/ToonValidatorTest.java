@@ -0,0 +1,183 @@
+package org.toonjava;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.toonjava.ToonDecodeFixtures.Fixture;
+
+class ToonValidatorTest {
+  private static final String EXTRA_VALUE =
+      "Se encontraron valores adicionales después del valor principal";
+
+  @Test
+  void reportsEveryErrorWithItsPosition() {
+    String source =
+        String.join(
+            "\n",
+            "ids[3]: 1,2",
+            "users[2]{id,name}:",
+            "  1,ada,extra",
+            "  ",
+            "  2,\"b\\qb\"",
+            "meta:",
+            "\tversion: 1",
+            "note \"sin dos puntos\"",
+            "  more: 1",
+            "deep:",
+            "  a: \"x",
+            "last: ok",
+            "");
+    List<String> expected =
+        List.of(
+            "El encabezado declara 3 elementos pero se leyeron 2 (línea 1, columna 1)",
+            "La fila tabular tiene 3 columnas pero se esperaban 2 (línea 3, columna 3)",
+            "Las líneas en blanco dentro de arrays no son válidas en modo estricto"
+                + " (línea 4, columna 3)",
+            "Escape inválido: \\q (línea 5, columna 8)",
+            "La indentación con tabuladores no está permitida (línea 7, columna 1)",
+            "Se esperaba par clave:valor (línea 8, columna 1)",
+            "Cadena sin cerrar (línea 11, columna 8)");
+    assertEquals(expected, diagnostics(source));
+    List<ToonDiagnostic> streamed = ToonValidator.validate(new StringReader(source));
+    assertEquals(expected, streamed.stream().map(ToonDiagnostic::toString).toList());
+    assertEquals(
+        assertThrows(ToonException.class, () -> ToonDecoder.decode(source)).getMessage(),
+        expected.get(0));
+    assertFalse(ToonValidator.isValid(source));
+
+    assertTrue(ToonValidator.isValid("a: 1\nb[2]: x,y\n"));
+    assertEquals(List.of(), ToonValidator.validate("a: 1\nb[2]: x,y\n"));
+  }
+
+  @Test
+  void resumesRootObjectEntriesOnLinesThatAreNotKeys() {
+    String unexpected = "Indentación inesperada (línea 2, columna 3)";
+    assertEquals(
+        List.of(unexpected, "Se esperaba par clave:valor (línea 3, columna 1)"),
+        diagnostics("a: 1\n  b: 2\nx\ny: 3"));
+    assertEquals(
+        List.of(unexpected, "Se esperaba par clave:valor (línea 3, columna 1)"),
+        diagnostics("a: 1\n  b: 2\n\"q\"\ny: 1"));
+    assertEquals(
+        List.of(
+            unexpected,
+            "Los encabezados de array dentro de objetos requieren una clave (línea 3, columna 1)"),
+        diagnostics("a: 1\n  b: 2\n[2]: 1,2"));
+    assertEquals(
+        List.of(
+            "Indentación no válida, se esperaba múltiplo de 2 (línea 3, columna 4)",
+            "Se esperaba par clave:valor (línea 4, columna 1)"),
+        diagnostics("c:\n  d: 1\n   e: 2\nf\ng: 2"));
+  }
+
+  @Test
+  void reportsLinesAfterAnIndentedRootAsExtraValues() {
+    for (String source : List.of("  a: 1\nb: 2", "  a: 1\nhello")) {
+      ToonException error = assertThrows(ToonException.class, () -> ToonDecoder.decode(source));
+      assertEquals(EXTRA_VALUE, error.getMessage());
+      assertEquals(List.of(new ToonDiagnostic(EXTRA_VALUE, 2, 1)), ToonValidator.validate(source));
+      assertFalse(ToonValidator.isValid(source));
+    }
+    assertEquals(
+        List.of(
+            EXTRA_VALUE + " (línea 2, columna 1)",
+            "Indentación inesperada (línea 3, columna 3)",
+            "Se esperaba par clave:valor (línea 4, columna 1)"),
+        diagnostics("  a: 1\nb: 2\n  c: 3\nd"));
+  }
+
+  @Test
+  void reportsEveryLineAfterARecovery() {
+    assertEquals(
+        List.of(
+            "Indentación inesperada (línea 2, columna 3)",
+            "Se esperaba par clave:valor (línea 3, columna 1)",
+            "Se esperaba par clave:valor (línea 4, columna 1)",
+            "Se esperaba par clave:valor (línea 6, columna 1)"),
+        diagnostics("a: 1\n  b: 2\nx\ny\nz: 1\nw"));
+
+    assertEquals(
+        List.of(
+            new ToonDiagnostic(EXTRA_VALUE, 2, 1), new ToonDiagnostic(EXTRA_VALUE, 3, 1)),
+        ToonValidator.validate("x\ny\nz: 1\n"));
+    assertEquals(
+        List.of(
+            "El encabezado declara 3 elementos pero se leyeron 2 (línea 1, columna 1)",
+            EXTRA_VALUE + " (línea 2, columna 1)",
+            "Cadena sin cerrar (línea 2, columna 6)",
+            "Indentación inesperada (línea 3, columna 3)",
+            EXTRA_VALUE + " (línea 4, columna 1)"),
+        diagnostics("[3]: 1,2\nk: \"v\n  m: 1\n[1]: 3"));
+  }
+
+  @Test
+  void isValidStopsAtTheFirstSoftError() {
+    assertFalse(ToonValidator.isValid("ids[3]: 1,2\nname: ok"));
+    assertFalse(ToonValidator.isValid("rows[1]{id,name}:\n  1"));
+    assertFalse(ToonValidator.isValid("a:\n\tb: 1"));
+    assertFalse(ToonValidator.isValid("a: \"b\\qb\""));
+    assertFalse(ToonValidator.isValid("x\ny"));
+    assertTrue(ToonValidator.isValid("a:\n    b: 1", new ToonDecoderOptions(4, false)));
+    assertFalse(ToonValidator.isValid("a:\n   b: 1", new ToonDecoderOptions(4, false)));
+  }
+
+  @Test
+  void validatesUtf8InputStreams() {
+    String source = "título: \"ñandú\"\nlista[3]: á,é\n  extra: 1\nclave \"sin valor\"\n";
+    List<ToonDiagnostic> expected = ToonValidator.validate(source);
+    assertEquals(
+        List.of(
+            "El encabezado declara 3 elementos pero se leyeron 2 (línea 2, columna 1)",
+            "Indentación inesperada (línea 3, columna 3)",
+            "Se esperaba par clave:valor (línea 4, columna 1)"),
+        expected.stream().map(ToonDiagnostic::toString).toList());
+    assertEquals(
+        expected,
+        ToonValidator.validate(
+            new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)),
+            ToonDecoderOptions.defaults()));
+    assertEquals(
+        List.of(),
+        ToonValidator.validate(
+            new ByteArrayInputStream("título: ñandú\n".getBytes(StandardCharsets.UTF_8))));
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("strictFixtures")
+  void matchesTheDecoderOnFixtures(Fixture fixture) {
+    List<ToonDiagnostic> diagnostics = ToonValidator.validate(fixture.input(), fixture.options());
+    if (!fixture.shouldError()) {
+      assertEquals(List.of(), diagnostics, fixture.name());
+      assertTrue(ToonValidator.isValid(fixture.input(), fixture.options()), fixture.name());
+      return;
+    }
+    ToonException sequential =
+        assertThrows(
+            ToonException.class, () -> ToonDecoder.decode(fixture.input(), fixture.options()));
+    assertFalse(diagnostics.isEmpty(), fixture.name());
+    ToonDiagnostic first = diagnostics.get(0);
+    assertEquals(
+        sequential.getMessage(),
+        sequential.getLine() < 0 ? first.message() : first.toString(),
+        fixture.name());
+    assertFalse(ToonValidator.isValid(fixture.input(), fixture.options()), fixture.name());
+  }
+
+  private static Stream<Fixture> strictFixtures() {
+    return ToonDecodeFixtures.load().stream().filter(fixture -> fixture.options().strict());
+  }
+
+  private static List<String> diagnostics(String source) {
+    return ToonValidator.validate(source).stream().map(ToonDiagnostic::toString).toList();
+  }
+}